@@ -17,6 +17,8 @@
 
 package com.github.lolidb.catalyst.catalog;
 
+import com.github.lolidb.storage.codec.RowCodec;
+
 import javax.activation.UnsupportedDataTypeException;
 import java.io.IOException;
 import java.io.Serializable;
@@ -35,6 +37,22 @@ public class Schema implements Serializable {
 
 	private List<ColumnDescription> values;
 
+	/**
+	 * Offset of each column from the start of row data when no null value is in front of it.
+	 * It is -1 when a variable-length column is in front of it. Computed lazily.
+	 */
+	private transient int[] fixedOffsets;
+
+	/**
+	 * Serialized bytes of each column, -1 for variable-length column. Computed lazily.
+	 */
+	private transient int[] columnWidths;
+
+	/**
+	 * Row serializer compiled from this schema. Computed lazily.
+	 */
+	private transient RowCodec codec;
+
 	// todo read from file like json
 	public Schema(String format){
 
@@ -46,6 +64,7 @@ public class Schema implements Serializable {
 
 	public Schema addColumn(ColumnDescription description){
 		this.values.add(description);
+		invalidate();
 		return this;
 	}
 
@@ -57,6 +76,53 @@ public class Schema implements Serializable {
 		return values;
 	}
 
+	/**
+	 * Get row serializer of this schema, it will be compiled at the first call.
+	 * @return row codec
+	 */
+	public RowCodec getCodec(){
+		if(codec==null){
+			codec=new RowCodec(this);
+		}
+		return codec;
+	}
+
+	/**
+	 * Get serialized bytes of each column.
+	 * @return column widths, -1 means the column is variable-length
+	 */
+	public int[] getColumnWidths(){
+		if(columnWidths==null){
+			RowCodec rowCodec=getCodec();
+			int[] widths=new int[rowCodec.size()];
+			for (int i = 0; i < widths.length; i++) {
+				widths[i]= rowCodec.getCodec(i).fixedSize();
+			}
+			columnWidths=widths;
+		}
+		return columnWidths;
+	}
+
+	/**
+	 * Get offset of each column from the start of row data, it is only valid when no null value is in front of it.
+	 * @return column offsets, -1 means a variable-length column is in front of it
+	 */
+	public int[] getFixedOffsets(){
+		if(fixedOffsets==null){
+			int[] widths=getColumnWidths();
+			int[] offsets=new int[widths.length];
+			int offset=0;
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i]=offset;
+				if(offset>=0){
+					offset=widths[i]<0?-1:offset+widths[i];
+				}
+			}
+			fixedOffsets=offsets;
+		}
+		return fixedOffsets;
+	}
+
 	public long length(){
 		int ans=4;
 		for (int i = 0; i < values.size(); i++) {
@@ -120,9 +186,16 @@ public class Schema implements Serializable {
 				values.add(desc);
 			}
 		}
+		invalidate();
 		return pos;
 	}
 
+	private void invalidate(){
+		columnWidths=null;
+		fixedOffsets=null;
+		codec=null;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buffer=new StringBuffer();
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.io.FileChannelRegistry;
+import com.github.lolidb.utils.Configuration;
+import com.github.lolidb.utils.ConfigureReader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in memory mapped mode of a partition file, designed for read-heavy tables. File is mapped by
+ * {@link FileChannel#map} in large chunks, and a {@link Page} of this partition is a slice of the mapping,
+ * so page data lives only in the OS page cache instead of being copied into a direct buffer.
+ * {{{
+ *     file     | chunk 0                          | chunk 1                          | ...
+ *     chunk    | page 0 | page 1 | ... | page n-1 | page n | ...
+ * }}}
+ * Writes go to the mapping directly, and {@link Page#flush()} forces the chunk of page to disk for durability.
+ * Java 8 can only force a whole mapping, so flushing a page costs a force of up to {@code chunkSize} bytes
+ * (64MB by default), though only dirty pages of the chunk are written by OS.
+ * Chunks are mapped lazily and only cover bytes in the file, so reading never grows the file. A page beyond
+ * the end of file extends the file to the end of that page, and its chunk is mapped again with a larger size,
+ * slices of the old mapping stay valid since both mappings share the OS page cache.
+ */
+public class MappedPartition implements Closeable {
+
+	private static final ConfigureReader reader=ConfigureReader.getInstance();
+
+	private final File file;
+
+	private final String tableName;
+
+	private final String partitionName;
+
+	private final int pageSize;
+
+	private final long chunkSize;
+
+	private final int pagesPerChunk;
+
+	private final FileChannel channel;
+
+	private final List<MappedByteBuffer> chunks=new ArrayList<>();
+
+	public MappedPartition(String tableName,String partitionName) throws IOException {
+		this(tableName,partitionName,(int) Configuration.PAGE_SIZE_BYTES,Configuration.DEFAULT_MAPPED_CHUNK_BYTES);
+	}
+
+	/**
+	 * Map partition file of table.
+	 * @param tableName table name
+	 * @param partitionName partition name
+	 * @param pageSize bytes of page
+	 * @param chunkSize bytes of each mapping, it must be multiple of page size
+	 */
+	public MappedPartition(String tableName,String partitionName,int pageSize,long chunkSize) throws IOException {
+		if(pageSize<=0 || chunkSize<pageSize || chunkSize%pageSize!=0 || chunkSize>Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Chunk size must be multiple of page size and less than 2GB.");
+		}
+		this.tableName=tableName;
+		this.partitionName=partitionName;
+		this.pageSize=pageSize;
+		this.chunkSize=chunkSize;
+		this.pagesPerChunk=(int) (chunkSize/pageSize);
+
+		String rootDir=reader.get(Configuration.STORAGE_ROOT_DIR,Configuration.DEFAULT_STORAGE_ROOT_DIR);
+		this.file=new File(rootDir+tableName+"/"+partitionName+".llb");
+		File dir=file.getParentFile();
+		if(dir!=null && !dir.exists()){
+			dir.mkdirs();
+		}
+		this.channel=FileChannel.open(file.toPath(),
+			StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Get page of given address, its buffer is a slice of the mapping. An untouched page is formatted as empty page.
+	 * @param address page address
+	 * @return mapped page
+	 */
+	public Page getPage(long address) throws IOException {
+		return new Page(address,this);
+	}
+
+	/**
+	 * Get slice of mapping for page.
+	 * @param pageId page id
+	 * @return page buffer
+	 */
+	ByteBuffer slice(long pageId) throws IOException {
+		ByteBuffer chunk=chunk(pageId).duplicate();
+		int offset=(int) (pageId%pagesPerChunk)*pageSize;
+		chunk.position(offset);
+		chunk.limit(offset+pageSize);
+		return chunk.slice();
+	}
+
+	/**
+	 * Force chunk of page to disk. The whole mapping of chunk is forced, not only the page.
+	 * @param pageId page id
+	 */
+	void force(long pageId) throws IOException {
+		chunk(pageId).force();
+	}
+
+	/**
+	 * Force all the mapped chunks to disk.
+	 */
+	public synchronized void force(){
+		for (MappedByteBuffer chunk:chunks) {
+			if(chunk!=null){
+				chunk.force();
+			}
+		}
+	}
+
+	/**
+	 * Get mapping of chunk which covers given page. Mapping covers bytes of chunk in the file, and
+	 * it is mapped again to cover a page beyond the end of file, which extends the file.
+	 */
+	private synchronized MappedByteBuffer chunk(long pageId) throws IOException {
+		int index=(int) (pageId/pagesPerChunk);
+		while (chunks.size()<=index){
+			chunks.add(null);
+		}
+		// bytes of chunk needed by the page
+		long needed=(pageId%pagesPerChunk+1)*pageSize;
+		MappedByteBuffer chunk=chunks.get(index);
+		if(chunk==null || chunk.capacity()<needed){
+			long start=index*chunkSize;
+			long size=Math.max(needed,Math.min(chunkSize,channel.size()-start));
+			chunk=channel.map(FileChannel.MapMode.READ_WRITE,start,size);
+			chunks.set(index,chunk);
+		}
+		return chunk;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String getPartitionName() {
+		return partitionName;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Force all the chunks and close file. Mapping is released when its pages are collected.
+	 * Shared channel of the file is closed too, so partition file can be dropped after closing.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+		FileChannelRegistry.getInstance().close(file);
+	}
+}
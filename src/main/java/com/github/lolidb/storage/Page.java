@@ -18,6 +18,7 @@
 package com.github.lolidb.storage;
 
 import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.io.FileChannelRegistry;
 import com.github.lolidb.utils.Configuration;
 import com.github.lolidb.utils.ConfigureReader;
 import org.slf4j.Logger;
@@ -28,13 +29,44 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Page is a part of a table namespace. So records in a Page share same schema information.
  * Generally, Page can contain several record. Can be retrieve by address of it.
  * And {@link Page} can provide quick record retrieve function,and provide some statics info.
  *
- * Page allow discrete storage.
+ * Page allow discrete storage. Records are organized as a slotted page, layout is as following:
+ * {{{
+ *     header (24 bytes)
+ *         slot numbers     int
+ *         free offset      int (first byte after the record area)
+ *         live numbers     int
+ *         live bytes       int (bytes of live records)
+ *         used memory      int (value size of live records)
+ *         flags            int
+ *
+ *     records          grow from the header to the end of page
+ *
+ *     free space
+ *
+ *     slot directory   grow from the end of page to the header, the i-th slot is at
+ *                      {@code capacity-(i+1)*SLOT_SIZE}
+ *         offset           int
+ *         length           unsigned short
+ *         flags            short
+ * }}}
+ * A record is addressed by its slot, so lookup, removal and in-place update by slot do not need
+ * to decode any other record. Space of removed or shrunk records is reclaimed by {@code compact},
+ * and slot of a removed record is reused by the next insertion.
+ *
+ * In partition file, each page has a fixed place decided by page id in its address, so a page is always
+ * written back in place, and pages of a partition must have the same size.
+ * {{{
+ *     address      | ... | page id (PAGES_BITS_IN_A_TABLE) | offset in page (PAGE_SIZE_BITS) |
+ *
+ *     file offset  = page id * page size
+ * }}}
  */
 public class Page implements Comparable{
 
@@ -42,6 +74,32 @@ public class Page implements Comparable{
 
 	private static final ConfigureReader reader=ConfigureReader.getInstance();
 
+	private static final FileChannelRegistry channels=FileChannelRegistry.getInstance();
+
+	private static final PageArena arena=PageArena.getInstance();
+
+	///////////////////////////////////////////////////////////////////////////
+	// Page layout
+	///////////////////////////////////////////////////////////////////////////
+	private static final int SLOT_NUMS_OFFSET=0;
+
+	private static final int FREE_OFFSET_OFFSET=4;
+
+	private static final int LIVE_NUMS_OFFSET=8;
+
+	private static final int LIVE_BYTES_OFFSET=12;
+
+	private static final int USED_MEMORY_OFFSET=16;
+
+	private static final int FLAGS_OFFSET=20;
+
+	public static final int HEADER_SIZE=24;
+
+	public static final int SLOT_SIZE=8;
+
+	// slot flag of removed record
+	public static final short SLOT_DELETED=1;
+
 	// global unique identifier
 	protected long address;
 
@@ -64,15 +122,22 @@ public class Page implements Comparable{
 	 */
 	protected int realUsedMemory;
 
+	// no slot before it is removed, so searching a removed slot to reuse starts from here
+	protected int freeSlotHint;
+
 	protected int pageSize;
 
-	// start offset in file
+	// bytes of buffer, it is the memory weight of this page in buffer pool
+	protected int capacity;
+
+	// start offset in file, it is page id * page size by default
 	protected long fileOffset;
 
 	/**
 	 * Modified flag, when this flag is true, data of this block need to be written to disk.
+	 * It is read by background flusher without locking this page.
 	 */
-	protected boolean isModified=false;
+	protected volatile boolean isModified=false;
 
 	/**
 	 * Statics of living time in memory, this value will add -1 when this block pass an add operation.
@@ -82,39 +147,88 @@ public class Page implements Comparable{
 
 	protected ByteBuffer buffer;
 
+	// frame of buffer in page arena, -1 if buffer is not taken from arena
+	protected int frame=-1;
+
+	// numbers of users working on buffer of this page, pinned page can not be evicted
+	protected final AtomicInteger pinCount=new AtomicInteger();
+
+
+	// partition file, its channel is shared with other pages of partition
+	protected File file;
 
-	protected FileChannel channel;
+	// mapping of partition file, it is null unless page is a slice of mapped partition
+	protected MappedPartition mapped;
 
 	///////////////////////////////////////////////////////////////////////////
 	// Constructor
 	///////////////////////////////////////////////////////////////////////////
-	public Page(long address,int capacity,String tableName,String partitionName) throws IOException {
+	/**
+	 * Create an empty page of partition. No file is opened here, file channel is acquired from
+	 * {@link FileChannelRegistry} when page is written or loaded.
+	 */
+	public Page(long address,int capacity,String tableName,String partitionName) {
+		this(address,capacity,partitionFile(tableName,partitionName));
 		this.partitionName=partitionName;
 		this.tableName=tableName;
+	}
+
+	/**
+	 * Create an empty page stored in given file, it is used by pages of other formats, such as index pages.
+	 */
+	protected Page(long address,int capacity,File file) {
+		this(address,capacity,file,true);
+	}
+
+	/**
+	 * Create a page stored in given file.
+	 * @param empty whether page takes a formatted buffer, or else it has no buffer until it is loaded
+	 */
+	protected Page(long address,int capacity,File file,boolean empty) {
 		this.address=address;
-		buffer=ByteBuffer.allocateDirect(capacity);
-		String rootDir=reader.get(Configuration.STORAGE_ROOT_DIR,Configuration.DEFAULT_STORAGE_ROOT_DIR);
-		File tableFilePath = new File(rootDir + tableName);
-		if(!tableFilePath.exists()){
-			tableFilePath.mkdir();
+		this.fileOffset=pageId(address)*capacity;
+		this.pageSize=capacity;
+		this.capacity=capacity;
+		this.file=file;
+		if(empty){
+			buffer=allocate(capacity);
+			if(frame>=0){
+				zero(buffer,0);
+			}
+			format();
 		}
-		File filePath=new File(rootDir+tableName+"/"+partitionName+".llb");
+	}
 
-		if(!filePath.exists()){
-			filePath.createNewFile();
-		}
-		channel=new RandomAccessFile(filePath.getName(),"rw").getChannel();
+	private static File partitionFile(String tableName,String partitionName){
+		String rootDir=reader.get(Configuration.STORAGE_ROOT_DIR,Configuration.DEFAULT_STORAGE_ROOT_DIR);
+		return new File(rootDir+tableName+"/"+partitionName+".llb");
 	}
 
-	public Page(long address,int capacity,String tableName) throws IOException {
+	/**
+	 * Create a page whose buffer is a slice of mapped partition. Data in file is used directly.
+	 */
+	Page(long address,MappedPartition mapped) throws IOException {
+		this.partitionName=mapped.getPartitionName();
+		this.tableName=mapped.getTableName();
+		this.address=address;
+		this.capacity=mapped.getPageSize();
+		this.pageSize=capacity;
+		this.fileOffset=pageId(address)*capacity;
+		this.file=mapped.getFile();
+		this.mapped=mapped;
+		this.buffer=mapped.slice(pageId(address));
+		restore();
+	}
+
+	public Page(long address,int capacity,String tableName) {
 		this(address,capacity,tableName,"default");
 	}
 
-	public Page(long address,int capacity) throws IOException {
+	public Page(long address,int capacity) {
 		this(address,capacity,"default","default");
 	}
 
-	public Page(long address) throws IOException {
+	public Page(long address) {
 		this(address,8192);
 	}
 
@@ -131,6 +245,27 @@ public class Page implements Comparable{
 		this.tableName = tableName;
 	}
 
+	/**
+	 * Get page id encoded in address, it is the index of page in partition file.
+	 * @param address page address
+	 * @return page id
+	 */
+	public static long pageId(long address){
+		return (address>>>Configuration.PAGE_SIZE_BITS)&((1L<<Configuration.PAGES_BITS_IN_A_TABLE)-1);
+	}
+
+	public long getPageId(){
+		return pageId(address);
+	}
+
+	public long getAddress() {
+		return address;
+	}
+
+	public long getFileOffset() {
+		return fileOffset;
+	}
+
 	public Page setFileOffset(long fileOffset) {
 		this.fileOffset = fileOffset;
 		return this;
@@ -140,6 +275,100 @@ public class Page implements Comparable{
 		this.isModified=true;
 	}
 
+	/**
+	 * Pin this page, so buffer pool will not evict it until it is unpinned.
+	 * @return pin count
+	 */
+	public int pin(){
+		return pinCount.incrementAndGet();
+	}
+
+	/**
+	 * Release a pin of this page.
+	 * @return pin count
+	 */
+	public int unpin(){
+		int count=pinCount.decrementAndGet();
+		if(count<0){
+			pinCount.incrementAndGet();
+			throw new IllegalStateException("Page:"+this+" is not pinned.");
+		}
+		return count;
+	}
+
+	public boolean isPinned(){
+		return pinCount.get()>0;
+	}
+
+	/**
+	 * Check whether page has data not written to disk.
+	 * @return true if page is dirty
+	 */
+	public boolean isModified(){
+		return isModified;
+	}
+
+	/**
+	 * Get bytes of buffer allocated for this page, it does not change when page is spilled.
+	 * @return buffer capacity
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * Get slot numbers of this page, including the removed slots.
+	 * @return slot numbers
+	 */
+	public int getSlotNums(){
+		return buffer.getInt(SLOT_NUMS_OFFSET);
+	}
+
+	/**
+	 * Get numbers of living records in this page.
+	 * @return live record numbers
+	 */
+	public int getLiveNums(){
+		return buffer.getInt(LIVE_NUMS_OFFSET);
+	}
+
+	/**
+	 * Check whether given slot holds a living record.
+	 * @param slot slot index
+	 * @return true if the record of slot is not removed
+	 */
+	public boolean isLive(int slot){
+		if(slot<0 || slot>=getSlotNums())
+			return false;
+		return (buffer.getShort(slotPosition(slot)+6) & SLOT_DELETED)==0;
+	}
+
+	/**
+	 * Get start offset of record in page buffer by slot.
+	 * @param slot slot index
+	 * @return offset of record
+	 */
+	public int getRecordOffset(int slot){
+		return buffer.getInt(slotPosition(slot));
+	}
+
+	/**
+	 * Get bytes of record in page buffer by slot.
+	 * @param slot slot index
+	 * @return record length
+	 */
+	public int getRecordLength(int slot){
+		return buffer.getShort(slotPosition(slot)+4) & 0xFFFF;
+	}
+
+	/**
+	 * Get space which can be used by new record, this contains space of removed records.
+	 * @return free bytes
+	 */
+	public int getFreeSpace(){
+		return buffer.capacity()-realUsedMemory;
+	}
+
 	///////////////////////////////////////////////////////////////////////////
 	// high level API
 	///////////////////////////////////////////////////////////////////////////
@@ -154,22 +383,169 @@ public class Page implements Comparable{
 	 * @return true if add successfully
 	 */
 	public boolean addRecord(Row record) throws IOException {
+		return insert(record)!=-1;
+	}
+
+	/**
+	 * Add record serialized by the codec compiled from schema of page.
+	 * @param record pending record to insert
+	 * @param schema schema of page
+	 * @return true if add successfully
+	 */
+	public boolean addRecord(Row record,Schema schema) throws IOException {
+		return insert(record,schema)!=-1;
+	}
+
+	/**
+	 * Insert record into page without schema, fields are serialized by their own types.
+	 * @param record pending record to insert
+	 * @return slot of record, or -1 if this page have no space for it
+	 */
+	public int insert(Row record) throws IOException {
+		return insert(record,null);
+	}
+
+	/**
+	 * Insert record into page and assign a new slot to it.
+	 * When contiguous free space is not enough but removed records leave enough space, page will be compacted.
+	 * @param record pending record to insert
+	 * @param schema schema of page, record is serialized by its compiled codec, or by types of fields if it is null
+	 * @return slot of record, or -1 if this page have no space for it
+	 */
+	public synchronized int insert(Row record,Schema schema) throws IOException {
 		if(record.isDeleted()){
-			return false;
+			return -1;
+		}
+		int length=record.getRealSize();
+		int slot=removedSlot();
+		int slotBytes=slot<0?SLOT_SIZE:0;
+		if(length>0xFFFF || realUsedMemory+length+slotBytes>buffer.capacity()){
+			logger.info("Page:{} have no space for {}.",this,record);
+			return -1;
+		}
+		if(getFreeOffset()+length+slotBytes>slotDirectoryStart()){
+			compact(true);
+			// trailing removed slots are released by compaction
+			slot=removedSlot();
+		}
+
+		int offset=getFreeOffset();
+		// slot directory is behind the record area, so write can not reach the end of buffer
+		buffer.position(offset);
+		write(record,schema);
+
+		if(slot<0){
+			slot=getSlotNums();
+			buffer.putInt(SLOT_NUMS_OFFSET,slot+1);
+			realUsedMemory+=SLOT_SIZE;
 		}
-		if(realUsedMemory+record.getRealSize()<=buffer.capacity()){
+		writeSlot(slot,offset,length,(short) 0);
+		freeSlotHint=slot+1;
+		buffer.putInt(FREE_OFFSET_OFFSET,offset+length);
+		buffer.putInt(LIVE_NUMS_OFFSET,getLiveNums()+1);
+		addLiveBytes(length,record.getSize());
+		isModified=true;
+		return slot;
+	}
+
+	/**
+	 * Write record at current position of buffer, caller has checked its space.
+	 */
+	private void write(Row record,Schema schema) throws IOException {
+		if(schema!=null){
+			schema.getCodec().write(record,buffer);
+		}else {
 			Row.writeObject(record,buffer);
-			// only contains value size
-			usedMemory+=record.getSize();
-			// add removal flag
-			realUsedMemory+=record.getRealSize();
-			if(!isModified){
-				isModified=true;
+		}
+	}
+
+	/**
+	 * Read record of given slot.
+	 * @param slot slot index
+	 * @param schema schema of page
+	 * @return record, or {@code null} if slot is removed
+	 */
+	public Row get(int slot,Schema schema) throws IOException {
+		if(!isLive(slot))
+			return null;
+		return Row.readObject(buffer,getRecordOffset(slot),schema);
+	}
+
+	/**
+	 * Reposition {@code view} to the record of given slot, nothing will be deserialized.
+	 * @param slot slot index
+	 * @param view reused view
+	 * @return the view, or {@code null} if slot is removed
+	 */
+	public RowView view(int slot,RowView view){
+		if(!isLive(slot))
+			return null;
+		return view.wrap(buffer,getRecordOffset(slot));
+	}
+
+	/**
+	 * Remove record of given slot, the slot will be kept to make other slots stable, and it is reused by
+	 * the next insertion.
+	 * @param slot slot index
+	 * @param schema schema of page, used to maintain used memory
+	 * @return true if remove successfully
+	 */
+	public synchronized boolean removeRecord(int slot,Schema schema) throws IOException {
+		if(!isLive(slot))
+			return false;
+		int offset=getRecordOffset(slot);
+		int length=getRecordLength(slot);
+		int size=new RowView(schema).wrap(buffer,offset).getSize();
+
+		// change delete flag of row and slot
+		buffer.putInt(offset,1);
+		writeSlot(slot,offset,length,SLOT_DELETED);
+		freeSlotHint=Math.min(freeSlotHint,slot);
+		buffer.putInt(LIVE_NUMS_OFFSET,getLiveNums()-1);
+		addLiveBytes(-length,-size);
+		isModified=true;
+		return true;
+	}
+
+	/**
+	 * Replace record of given slot with {@code newRecord}, slot of record will not change.
+	 * New record will be written in place when it is not longer than old one, or else it will be moved to free space.
+	 * @param slot slot index
+	 * @param newRecord new row
+	 * @param schema schema of page, used to maintain used memory
+	 * @return true if update successfully
+	 */
+	public synchronized boolean updateRecord(int slot,Row newRecord,Schema schema) throws IOException {
+		if(!isLive(slot) || newRecord.isDeleted())
+			return false;
+
+		int oldOffset=getRecordOffset(slot);
+		int oldLength=getRecordLength(slot);
+		int length=newRecord.getRealSize();
+		if(length>0xFFFF || realUsedMemory-oldLength+length>buffer.capacity()){
+			logger.info("Page:{} have no space for new record:{}. And this update will hand to next page.",this,newRecord);
+			return false;
+		}
+		int oldSize=new RowView(schema).wrap(buffer,oldOffset).getSize();
+
+		int offset=oldOffset;
+		if(length>oldLength){
+			if(getFreeOffset()+length>slotDirectoryStart()){
+				// release old record before compact, so its space can be reused
+				writeSlot(slot,oldOffset,oldLength,SLOT_DELETED);
+				addLiveBytes(-oldLength,0);
+				compact(false);
+				addLiveBytes(oldLength,0);
 			}
-			return true;
+			offset=getFreeOffset();
+			buffer.putInt(FREE_OFFSET_OFFSET,offset+length);
 		}
-		logger.info("Page:{} have no space for {}.",this,record);
-		return false;
+		buffer.position(offset);
+		write(newRecord,schema);
+		writeSlot(slot,offset,length,(short) 0);
+		addLiveBytes(length-oldLength,newRecord.getSize()-oldSize);
+		isModified=true;
+		return true;
 	}
 
 	/**
@@ -178,21 +554,15 @@ public class Page implements Comparable{
 	 * @param record removal value
 	 */
 	public boolean removeRecord(Row record, Schema schema) throws IOException {
-		if(!isModified)
-			return false;
-
 		if(record.isDeleted())
 			return false;
 
-		int size=0, last=buffer.position();
-		while (size<last){
-			Row row = Row.readObject(buffer, size, schema);
-			if(row.sameAs(record)){
-				// change delete flag of row
-				buffer.putInt(size,1);
-				usedMemory-=record.getSize();
+		RowView view=new RowView(schema);
+		int slots=getSlotNums();
+		for (int slot = 0; slot < slots; slot++) {
+			if(view(slot,view)!=null && view.sameAs(record)){
+				removeRecord(slot,schema);
 			}
-			size+=row.getRealSize();
 		}
 		return true;
 	}
@@ -201,17 +571,26 @@ public class Page implements Comparable{
 
 	/**
 	 * Update contains remove <code>oldRecord</code> and add <code>newRecord</code>.
+	 * The first record equal to <code>oldRecord</code> will be updated in place, and the others will be removed.
 	 * @param oldRecord old row
 	 * @param newRecord new row
 	 */
 	public boolean updateRecord(Row oldRecord,Row newRecord,Schema schema) throws IOException {
-		if(usedMemory+newRecord.getSize()<=pageSize){
-			removeRecord(oldRecord,schema);
-			addRecord(newRecord);
-			return true;
+		RowView view=new RowView(schema);
+		int slots=getSlotNums();
+		for (int slot = 0; slot < slots; slot++) {
+			if(view(slot,view)!=null && view.sameAs(oldRecord)){
+				if(!updateRecord(slot,newRecord,schema))
+					return false;
+				for (int i = slot+1; i < slots; i++) {
+					if(view(i,view)!=null && view.sameAs(oldRecord)){
+						removeRecord(i,schema);
+					}
+				}
+				return true;
+			}
 		}
-		logger.info("Page:{} have no space for new record:{}. And this update will hand to next page.",this,newRecord);
-		return false;
+		return addRecord(newRecord,schema);
 	}
 
 	/**
@@ -224,55 +603,267 @@ public class Page implements Comparable{
 			logger.warn("you have input an deleted value, this value can not be searched.");
 			return null;
 		}
-		int size=0, last=buffer.position();
 		List<Row> ans=new ArrayList<>();
-		while (size<last){
-			Row row = Row.readObject(buffer, size, schema);
-			if(row.sameAs(record)){
-				ans.add(row);
+		// only matched rows are deserialized
+		RowView view=new RowView(schema);
+		int slots=getSlotNums();
+		for (int slot = 0; slot < slots; slot++) {
+			if(view(slot,view)!=null && view.sameAs(record)){
+				ans.add(view.toRow());
 			}
-			size+=row.getRealSize();
 		}
 		return ans;
 	}
 
 	/**
-	 * Write data of {@link Page} into assigned {@link FileChannel}.
-	 * Rest space in page can not hold any row, because here we have not support null
-	 * value, so just flip the buffer and write.
-	 * Called only when the rest space is not enough and it is evicted by lru algorithm.
-	 * @apiNote spilled page must be a dirty page,because new page have no data in it
+	 * Move living records to the front of record area, so space of removed and shrunk records can be reused.
+	 * Slot of each record is kept, and trailing removed slots are released.
 	 */
-	public void spill() throws IOException {
-		if(!isModified){
-			logger.warn("you can not spill new page into disk.");
-			return;
+	public synchronized void compact(){
+		compact(true);
+	}
+
+	private void compact(boolean releaseSlots){
+		int slots=getSlotNums();
+		while (releaseSlots && slots>0 && !isLive(slots-1)){
+			slots--;
+		}
+		byte[] records=new byte[getLiveBytes()];
+		int pos=0;
+		for (int slot = 0; slot < slots; slot++) {
+			if(!isLive(slot))
+				continue;
+			int length=getRecordLength(slot);
+			buffer.position(getRecordOffset(slot));
+			buffer.get(records,pos,length);
+			writeSlot(slot,HEADER_SIZE+pos,length,(short) 0);
+			pos+=length;
+		}
+		buffer.position(HEADER_SIZE);
+		buffer.put(records,0,pos);
+
+		realUsedMemory-=(getSlotNums()-slots)*SLOT_SIZE;
+		buffer.putInt(SLOT_NUMS_OFFSET,slots);
+		buffer.putInt(FREE_OFFSET_OFFSET,HEADER_SIZE+pos);
+		isModified=true;
+	}
+
+	/**
+	 * Write data of dirty {@link Page} into assigned {@link FileChannel} at {@code fileOffset}, buffer is kept.
+	 * Slot directory is at the end of page, so the whole page is written.
+	 * Mutations wait until writing finished, so a flushed page is always consistent on disk.
+	 * @return true if data is written, false if page is clean
+	 */
+	public synchronized boolean flush() throws IOException {
+		if(!isModified || buffer==null){
+			return false;
 		}
+		pageSize=buffer.capacity();
 
-		fileOffset=channel.position();
-		pageSize=buffer.position();
+		if(mapped!=null){
+			// data is already in mapping, the whole chunk of page is forced
+			mapped.force(getPageId());
+			isModified=false;
+			return true;
+		}
 
 		// write page info to disk as wal
-		buffer.flip();
-		channel.write(buffer);
-		// reset buffer and reuse as a new page
-		buffer=null;
+		ByteBuffer data=buffer.duplicate();
+		data.clear();
+		try (FileChannelRegistry.Handle handle=channels.acquire(file)){
+			FileChannel channel=handle.channel();
+			while (data.hasRemaining()){
+				channel.write(data,fileOffset+data.position());
+			}
+		}
 		isModified=false;
+		return true;
 	}
 
 	/**
-	 * Load buffer context from file channel to recover from disk.
+	 * Release buffer of {@link Page} when it is evicted. Dirty page is flushed at first, and a clean page
+	 * is dropped without any I/O. Page of mapped partition only drops its slice.
+	 */
+	public synchronized void spill() throws IOException {
+		flush();
+		// give frame back to arena, and reset buffer to reuse as a new page
+		if(frame>=0){
+			arena.release(frame);
+			frame=-1;
+		}
+		buffer=null;
+	}
+
+	/**
+	 * Load page from its own place in file by a single positional read.
+	 */
+	public void load() throws IOException {
+		if(mapped!=null){
+			if(buffer==null){
+				buffer=mapped.slice(getPageId());
+				restore();
+			}
+			return;
+		}
+		load(fileOffset,capacity,capacity);
+	}
+
+	/**
+	 * Load buffer context from file channel to recover from disk, the page will be written back to the same place.
 	 * @param fileOffset file offset
+	 * @param pageSize bytes of page in file
+	 * @param buffSize capacity of page buffer
 	 */
 	public void load(long fileOffset,int pageSize,int buffSize) throws IOException {
 		if(buffer!=null){
-			logger.warn("Can not load data to dirty page with file channel:{}",channel);
+			logger.warn("Can not load data to dirty page of file:{}",file);
 			return;
 		}
-		buffer=ByteBuffer.allocateDirect(buffSize);
-		channel.read(buffer,fileOffset);
-		buffer.position(0);
-		buffer.limit(pageSize);
+		ByteBuffer data=allocate(buffSize);
+		data.limit(pageSize);
+		try (FileChannelRegistry.Handle handle=channels.acquire(file)){
+			FileChannel channel=handle.channel();
+			while (data.hasRemaining()){
+				if(channel.read(data,fileOffset+data.position())<0)
+					break;
+			}
+		}
+		// frame may hold data of another page, clear the part not covered by file
+		zero(data,data.position());
+		data.clear();
+		buffer=data;
+		capacity=buffSize;
+		this.fileOffset=fileOffset;
+		restore();
+	}
+
+	/**
+	 * Reuse this page as an empty page of given address, its buffer is kept and cleared,
+	 * and a spilled page takes a new buffer. Data of page is dropped without writing.
+	 * @param address page address
+	 * @return this page
+	 */
+	synchronized Page reset(long address){
+		if(mapped!=null){
+			throw new IllegalStateException("Page of mapped partition can not be reused.");
+		}
+		if(isPinned()){
+			throw new IllegalStateException("Page:"+this+" is pinned.");
+		}
+		this.address=address;
+		this.fileOffset=pageId(address)*capacity;
+		if(buffer==null){
+			buffer=allocate(capacity);
+		}
+		zero(buffer,0);
+		format();
+		isModified=false;
+		lifes=0;
+		return this;
+	}
+
+	/**
+	 * Take a frame from {@link PageArena} as page buffer, a buffer is allocated only if size is not frame size
+	 * or arena is exhausted.
+	 */
+	private ByteBuffer allocate(int size){
+		if(size==arena.getFrameSize()){
+			frame=arena.acquire();
+			if(frame>=0){
+				return arena.frame(frame);
+			}
+		}
+		return ByteBuffer.allocateDirect(size);
+	}
+
+	private static void zero(ByteBuffer buffer,int from){
+		int end=buffer.capacity();
+		while (from+8<=end){
+			buffer.putLong(from,0L);
+			from+=8;
+		}
+		while (from<end){
+			buffer.put(from++,(byte) 0);
+		}
+	}
+
+	/**
+	 * Restore statics from header of buffer, untouched page is formatted as an empty page.
+	 * Page of another format overrides it together with {@link #format()}.
+	 */
+	protected void restore(){
+		if(getFreeOffset()==0){
+			format();
+			return;
+		}
+		realUsedMemory=HEADER_SIZE+getSlotNums()*SLOT_SIZE+getLiveBytes();
+		usedMemory=buffer.getInt(USED_MEMORY_OFFSET);
+		freeSlotHint=0;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Slot directory
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reset buffer as an empty slotted page.
+	 */
+	protected void format(){
+		buffer.putInt(SLOT_NUMS_OFFSET,0);
+		buffer.putInt(FREE_OFFSET_OFFSET,HEADER_SIZE);
+		buffer.putInt(LIVE_NUMS_OFFSET,0);
+		buffer.putInt(LIVE_BYTES_OFFSET,0);
+		buffer.putInt(USED_MEMORY_OFFSET,0);
+		buffer.putInt(FLAGS_OFFSET,0);
+		usedMemory=0;
+		realUsedMemory=HEADER_SIZE;
+		freeSlotHint=0;
+	}
+
+	private int slotPosition(int slot){
+		return buffer.capacity()-(slot+1)*SLOT_SIZE;
+	}
+
+	/**
+	 * Find a removed slot to reuse.
+	 * @return slot index, or -1 if all the slots are live
+	 */
+	private int removedSlot(){
+		int slots=getSlotNums();
+		for (int slot = freeSlotHint; slot < slots; slot++) {
+			if(!isLive(slot)){
+				freeSlotHint=slot;
+				return slot;
+			}
+		}
+		freeSlotHint=slots;
+		return -1;
+	}
+
+	private int slotDirectoryStart(){
+		return slotPosition(getSlotNums()-1);
+	}
+
+	private int getFreeOffset(){
+		return buffer.getInt(FREE_OFFSET_OFFSET);
+	}
+
+	private int getLiveBytes(){
+		return buffer.getInt(LIVE_BYTES_OFFSET);
+	}
+
+	private void writeSlot(int slot,int offset,int length,short flags){
+		int pos=slotPosition(slot);
+		buffer.putInt(pos,offset);
+		buffer.putShort(pos+4,(short) length);
+		buffer.putShort(pos+6,flags);
+	}
+
+	private void addLiveBytes(int bytes,int size){
+		buffer.putInt(LIVE_BYTES_OFFSET,getLiveBytes()+bytes);
+		usedMemory+=size;
+		realUsedMemory+=bytes;
+		buffer.putInt(USED_MEMORY_OFFSET,usedMemory);
 	}
 
 	@Override
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.cache.StorageUnit;
+import com.github.lolidb.utils.Configuration;
+import com.github.lolidb.utils.ConfigureReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Off-heap region holding buffers of {@link Page}. Region is cut into fixed-size frames addressed by index,
+ * a frame is taken when page is created or loaded, and given back explicitly when page is spilled,
+ * so pages churning through buffer pool do not allocate direct memory and wait for GC to free it.
+ * {{{
+ *     slab 0   | frame 0 | frame 1 | ... | frame n-1 |
+ *     slab 1   | frame n | frame n+1 | ...           |
+ * }}}
+ * Region is allocated slab by slab when frames are first needed, and never freed, at most {@code capacity}
+ * bytes are allocated. Once all the frames are in use, {@link #acquire()} returns -1 and caller
+ * needs to allocate a buffer of its own.
+ */
+public class PageArena {
+
+	private static final Logger logger= LoggerFactory.getLogger(PageArena.class);
+
+	private static final ConfigureReader reader=ConfigureReader.getInstance();
+
+	private static final PageArena arena=new PageArena(
+		StorageUnit.parse(reader.get(Configuration.PAGE_ARENA_SIZE,
+			reader.get(Configuration.BUFFER_POOL_SIZE,Configuration.DEFAULT_BUFFER_POOL_SIZE))),
+		(int) Configuration.PAGE_SIZE_BYTES,Configuration.DEFAULT_ARENA_SLAB_BYTES);
+
+	public static PageArena getInstance() {
+		return arena;
+	}
+
+	private final int frameSize;
+
+	private final int framesPerSlab;
+
+	private final ByteBuffer[] slabs;
+
+	// view of each frame, created with its slab
+	private final ByteBuffer[] frames;
+
+	private final boolean[] inUse;
+
+	// stack of released frames
+	private final int[] free;
+
+	private int freeTop;
+
+	// numbers of frames ever handed out, frames over it are not allocated yet
+	private int carved;
+
+	private long acquires;
+
+	private long misses;
+
+	/**
+	 * Create an arena.
+	 * @param capacity max bytes of region
+	 * @param frameSize bytes of each frame, it is page size
+	 * @param slabSize bytes of each allocation, it is rounded down to multiple of frame size
+	 */
+	public PageArena(long capacity,int frameSize,long slabSize){
+		if(frameSize<=0 || slabSize<frameSize || capacity<frameSize){
+			throw new IllegalArgumentException("Arena must hold at least one frame.");
+		}
+		int count=(int) Math.min(capacity/frameSize,Integer.MAX_VALUE);
+		this.frameSize=frameSize;
+		this.framesPerSlab=(int) Math.min(slabSize/frameSize,Integer.MAX_VALUE/frameSize);
+		this.slabs=new ByteBuffer[(count+framesPerSlab-1)/framesPerSlab];
+		this.frames=new ByteBuffer[count];
+		this.inUse=new boolean[count];
+		this.free=new int[count];
+	}
+
+	/**
+	 * Take a free frame.
+	 * @return index of frame, or -1 if all the frames are in use
+	 */
+	public synchronized int acquire(){
+		int index;
+		if(freeTop>0){
+			index=free[--freeTop];
+		}else if(carved<frames.length){
+			if(carved%framesPerSlab==0){
+				allocateSlab(carved/framesPerSlab);
+			}
+			index=carved++;
+		}else {
+			misses++;
+			return -1;
+		}
+		inUse[index]=true;
+		acquires++;
+		return index;
+	}
+
+	/**
+	 * Get buffer of frame, its position is 0 and limit is frame size. Content of a reused frame is not cleared.
+	 * @param index index of acquired frame
+	 * @return buffer of frame
+	 */
+	public ByteBuffer frame(int index){
+		ByteBuffer buffer=frames[index];
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Give back a frame, its buffer must not be used any more.
+	 * @param index index of acquired frame
+	 */
+	public synchronized void release(int index){
+		if(index<0 || index>=carved || !inUse[index]){
+			throw new IllegalStateException("Frame:"+index+" is not in use.");
+		}
+		inUse[index]=false;
+		free[freeTop++]=index;
+	}
+
+	private void allocateSlab(int slab){
+		int count=Math.min(framesPerSlab,frames.length-slab*framesPerSlab);
+		ByteBuffer region=ByteBuffer.allocateDirect(count*frameSize);
+		slabs[slab]=region;
+		for (int i = 0; i < count; i++) {
+			region.limit((i+1)*frameSize);
+			region.position(i*frameSize);
+			frames[slab*framesPerSlab+i]=region.slice();
+		}
+		logger.info("Slab:{} of page arena is allocated, {} frames.",slab,count);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// statics
+	///////////////////////////////////////////////////////////////////////////
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	public int capacity(){
+		return frames.length;
+	}
+
+	public synchronized int usedFrames(){
+		return carved-freeTop;
+	}
+
+	/**
+	 * @return numbers of frames can be acquired without allocating a new buffer
+	 */
+	public synchronized int freeFrames(){
+		return frames.length-usedFrames();
+	}
+
+	/**
+	 * @return direct bytes allocated by this arena
+	 */
+	public synchronized long allocatedBytes(){
+		long bytes=0;
+		for (ByteBuffer slab:slabs) {
+			if(slab!=null){
+				bytes+=slab.capacity();
+			}
+		}
+		return bytes;
+	}
+
+	public synchronized long acquires(){
+		return acquires;
+	}
+
+	/**
+	 * @return numbers of acquisitions failed because arena is exhausted
+	 */
+	public synchronized long misses(){
+		return misses;
+	}
+}
@@ -17,70 +17,370 @@
 
 package com.github.lolidb.storage;
 
-import com.github.lolidb.storage.tree.FreeList;
+import com.github.lolidb.annotation.TestApi;
 import com.github.lolidb.utils.Configuration;
 import com.github.lolidb.utils.ConfigureReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of {@link Page} frames shared by threads. A page given back by {@link #recycle(Page)} is reset and
+ * handed out again, so its object and buffer are reused.
+ * {{{
+ *     thread local cache   | page | page |          at most localCacheSize pages, owner locking
+ *     shared pool          | page | page | ... |     guarded by lock
+ * }}}
+ * When both of them are empty, pool grows by creating a new page until it reaches {@code maxSize},
+ * after that callers wait until a page is recycled. Before waiting, a caller reclaims pages cached by
+ * other threads into shared pool, and a page recycled while someone is waiting goes to shared pool
+ * directly, so no caller waits while free pages are idle in caches. Cache of a thread is only locked by
+ * its owner and by reclaiming, so the lock is almost never contended.
+ */
 public class PageFreeList {
-	private static final Logger logger= LoggerFactory.getLogger(FreeList.class);
+	private static final Logger logger= LoggerFactory.getLogger(PageFreeList.class);
 
 	private static ConfigureReader reader=ConfigureReader.getInstance();
 
-	private static int PAGE_SIZE=reader.get(Configuration.PAGE_SIZE_BYTES,Configuration.DEFAULT_PAGE_SIZE_BYTES);
+	private static final int PAGE_SIZE=(int) Configuration.PAGE_SIZE_BYTES;
+
+	protected final ReentrantLock lock=new ReentrantLock();
+
+	private final Condition available=lock.newCondition();
+
+	protected final ArrayDeque<Page> freeList;
+
+	private final ThreadLocal<LocalCache> localCache;
+
+	// caches of all the threads, pages of them are reclaimed when pool is exhausted
+	private final List<LocalCache> caches=new CopyOnWriteArrayList<>();
+
+	private final int maxSize;
+
+	private final int localCacheSize;
+
+	// numbers of pages created by this pool, guarded by lock
+	private int size;
+
+	private volatile int waiters;
+
+	///////////////////////////////////////////////////////////////////////////
+	// metrics
+	///////////////////////////////////////////////////////////////////////////
 
-	protected Object lock=new Object();
+	private final LongAdder allocations=new LongAdder();
 
-	protected int cursor=0;
+	private final LongAdder recycles=new LongAdder();
 
-	protected Page[] freeList;
+	private final LongAdder localHits=new LongAdder();
+
+	private final LongAdder waits=new LongAdder();
+
+	private volatile long metricsStart=System.nanoTime();
+
+	/**
+	 * Create a free list.
+	 * @param size numbers of pages created at first
+	 * @param maxSize max numbers of pages, pool grows to it when exhausted
+	 * @param localCacheSize max numbers of pages cached by each thread, 0 to disable caches
+	 */
+	public PageFreeList(int size,int maxSize,int localCacheSize){
+		if(size<0 || maxSize<=0 || size>maxSize || localCacheSize<0){
+			throw new IllegalArgumentException("Illegal size of free list: "+size+"/"+maxSize);
+		}
+		this.maxSize=maxSize;
+		this.localCacheSize=localCacheSize;
+		this.freeList=new ArrayDeque<>(size);
+		this.localCache=ThreadLocal.withInitial(() -> {
+			LocalCache cache=new LocalCache();
+			caches.add(cache);
+			return cache;
+		});
+		for (int i = 0; i < size; i++) {
+			freeList.push(new Page((long) i*PAGE_SIZE));
+		}
+		this.size=size;
+	}
 
 	/**
-	 * Create a free list with given capacity.
+	 * Create a free list with given capacity, it never grows.
 	 * @param size memory pool size
 	 */
 	public PageFreeList(int size){
-		freeList=new Page[size];
-		for (int i = 0; i < freeList.length; i++) {
-			freeList[i]=new Page(i*PAGE_SIZE);
-		}
-		cursor=size-1;
+		this(size,size,Configuration.DEFAULT_FREELIST_LOCAL_CACHE_SIZE);
 	}
 
 	/**
-	 * Create a free list with default capacity {@link Configuration} {@code FREELIST_DEFAULT_SIZE}.
+	 * Create a free list with default capacity {@link Configuration} {@code FREELIST_DEFAULT_SIZE}, it grows to
+	 * {@code freelist.option.size} pages.
 	 */
 	public PageFreeList(){
-		int size= Configuration.FREELIST_DEFAULT_SIZE;
-		freeList=new Page[size];
-		for (int i = 0; i < freeList.length; i++) {
-			freeList[i]=new Page(i*PAGE_SIZE);
+		this(Configuration.FREELIST_DEFAULT_SIZE,
+			Integer.parseInt(reader.get(Configuration.FREELIST_OPTION_SIZE,
+				String.valueOf(Configuration.DEFAULT_FREELIST_MAX_SIZE))),
+			Configuration.DEFAULT_FREELIST_LOCAL_CACHE_SIZE);
+	}
+
+	/**
+	 * Get an empty page from memory pool, wait until a page is recycled if pool can not grow any more.
+	 * @return assigned page
+	 */
+	public Page get() throws InterruptedException {
+		Page page=poll();
+		if(page!=null){
+			return page;
+		}
+		lock.lockInterruptibly();
+		try {
+			while ((page=take())==null){
+				waiters++;
+				try {
+					if(reclaim()){
+						continue;
+					}
+					waits.increment();
+					available.await();
+				}finally {
+					waiters--;
+				}
+			}
+		}finally {
+			lock.unlock();
+		}
+		return page;
+	}
+
+	/**
+	 * Get an empty page from memory pool, wait at most given time if pool can not grow any more.
+	 * @return assigned page, or null if no page is recycled in time
+	 */
+	public Page get(long timeout,TimeUnit unit) throws InterruptedException {
+		Page page=poll();
+		if(page!=null){
+			return page;
+		}
+		long nanos=unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while ((page=take())==null){
+				waiters++;
+				try {
+					if(reclaim()){
+						continue;
+					}
+					if(nanos<=0){
+						return null;
+					}
+					waits.increment();
+					nanos=available.awaitNanos(nanos);
+				}finally {
+					waiters--;
+				}
+			}
+		}finally {
+			lock.unlock();
+		}
+		return page;
+	}
+
+	/**
+	 * Get an empty page of given address from memory pool.
+	 * @param address page address
+	 * @return assigned page
+	 */
+	public Page get(long address) throws InterruptedException {
+		return get().reset(address);
+	}
+
+	/**
+	 * Recycle a page to memory pool, its data is dropped and it is handed out as an empty page again.
+	 * Page must not be used by caller any more.
+	 * @param page page got from this pool
+	 */
+	public void recycle(Page page){
+		page.reset(page.getAddress());
+		recycles.increment();
+		if(localCacheSize>0 && localCache.get().offer(page)){
+			return;
+		}
+		lock.lock();
+		try {
+			freeList.push(page);
+			available.signal();
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Move pages cached by current thread to shared pool.
+	 */
+	public void drain(){
+		lock.lock();
+		try {
+			if(localCache.get().drainTo(freeList)>0){
+				available.signalAll();
+			}
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Move pages cached by all the threads to shared pool, called with lock held and waiters counted,
+	 * so a page recycled after its cache is reclaimed goes to shared pool.
+	 * @return true if any page is reclaimed
+	 */
+	private boolean reclaim(){
+		int reclaimed=0;
+		for (LocalCache cache:caches) {
+			reclaimed+=cache.drainTo(freeList);
+		}
+		if(reclaimed>0){
+			logger.debug("Reclaim {} pages from caches of threads.",reclaimed);
+		}
+		return reclaimed>0;
+	}
+
+	// take page from cache of current thread, or from shared pool without waiting
+	private Page poll(){
+		Page page=localCacheSize>0?localCache.get().poll():null;
+		if(page!=null){
+			localHits.increment();
+			allocations.increment();
+			return page;
+		}
+		lock.lock();
+		try {
+			return take();
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	// take page from shared pool or create one, called with lock held
+	private Page take(){
+		Page page=freeList.poll();
+		if(page==null && size<maxSize){
+			page=new Page((long) size*PAGE_SIZE);
+			size++;
+			logger.debug("Free list grows to {} pages.",size);
+		}
+		if(page!=null){
+			allocations.increment();
+		}
+		return page;
+	}
+
+	/**
+	 * Pages cached by a thread. It is only locked by its owner and by a caller reclaiming pages.
+	 */
+	private final class LocalCache {
+
+		private final ArrayDeque<Page> pages=new ArrayDeque<>(localCacheSize);
+
+		synchronized Page poll(){
+			return pages.poll();
+		}
+
+		/**
+		 * Cache a recycled page unless cache is full or someone is waiting for pages.
+		 */
+		synchronized boolean offer(Page page){
+			if(pages.size()>=localCacheSize || waiters>0){
+				return false;
+			}
+			pages.push(page);
+			return true;
+		}
+
+		synchronized int drainTo(ArrayDeque<Page> target){
+			int count=pages.size();
+			while (!pages.isEmpty()){
+				target.push(pages.pop());
+			}
+			return count;
 		}
-		cursor=size-1;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// statics
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return numbers of pages created by this pool
+	 */
+	public int size(){
+		lock.lock();
+		try {
+			return size;
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return numbers of pages in shared pool
+	 */
+	@TestApi
+	public int available(){
+		lock.lock();
+		try {
+			return freeList.size();
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return numbers of pages handed out
+	 */
+	public long getAllocations(){
+		return allocations.sum();
+	}
+
+	public long getRecycles(){
+		return recycles.sum();
+	}
+
+	/**
+	 * @return numbers of pages handed out from thread local caches
+	 */
+	public long getLocalHits(){
+		return localHits.sum();
 	}
 
 	/**
-	 * Get a page from memory pool
-	 * @return assigned pool
+	 * @return numbers of times callers waited for a recycled page
 	 */
-	public Page get(){
-		return freeList[cursor--];
+	public long getWaits(){
+		return waits.sum();
 	}
 
 	/**
-	 * Recycle a page to memory pool.
-	 * This method can only init the page info and change cursor to reallocate.
-	 * If you want to free memory of given page, you need to set page to null, so
-	 * the gc thread will find and clean it.
-	 * @return true if succeed
+	 * @return pages handed out per second since metrics were reset
 	 */
-	public boolean recycle(){
-		if(cursor+1>=freeList.length)
-			return false;
+	public double allocationRate(){
+		long nanos=Math.max(1L,System.nanoTime()-metricsStart);
+		return allocations.sum()*1e9/nanos;
+	}
 
-		freeList[cursor+1]=new Page(cursor*PAGE_SIZE);
-		cursor++;
-		return true;
+	public void resetMetrics(){
+		allocations.reset();
+		recycles.reset();
+		localHits.reset();
+		waits.reset();
+		metricsStart=System.nanoTime();
 	}
 }
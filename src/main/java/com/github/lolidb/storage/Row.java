@@ -2,8 +2,6 @@ package com.github.lolidb.storage;
 
 import com.github.lolidb.catalyst.catalog.Schema;
 import com.github.lolidb.storage.tree.Value;
-import com.github.lolidb.storage.tree.value.BooleanValue;
-import com.github.lolidb.storage.tree.value.LongValue;
 import com.github.lolidb.storage.tree.value.StructValue;
 import com.github.lolidb.utils.collections.BitMap;
 
@@ -175,38 +173,24 @@ public class Row implements Serializable {
 			return -1;
 		}
 		int pos=buffer.position();
-		Value.writeObject(new BooleanValue(row.isDeleted),buffer);
+		buffer.putInt(row.isDeleted?1:0);
 		BitMap.writeObject(row.bitMap,buffer);
 		Value.writeObject(row.data,buffer);
-		Value.writeObject(new LongValue(row.createdTimeStamp),buffer);
-		Value.writeObject(new LongValue(row.lastUpdateTimeStamp),buffer);
+		buffer.putLong(row.createdTimeStamp);
+		buffer.putLong(row.lastUpdateTimeStamp);
 		return pos;
 	}
 
+	/**
+	 * Deserialize {@link Row} at given offset of buffer by the codec compiled from schema.
+	 * @param buffer data buffer
+	 * @param offset offset of row
+	 * @param schema schema of row
+	 * @return row
+	 * @throws IOException
+	 */
 	public static Row readObject(ByteBuffer buffer, int offset, Schema schema) throws IOException {
-		Row row=new Row();
-		int size=0;
-		Value isDeleted = Value.readObject(buffer, offset, BooleanValue.class);
-		row.setDeleted((Boolean) isDeleted.getValue());
-		size+=isDeleted.getRealSize();
-
-		BitMap bitMap = BitMap.readObject(buffer, offset + size);
-		row.setBitMap(bitMap);
-		size+=bitMap.getRealSize();
-
-		Value data = Value.readObject(buffer, offset + size, schema, bitMap);
-		row.setData((StructValue) data);
-		size+=data.getRealSize();
-
-		Value create = Value.readObject(buffer, offset + size, LongValue.class);
-		row.setCreatedTimeStamp((Long) create.getValue());
-		size+=create.getRealSize();
-
-		Value updated = Value.readObject(buffer, offset + size, LongValue.class);
-		row.setCreatedTimeStamp((Long) updated.getValue());
-		size+=create.getRealSize();
-
-		return row;
+		return schema.getCodec().read(buffer,offset);
 	}
 
 	@Override
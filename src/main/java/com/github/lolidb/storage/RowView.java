@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.codec.RowCodec;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.utils.collections.BitMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A flyweight view of a serialized {@link Row}. It reads fields straight from the buffer of {@link Page},
+ * so scanning a page with one view will not create any object per row.
+ * Layout of row is written by {@code Row.writeObject}:
+ * {{{
+ *     removal flag     int
+ *
+ *     null value map   int (bytes of map) + bytes
+ *
+ *     fields           serialized by schema, null value occupies nothing
+ *
+ *     created time     long
+ *
+ *     updated time     long
+ * }}}
+ * Column offsets are taken from {@link Schema} directly when no null value and variable-length column is
+ * in front of the column, or else they are resolved lazily once after the view is repositioned.
+ */
+public class RowView {
+
+	private final Schema schema;
+
+	// codecs of columns, they tell bytes of variable-length columns
+	private final RowCodec codec;
+
+	private final int[] widths;
+
+	private final int[] fixedOffsets;
+
+	// resolved offset of columns in buffer, -1 for null value
+	private final int[] offsets;
+
+	private ByteBuffer buffer;
+
+	private int offset;
+
+	private int dataOffset;
+
+	private boolean hasNull;
+
+	// numbers of columns whose offset has been resolved
+	private int resolved;
+
+	// offset after the last resolved column
+	private int cursor;
+
+	public RowView(Schema schema){
+		this.schema=schema;
+		this.codec=schema.getCodec();
+		this.widths=schema.getColumnWidths();
+		this.fixedOffsets=schema.getFixedOffsets();
+		this.offsets=new int[widths.length];
+	}
+
+	/**
+	 * Reposition this view to the row serialized at given offset of buffer.
+	 * @param buffer data buffer
+	 * @param offset start offset of row
+	 * @return this view
+	 */
+	public RowView wrap(ByteBuffer buffer,int offset){
+		this.buffer=buffer;
+		this.offset=offset;
+		int bitMapOffset=offset+4;
+		this.dataOffset=bitMapOffset+4+buffer.getInt(bitMapOffset);
+		this.hasNull=!BitMap.isEmpty(buffer,bitMapOffset);
+		this.resolved=0;
+		this.cursor=dataOffset;
+		return this;
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	public boolean isDeleted(){
+		return buffer.getInt(offset)!=0;
+	}
+
+	public boolean isNull(int col){
+		return hasNull && BitMap.contains(buffer,offset+4,col);
+	}
+
+	public int getInt(int col){
+		return buffer.getInt(columnOffset(col));
+	}
+
+	public long getLong(int col){
+		return buffer.getLong(columnOffset(col));
+	}
+
+	public short getShort(int col){
+		return buffer.getShort(columnOffset(col));
+	}
+
+	public byte getByte(int col){
+		return buffer.get(columnOffset(col));
+	}
+
+	public char getChar(int col){
+		return buffer.getChar(columnOffset(col));
+	}
+
+	public float getFloat(int col){
+		return buffer.getFloat(columnOffset(col));
+	}
+
+	public double getDouble(int col){
+		return buffer.getDouble(columnOffset(col));
+	}
+
+	public boolean getBoolean(int col){
+		return buffer.getInt(columnOffset(col))!=0;
+	}
+
+	/**
+	 * Get string column. This is the only accessor which need to create object.
+	 * @param col column index
+	 * @return string value
+	 */
+	public String getString(int col){
+		int pos=columnOffset(col);
+		int length=buffer.getInt(pos);
+		char[] chars=new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i]=buffer.getChar(pos+4+2*i);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Get length of string column without reading its content.
+	 * @param col column index
+	 * @return length of string
+	 */
+	public int getStringLength(int col){
+		return buffer.getInt(columnOffset(col));
+	}
+
+	public long getCreatedTimeStamp(){
+		return buffer.getLong(dataEnd());
+	}
+
+	public long getLastUpdateTimeStamp(){
+		return buffer.getLong(dataEnd()+8);
+	}
+
+	/**
+	 * Get bytes of this row in buffer, same as {@code Row.getRealSize}.
+	 * @return row bytes
+	 */
+	public int getRealSize(){
+		return dataEnd()+16-offset;
+	}
+
+	/**
+	 * Get value size of this row, same as {@code Row.getSize}.
+	 * @return value size
+	 */
+	public int getSize(){
+		int size=dataEnd()-dataOffset;
+		for (int i = 0; i < widths.length; i++) {
+			// length mark of variable-length column is not counted
+			if(widths[i]<0 && !isNull(i))
+				size-=4;
+		}
+		return size;
+	}
+
+	/**
+	 * Check whether column equals to given value without deserializing it.
+	 * @param col column index
+	 * @param value compared value
+	 * @return true if same
+	 */
+	public boolean equals(int col,Value value){
+		if(isNull(col))
+			return value instanceof NullValue;
+
+		Class klass=value.getClass();
+		if(klass!=schema.getValues().get(col).getType())
+			return false;
+
+		if (klass== IntegerValue.class){
+			return getInt(col)==((IntegerValue) value).getValue();
+		}else if (klass== LongValue.class){
+			return getLong(col)==((LongValue) value).getValue();
+		}else if(klass== ShortValue.class){
+			return getShort(col)==((ShortValue) value).getValue();
+		}else if(klass== CharacterValue.class){
+			return getChar(col)==((CharacterValue) value).getValue();
+		}else if(klass== FloatValue.class){
+			return Float.compare(getFloat(col),((FloatValue) value).getValue())==0;
+		}else if(klass== DoubleValue.class){
+			return Double.compare(getDouble(col),((DoubleValue) value).getValue())==0;
+		}else if(klass==ByteValue.class){
+			return getByte(col)==((ByteValue) value).getValue();
+		}else if(klass==BooleanValue.class){
+			return getBoolean(col)==((BooleanValue) value).getValue();
+		}else if(klass==StringValue.class){
+			String s=((StringValue) value).getValue();
+			int pos=columnOffset(col);
+			if(buffer.getInt(pos)!=s.length())
+				return false;
+			for (int i = 0; i < s.length(); i++) {
+				if(buffer.getChar(pos+4+2*i)!=s.charAt(i))
+					return false;
+			}
+			return true;
+		}else if(klass==NormalizedValue.class){
+			byte[] bytes=((NormalizedValue) value).getValue();
+			int pos=columnOffset(col);
+			if(buffer.getInt(pos)!=bytes.length)
+				return false;
+			for (int i = 0; i < bytes.length; i++) {
+				if(buffer.get(pos+4+i)!=bytes[i])
+					return false;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Judge whether the viewed row has same value with given row, same as {@code Row.sameAs}.
+	 * @param row other record
+	 * @return whether is same
+	 */
+	public boolean sameAs(Row row){
+		if(isDeleted()!=row.isDeleted())
+			return false;
+
+		BitMap bitMap=row.getBitMap();
+		int bitMapOffset=offset+4;
+		int length=buffer.getInt(bitMapOffset);
+		if(length!=bitMap.size())
+			return false;
+		for (int i = 0; i < widths.length; i++) {
+			if(BitMap.contains(buffer,bitMapOffset,i)!=bitMap.contains(i))
+				return false;
+		}
+
+		List<Value> fields=(List<Value>) row.getData().getValue();
+		if(fields.size()!=widths.length)
+			return false;
+		for (int i = 0; i < widths.length; i++) {
+			if(!equals(i,fields.get(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Deserialize the viewed row.
+	 * @return row
+	 */
+	public Row toRow() throws IOException {
+		return Row.readObject(buffer,offset,schema);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Offset resolving
+	///////////////////////////////////////////////////////////////////////////
+	private int columnOffset(int col){
+		if(!hasNull && fixedOffsets[col]>=0)
+			return dataOffset+fixedOffsets[col];
+		resolve(col+1);
+		return offsets[col];
+	}
+
+	private int dataEnd(){
+		resolve(widths.length);
+		return cursor;
+	}
+
+	private void resolve(int cols){
+		while (resolved<cols){
+			int col=resolved;
+			if(isNull(col)){
+				offsets[col]=-1;
+			}else {
+				offsets[col]=cursor;
+				cursor+=widths[col]>=0?widths[col]:codec.getCodec(col).size(buffer,cursor);
+			}
+			resolved++;
+		}
+	}
+}
@@ -55,14 +55,14 @@ public interface Cache<K,V> {
 
 	/**
 	 * Get max mem-size of this cache.
-	 * @return cache capacity
+	 * @return cache capacity in bytes
 	 */
-	int capacity();
+	long capacity();
 
 
 	/**
 	 * current usage of this cache.
-	 * @return current cache size
+	 * @return current cache size in bytes
 	 */
-	int position();
+	long position();
 }
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.cache;
+
+import com.github.lolidb.storage.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A segment of {@link MemoryCache} bounded by bytes. Each page is weighed by capacity of its buffer,
+ * and pages chosen by {@link EvictionPolicy} are spilled until used bytes fit into capacity again.
+ * Clean pages are preferred as victims, since dropping them needs no I/O. Dirty pages are written
+ * ahead by {@link PageFlusher}, so eviction only writes synchronously when no clean page is found in
+ * the first {@link #SCAN_LIMIT} candidates, which bounds the scan of each eviction.
+ * Pinned pages are never evicted, segment may exceed its capacity when all the other pages are pinned.
+ * Segment is not thread safe, cache must lock it.
+ */
+final class CacheSegment {
+
+	private static final Logger log= LoggerFactory.getLogger(CacheSegment.class);
+
+	// max candidates examined for a clean victim, an unpinned dirty page is taken after that
+	static final int SCAN_LIMIT=16;
+
+	private final Map<Long, Page> pages=new HashMap<>();
+
+	private final EvictionPolicy<Long> policy;
+
+	// max bytes of pages
+	private final long capacity;
+
+	private long usedBytes;
+
+	// numbers of dirty pages written by eviction
+	private long syncFlushes;
+
+	CacheSegment(long capacity,EvictionPolicy<Long> policy){
+		this.capacity=capacity;
+		this.policy=policy;
+	}
+
+	Page get(Long key) {
+		Page page=pages.get(key);
+		if(page!=null){
+			policy.onAccess(key);
+		}
+		return page;
+	}
+
+	/**
+	 * Get and pin page, so the page can not be evicted until it is unpinned.
+	 * @param key page address
+	 * @return pinned page, or {@code null} if not cached
+	 */
+	Page pin(Long key) {
+		Page page=get(key);
+		if(page!=null){
+			page.pin();
+		}
+		return page;
+	}
+
+	Page put(Long key, Page value) {
+		Page old=pages.put(key,value);
+		if(old!=null){
+			usedBytes-=old.getCapacity();
+			policy.onAccess(key);
+		}else {
+			policy.onInsert(key);
+		}
+		usedBytes+=value.getCapacity();
+		evict(key);
+		return old;
+	}
+
+	/**
+	 * Put a page which is pinned before it is admitted.
+	 */
+	Page putAndPin(Long key, Page value) {
+		value.pin();
+		return put(key,value);
+	}
+
+	Page remove(Long key) {
+		Page removal=pages.remove(key);
+		if(removal!=null){
+			usedBytes-=removal.getCapacity();
+			policy.onRemove(key);
+		}
+		return removal;
+	}
+
+	/**
+	 * Drop all the unpinned pages. Pages are spilled, so their frames go back to arena and dirty data is written.
+	 * A pinned page stays in segment with its bytes counted, it is spilled by a later clearing or eviction
+	 * after its user unpins it.
+	 */
+	void clear() {
+		Iterator<Map.Entry<Long,Page>> iterator=pages.entrySet().iterator();
+		while (iterator.hasNext()){
+			Map.Entry<Long,Page> entry=iterator.next();
+			Page page=entry.getValue();
+			if(page.isPinned())
+				continue;
+			try {
+				page.spill();
+			} catch (IOException e) {
+				log.error("Exchange page:{} data to disk on failure.",entry.getKey());
+			}
+			iterator.remove();
+			policy.onRemove(entry.getKey());
+			usedBytes-=page.getCapacity();
+		}
+	}
+
+	/**
+	 * Spill pages chosen by policy until used bytes is not over capacity. The page just admitted
+	 * and pinned pages are never evicted.
+	 */
+	private void evict(Long admitted){
+		while (usedBytes>capacity){
+			VictimFilter filter=new VictimFilter(admitted);
+			Long key=policy.evict(filter);
+			// policy has less than SCAN_LIMIT keys and all the unpinned ones are dirty
+			if(key==null && filter.dirty){
+				key=policy.evict(k -> !k.equals(admitted) && !pages.get(k).isPinned());
+			}
+			if(key==null)
+				break;
+			Page page=pages.remove(key);
+			if(page.isModified()){
+				syncFlushes++;
+			}
+			try {
+				page.spill();
+				log.debug("Page:{} has been spilled.",page);
+			} catch (IOException e) {
+				log.error("Exchange page:{} data to disk on failure.",key);
+			}
+			usedBytes-=page.getCapacity();
+		}
+	}
+
+	/**
+	 * Accept the first clean page, or the first unpinned page after {@link #SCAN_LIMIT} candidates.
+	 * {{{
+	 *     candidates:  dirty pinned dirty ... | dirty clean
+	 *                  <---- SCAN_LIMIT ----> ^
+	 *                                         victim
+	 * }}}
+	 */
+	private final class VictimFilter implements Predicate<Long> {
+
+		private final Long admitted;
+
+		private int examined;
+
+		// whether an unpinned dirty page is passed
+		private boolean dirty;
+
+		VictimFilter(Long admitted){
+			this.admitted=admitted;
+		}
+
+		@Override
+		public boolean test(Long key) {
+			examined++;
+			Page page=pages.get(key);
+			if(key.equals(admitted) || page.isPinned()){
+				return false;
+			}
+			if(!page.isModified() || examined>SCAN_LIMIT){
+				return true;
+			}
+			dirty=true;
+			return false;
+		}
+	}
+
+	/**
+	 * Collect dirty pages of this segment.
+	 * @param dirty collected pages
+	 */
+	void collectDirty(List<Page> dirty){
+		for (Page page:pages.values()) {
+			if(page.isModified()){
+				dirty.add(page);
+			}
+		}
+	}
+
+	int size() {
+		return pages.size();
+	}
+
+	long syncFlushes() {
+		return syncFlushes;
+	}
+
+	long capacity() {
+		return capacity;
+	}
+
+	long usedBytes() {
+		return usedBytes;
+	}
+}
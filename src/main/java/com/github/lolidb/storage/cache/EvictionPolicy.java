@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.cache;
+
+import java.util.function.Predicate;
+
+/**
+ * Policy deciding which entry leaves cache when cache is full. A policy only tracks keys,
+ * values and their bytes are kept by cache. Policy is not thread safe, cache must guard it.
+ * @param <K> key type
+ */
+public interface EvictionPolicy<K> {
+
+	/**
+	 * Record a cache hit of given key.
+	 * @param key resident key
+	 */
+	void onAccess(K key);
+
+	/**
+	 * Record a key admitted into cache.
+	 * @param key new resident key
+	 */
+	void onInsert(K key);
+
+	/**
+	 * Forget a key removed from cache by caller, it is not treated as eviction.
+	 * @param key removal key
+	 */
+	void onRemove(K key);
+
+	/**
+	 * Choose the victim in eviction order and stop tracking it.
+	 * @param evictable filter of keys which can be evicted now
+	 * @return victim key, or {@code null} if no key can be evicted
+	 */
+	K evict(Predicate<? super K> evictable);
+
+	/**
+	 * Forget all the keys.
+	 */
+	void clear();
+}
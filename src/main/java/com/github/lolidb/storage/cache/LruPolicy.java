@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Least recently used policy, the eldest accessed key is evicted first.
+ * A large scan will flush all the hot keys under this policy.
+ */
+public class LruPolicy<K> implements EvictionPolicy<K> {
+
+	// access ordered keys, the eldest is at head
+	private final LinkedHashMap<K,Boolean> keys=new LinkedHashMap<>(16,0.75f,true);
+
+	@Override
+	public void onAccess(K key) {
+		keys.get(key);
+	}
+
+	@Override
+	public void onInsert(K key) {
+		keys.put(key,Boolean.TRUE);
+	}
+
+	@Override
+	public void onRemove(K key) {
+		keys.remove(key);
+	}
+
+	@Override
+	public K evict(Predicate<? super K> evictable) {
+		Iterator<K> iterator = keys.keySet().iterator();
+		while (iterator.hasNext()){
+			K key=iterator.next();
+			if(evictable.test(key)){
+				iterator.remove();
+				return key;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		keys.clear();
+	}
+}
@@ -18,81 +18,310 @@
 package com.github.lolidb.storage.cache;
 
 import com.github.lolidb.storage.Page;
+import com.github.lolidb.utils.Configuration;
+import com.github.lolidb.utils.ConfigureReader;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
- * LruCache to support memory pool.
+ * Page cache striped into several independently locked LRU segments. A page is always cached in
+ * the segment chosen by hash of its address, so lookups of different pages rarely wait for each other.
+ * {{{
+ *     address  ->  hash  ->  segment[i]  (lock + pages + eviction policy)
+ * }}}
+ * Each segment evicts by its own {@link EvictionPolicy}, so the eviction order is exact inside a segment and
+ * approximate for the whole cache. Small caches are not striped, so they keep the exact order.
+ * <p>
+ * Capacity of cache is measured by bytes, and a page is weighed by capacity of its buffer,
+ * so pages of different sizes can be cached together.
  */
 public class MemoryCache implements Cache<Long,Page> {
 
-	private Map<Long, Page> map;
+	private static final ConfigureReader reader=ConfigureReader.getInstance();
 
-	// cache capacity, measured by entries,and an entries represent a page
-	private int capacity;
+	// at least so many pages are kept in each segment, or else eviction order in a segment is meaningless
+	private static final int MIN_SEGMENT_PAGES=16;
 
-	private int position;
+	private final CacheSegment[] segments;
 
+	// cache capacity, measured by bytes
+	private final long capacity;
+
+	private final AtomicLong usedBytes=new AtomicLong();
+
+	private final AtomicLong peakBytes=new AtomicLong();
+
+	/**
+	 * Create a cache sized by option {@code buffer.pool.size}, such as {@code -Dbuffer.pool.size=4GB}.
+	 */
 	public MemoryCache(){
-		this(16);
+		this(StorageUnit.parse(reader.get(Configuration.BUFFER_POOL_SIZE,Configuration.DEFAULT_BUFFER_POOL_SIZE)),
+			StorageUnit.BYTE);
+	}
+
+	/**
+	 * Create a cache which can hold given numbers of default sized pages.
+	 * @param pages max pages
+	 */
+	public MemoryCache(int pages){
+		this(pages,Configuration.DEFAULT_CACHE_CONCURRENCY_LEVEL);
+	}
+
+	public MemoryCache(int pages,int concurrencyLevel){
+		this(pages*Configuration.PAGE_SIZE_BYTES,StorageUnit.BYTE,concurrencyLevel);
+	}
+
+	/**
+	 * Create a cache with readable size, such as {@code "4 GB"}.
+	 * @param size readable size
+	 */
+	public MemoryCache(String size){
+		this(StorageUnit.parse(size),StorageUnit.BYTE);
+	}
+
+	public MemoryCache(long size,StorageUnit unit){
+		this(size,unit,Configuration.DEFAULT_CACHE_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Create a cache with given capacity, and the eviction policy of option {@code buffer.pool.eviction}.
+	 * @param size max size
+	 * @param unit unit of size
+	 * @param concurrencyLevel expected numbers of concurrent threads, it is rounded down to power of 2
+	 */
+	public MemoryCache(long size,StorageUnit unit,int concurrencyLevel){
+		this(size,unit,concurrencyLevel,
+			policyOf(reader.get(Configuration.EVICTION_POLICY,Configuration.DEFAULT_EVICTION_POLICY)));
+	}
+
+	/**
+	 * Create a cache with given capacity and eviction policy.
+	 * @param size max size
+	 * @param unit unit of size
+	 * @param concurrencyLevel expected numbers of concurrent threads, it is rounded down to power of 2
+	 * @param policy creates policy for each segment
+	 */
+	public MemoryCache(long size,StorageUnit unit,int concurrencyLevel,Supplier<EvictionPolicy<Long>> policy){
+		if(size<=0 || concurrencyLevel<=0){
+			throw new IllegalArgumentException("Capacity and concurrency level must be positive.");
+		}
+		this.capacity=unit.toBytes(size);
+		long pages=capacity/Configuration.PAGE_SIZE_BYTES;
+		int stripes=(int) Math.min(concurrencyLevel,Math.max(1,pages/MIN_SEGMENT_PAGES));
+		int segmentBits=31-Integer.numberOfLeadingZeros(stripes);
+		this.segments=new CacheSegment[1<<segmentBits];
+
+		// spread capacity to segments, the first segments take the remainder
+		long segmentCapacity=capacity>>>segmentBits;
+		long remainder=capacity-(segmentCapacity<<segmentBits);
+		for (int i = 0; i < segments.length; i++) {
+			segments[i]=new CacheSegment(i<remainder?segmentCapacity+1:segmentCapacity,policy.get());
+		}
+	}
+
+	/**
+	 * Get policy by name, {@code lru} or {@code 2q}.
+	 * @param name policy name
+	 * @return policy supplier
+	 */
+	public static Supplier<EvictionPolicy<Long>> policyOf(String name){
+		switch (name.toLowerCase(Locale.ROOT)){
+			case "lru":
+				return LruPolicy::new;
+			case "2q":
+				return TwoQueuePolicy::new;
+			default:
+				throw new IllegalArgumentException("Unknown eviction policy: "+name);
+		}
 	}
 
-	public MemoryCache(int capacity){
-		this.position=0;
-		this.capacity=capacity;
-		this.map=new LruHashMap(capacity);
+	private CacheSegment segmentFor(Long key){
+		// page addresses are aligned by page size, so hash by page number to spread adjacent pages
+		long page=key>>>Configuration.PAGE_SIZE_BITS;
+		int hash=(int) (page^(page>>>32));
+		hash^=hash>>>16;
+		return segments[hash&(segments.length-1)];
 	}
 
 	@Override
 	public Page get(Long key) {
 		Objects.requireNonNull(key,"Key can not be null.");
-		synchronized (this){
-			return map.get(key);
+		CacheSegment segment=segmentFor(key);
+		synchronized (segment){
+			return segment.get(key);
 		}
 	}
 
+	/**
+	 * Get and pin page of given address. The page will not be evicted until handle is closed,
+	 * so its buffer can be read in place:
+	 * {{{
+	 *     try (PageHandle handle = cache.pin(address)) {
+	 *         Page page = handle.getPage();
+	 *     }
+	 * }}}
+	 * @param key page address
+	 * @return handle of pinned page, or {@code null} if page is not cached
+	 */
+	public PageHandle pin(Long key) {
+		Objects.requireNonNull(key,"Key can not be null.");
+		CacheSegment segment=segmentFor(key);
+		Page page;
+		synchronized (segment){
+			page=segment.pin(key);
+		}
+		return page==null?null:new PageHandle(page);
+	}
+
 	@Override
 	public Page put(Long key, Page value) {
 		Objects.requireNonNull(key,"Key can not be null.");
-		synchronized (this){
-			Page val= map.put(key,value);
-			// when position equals to capacity, it will replace a entry in map, just keep position
-			if(position<capacity && val!=null){
-				position++;
-			}
-			return val;
+		Objects.requireNonNull(value,"Value can not be null.");
+		CacheSegment segment=segmentFor(key);
+		Page old;
+		long delta;
+		synchronized (segment){
+			long before=segment.usedBytes();
+			old=segment.put(key,value);
+			delta=segment.usedBytes()-before;
 		}
+		account(delta);
+		return old;
+	}
+
+	/**
+	 * Put page and pin it in one go, so the page can not be evicted by a concurrent {@link #put(Long, Page)}
+	 * of the same segment before it is pinned.
+	 * @param key page address
+	 * @param value cached page
+	 * @return handle of pinned page
+	 */
+	public PageHandle putAndPin(Long key, Page value) {
+		Objects.requireNonNull(key,"Key can not be null.");
+		Objects.requireNonNull(value,"Value can not be null.");
+		CacheSegment segment=segmentFor(key);
+		long delta;
+		synchronized (segment){
+			long before=segment.usedBytes();
+			segment.putAndPin(key,value);
+			delta=segment.usedBytes()-before;
+		}
+		account(delta);
+		return new PageHandle(value);
 	}
 
 	@Override
 	public Page remove(Long key) {
 		Objects.requireNonNull(key,"Key can not be null.");
-
-		if(position==0)
-			return null;
-
-		synchronized (this){
-			Page removal = map.remove(key);
-			if(removal!=null){
-				position--;
-			}
-			return removal;
+		CacheSegment segment=segmentFor(key);
+		Page removal;
+		synchronized (segment){
+			removal=segment.remove(key);
+		}
+		if(removal!=null){
+			account(-removal.getCapacity());
 		}
+		return removal;
 	}
 
+	/**
+	 * Spill and drop all the pages except pinned ones, which stay cached until they are unpinned.
+	 */
 	@Override
 	public void clear() {
-		map.clear();
+		for (CacheSegment segment:segments) {
+			long delta;
+			synchronized (segment){
+				long before=segment.usedBytes();
+				segment.clear();
+				delta=segment.usedBytes()-before;
+			}
+			account(delta);
+		}
+	}
+
+	private void account(long delta){
+		long used=usedBytes.addAndGet(delta);
+		long peak=peakBytes.get();
+		while (used>peak && !peakBytes.compareAndSet(peak,used)){
+			peak=peakBytes.get();
+		}
 	}
 
 	@Override
-	public int capacity() {
+	public long capacity() {
 		return capacity;
 	}
 
+	/**
+	 * Get bytes of pages in this cache.
+	 * @return used bytes
+	 */
 	@Override
-	public int position() {
-		return position;
+	public long position() {
+		return usedBytes.get();
+	}
+
+	/**
+	 * Get max bytes of pages which has been held in this cache at the same time.
+	 * @return peak bytes
+	 */
+	public long peak() {
+		return peakBytes.get();
+	}
+
+	/**
+	 * Get a snapshot of dirty pages in this cache.
+	 * @return dirty pages
+	 */
+	public List<Page> dirtyPages(){
+		List<Page> dirty=new ArrayList<>();
+		for (CacheSegment segment:segments) {
+			synchronized (segment){
+				segment.collectDirty(dirty);
+			}
+		}
+		return dirty;
+	}
+
+	/**
+	 * Get numbers of dirty pages written by eviction itself, which means flusher did not keep up.
+	 * @return numbers of synchronous flushes
+	 */
+	public long syncFlushes(){
+		long flushes=0;
+		for (CacheSegment segment:segments) {
+			synchronized (segment){
+				flushes+=segment.syncFlushes();
+			}
+		}
+		return flushes;
+	}
+
+	/**
+	 * Get numbers of cached pages.
+	 * @return page numbers
+	 */
+	public int size(){
+		int size=0;
+		for (CacheSegment segment:segments) {
+			synchronized (segment){
+				size+=segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Get numbers of segments, which is the max numbers of threads accessing this cache without waiting.
+	 * @return numbers of segments
+	 */
+	public int concurrencyLevel(){
+		return segments.length;
 	}
 }
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.cache;
+
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.utils.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer of dirty pages in {@link MemoryCache}. It checks dirty bytes of cache periodically,
+ * when they are over the high watermark, dirty pages are written by a pool of threads until dirty bytes
+ * are under the low watermark. Written pages stay in cache as clean pages, so eviction can usually drop
+ * a page without I/O.
+ * {{{
+ *     dirty bytes / capacity > high watermark  ->  flush pages  ->  dirty bytes / capacity <= low watermark
+ * }}}
+ */
+public class PageFlusher implements Closeable {
+
+	private static final Logger log= LoggerFactory.getLogger(PageFlusher.class);
+
+	private final MemoryCache cache;
+
+	private final double highWatermark;
+
+	private final double lowWatermark;
+
+	private final long interval;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ExecutorService workers;
+
+	private final int threads;
+
+	private final AtomicLong flushedPages=new AtomicLong();
+
+	public PageFlusher(MemoryCache cache){
+		this(cache,Configuration.DEFAULT_FLUSHER_THREADS,Configuration.DEFAULT_DIRTY_HIGH_WATERMARK,
+			Configuration.DEFAULT_DIRTY_LOW_WATERMARK,Configuration.DEFAULT_FLUSH_INTERVAL_MS);
+	}
+
+	/**
+	 * Create flusher of cache, it does not work until {@link #start()}.
+	 * @param cache page cache
+	 * @param threads numbers of writing threads
+	 * @param highWatermark ratio of dirty bytes to start flushing
+	 * @param lowWatermark ratio of dirty bytes to stop flushing
+	 * @param intervalMillis interval of checking dirty bytes
+	 */
+	public PageFlusher(MemoryCache cache,int threads,double highWatermark,double lowWatermark,long intervalMillis){
+		if(threads<=0 || lowWatermark<0 || lowWatermark>=highWatermark || highWatermark>1){
+			throw new IllegalArgumentException("Illegal flusher options, threads: "+threads
+				+", watermarks: "+lowWatermark+"-"+highWatermark);
+		}
+		this.cache=cache;
+		this.threads=threads;
+		this.highWatermark=highWatermark;
+		this.lowWatermark=lowWatermark;
+		this.interval=intervalMillis;
+		this.scheduler=Executors.newSingleThreadScheduledExecutor(daemon("page-flusher"));
+		this.workers=Executors.newFixedThreadPool(threads,daemon("page-flusher-worker"));
+	}
+
+	private static ThreadFactory daemon(String name){
+		AtomicInteger id=new AtomicInteger();
+		return runnable -> {
+			Thread thread=new Thread(runnable,name+"-"+id.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	public PageFlusher start(){
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				flush();
+			} catch (Throwable e) {
+				log.error("Flush dirty pages on failure.",e);
+			}
+		},interval,interval,TimeUnit.MILLISECONDS);
+		return this;
+	}
+
+	/**
+	 * Check dirty bytes once, and write dirty pages when they are over the high watermark.
+	 * @return numbers of written pages
+	 */
+	public int flush() throws InterruptedException {
+		List<Page> dirty=cache.dirtyPages();
+		long dirtyBytes=0;
+		for (Page page:dirty) {
+			dirtyBytes+=page.getCapacity();
+		}
+		if(dirtyBytes<=cache.capacity()*highWatermark){
+			return 0;
+		}
+
+		// choose pages until the rest dirty bytes are under low watermark
+		long target=(long) (cache.capacity()*lowWatermark);
+		int pages=0;
+		while (pages<dirty.size() && dirtyBytes>target){
+			dirtyBytes-=dirty.get(pages++).getCapacity();
+		}
+
+		List<Callable<Integer>> tasks=new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			int from=i;
+			int to=pages;
+			tasks.add(() -> {
+				int written=0;
+				for (int j = from; j < to; j+=threads) {
+					try {
+						if(dirty.get(j).flush())
+							written++;
+					} catch (IOException e) {
+						log.error("Write dirty page:{} on failure.",dirty.get(j),e);
+					}
+				}
+				return written;
+			});
+		}
+		int written=0;
+		for (Future<Integer> future:workers.invokeAll(tasks)) {
+			try {
+				written+=future.get();
+			} catch (ExecutionException e) {
+				log.error("Flush dirty pages on failure.",e.getCause());
+			}
+		}
+		flushedPages.addAndGet(written);
+		log.debug("{} dirty pages have been flushed.",written);
+		return written;
+	}
+
+	/**
+	 * Get numbers of pages written by this flusher.
+	 * @return written pages
+	 */
+	public long flushedPages(){
+		return flushedPages.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		scheduler.shutdown();
+		workers.shutdown();
+		try {
+			scheduler.awaitTermination(interval*10,TimeUnit.MILLISECONDS);
+			workers.awaitTermination(interval*10,TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
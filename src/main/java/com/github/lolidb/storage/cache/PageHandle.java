@@ -18,45 +18,33 @@
 package com.github.lolidb.storage.cache;
 
 import com.github.lolidb.storage.Page;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
- * Extend {@link java.util.LinkedHashMap} to better support lru policy.
+ * Handle of a page pinned in {@link MemoryCache}. The page can not be evicted until handle is closed,
+ * so it is designed for try-with-resources. Closing a handle more than once releases the pin only once.
  */
-public class LruHashMap extends LinkedHashMap<Long, Page> {
+public final class PageHandle implements AutoCloseable {
 
-	private static final Logger log= LoggerFactory.getLogger(LruHashMap.class);
+	private final Page page;
 
-	private int capacity;
+	private boolean closed;
 
-	public LruHashMap(){
-		this(16);
+	PageHandle(Page page){
+		this.page=page;
 	}
 
-	public LruHashMap(int capacity){
-		super(capacity,0.75f,true);
-		this.capacity=capacity;
+	public Page getPage() {
+		if(closed){
+			throw new IllegalStateException("Page handle has been closed.");
+		}
+		return page;
 	}
 
-
-
 	@Override
-	protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
-		boolean flag=size()>capacity;
-		if(flag){
-			try {
-				eldest.getValue().spill();
-				log.info("Page:({},{}) has been spilled.",eldest.getValue().toString());
-			} catch (IOException e) {
-				log.error("Exchange page:{} data to disk on failure.",eldest.getKey());
-			}
+	public void close() {
+		if(!closed){
+			closed=true;
+			page.unpin();
 		}
-		return flag;
 	}
 }
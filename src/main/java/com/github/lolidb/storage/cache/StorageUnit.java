@@ -15,12 +15,70 @@
  * limitations under the License.
  */
 
-
 package com.github.lolidb.storage.cache;
 
+import java.util.Locale;
+
+/**
+ * Unit of memory size, such as size of buffer pool.
+ */
 public enum StorageUnit {
-	BYTE,
-	KBYTE,
-	MBYTE,
-	GBYTE
+	BYTE(1L,"B"),
+	KBYTE(1L<<10,"KB"),
+	MBYTE(1L<<20,"MB"),
+	GBYTE(1L<<30,"GB");
+
+	private final long bytes;
+
+	private final String symbol;
+
+	StorageUnit(long bytes,String symbol){
+		this.bytes=bytes;
+		this.symbol=symbol;
+	}
+
+	/**
+	 * Convert size of this unit to bytes.
+	 * @param size size of this unit
+	 * @return bytes
+	 */
+	public long toBytes(long size){
+		if(size>Long.MAX_VALUE/bytes){
+			throw new IllegalArgumentException("Size overflow: "+size+" "+symbol);
+		}
+		return size*bytes;
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * Parse readable size, such as {@code "4 GB"}, {@code "512MB"}, {@code "64k"} or {@code "8192"}, into bytes.
+	 * A size without unit is measured by bytes.
+	 * @param size readable size
+	 * @return bytes
+	 */
+	public static long parse(String size){
+		String s=size.trim().toUpperCase(Locale.ROOT);
+		int end=0;
+		while (end<s.length() && Character.isDigit(s.charAt(end))){
+			end++;
+		}
+		if(end==0){
+			throw new IllegalArgumentException("Illegal storage size: "+size);
+		}
+		long value=Long.parseLong(s.substring(0,end));
+		String symbol=s.substring(end).trim();
+		if(symbol.isEmpty()){
+			return value;
+		}
+		for (StorageUnit unit:values()) {
+			// both "GB" and "G" are accepted
+			if(unit.symbol.equals(symbol) || (unit!=BYTE && unit.symbol.substring(0,1).equals(symbol))){
+				return unit.toBytes(value);
+			}
+		}
+		throw new IllegalArgumentException("Illegal storage unit: "+size);
+	}
 }
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.function.Predicate;
+
+/**
+ * Scan resistant 2Q policy (Johnson and Shasha). New keys enter a small FIFO queue first,
+ * and are only promoted to the main LRU queue when they are referenced again after leaving it.
+ * {{{
+ *     miss                     -> a1in (fifo, resident)  -> evicted -> a1out (fifo, ghost keys only)
+ *     a1in hit, correlated     -> nothing, key keeps its place in a1in
+ *     a1in hit, not correlated -> am (lru, resident)
+ *     a1out hit                -> am
+ *     am hit                   -> most recently used of am
+ * }}}
+ * A hit in {@code a1in} is a correlated reference if it comes within a window of accesses after the key
+ * is inserted, such as a scan reading several rows of a page one by one, so it does not promote the key.
+ * The window is the share of {@code a1in} in resident keys. Keys of a scan pass through {@code a1in} and
+ * never push hot keys out of {@code am}, and a hot key is promoted when it is referenced again after
+ * the window, even if the whole hot set fits in {@code a1in} and never leaves it.
+ */
+public class TwoQueuePolicy<K> implements EvictionPolicy<K> {
+
+	public static final double DEFAULT_IN_RATIO=0.25;
+
+	public static final double DEFAULT_OUT_RATIO=0.5;
+
+	// ghost queue keeps at least so many keys
+	private static final int MIN_GHOSTS=16;
+
+	private final double inRatio;
+
+	private final double outRatio;
+
+	// keys of a1in and the access clock when they are inserted
+	private final LinkedHashMap<K,Long> in=new LinkedHashMap<>();
+
+	private final LinkedHashSet<K> out=new LinkedHashSet<>();
+
+	private final LinkedHashMap<K,Boolean> main=new LinkedHashMap<>(16,0.75f,true);
+
+	// numbers of accesses and insertions
+	private long clock;
+
+	public TwoQueuePolicy(){
+		this(DEFAULT_IN_RATIO,DEFAULT_OUT_RATIO);
+	}
+
+	/**
+	 * Create 2Q policy.
+	 * @param inRatio share of resident keys kept in {@code a1in}
+	 * @param outRatio numbers of ghost keys relative to resident keys
+	 */
+	public TwoQueuePolicy(double inRatio,double outRatio){
+		this.inRatio=inRatio;
+		this.outRatio=outRatio;
+	}
+
+	@Override
+	public void onAccess(K key) {
+		clock++;
+		Long inserted=in.get(key);
+		if(inserted==null){
+			main.get(key);
+			return;
+		}
+		int window=Math.max(1,(int) ((in.size()+main.size())*inRatio));
+		if(clock-inserted>window){
+			in.remove(key);
+			main.put(key,Boolean.TRUE);
+		}
+	}
+
+	@Override
+	public void onInsert(K key) {
+		clock++;
+		if(out.remove(key)){
+			main.put(key,Boolean.TRUE);
+		}else if(!main.containsKey(key)){
+			in.put(key,clock);
+		}
+	}
+
+	@Override
+	public void onRemove(K key) {
+		if(in.remove(key)==null){
+			main.remove(key);
+		}
+	}
+
+	@Override
+	public K evict(Predicate<? super K> evictable) {
+		int resident=in.size()+main.size();
+		K victim=null;
+		if(in.size()>Math.max(1,(int) (resident*inRatio))){
+			victim=evictIn(evictable);
+		}
+		if(victim==null){
+			victim=first(main.keySet().iterator(),evictable);
+		}
+		if(victim==null){
+			victim=evictIn(evictable);
+		}
+		return victim;
+	}
+
+	private K evictIn(Predicate<? super K> evictable){
+		K victim=first(in.keySet().iterator(),evictable);
+		if(victim!=null){
+			out.add(victim);
+			int maxGhosts=Math.max(MIN_GHOSTS,(int) ((in.size()+main.size())*outRatio));
+			Iterator<K> iterator=out.iterator();
+			while (out.size()>maxGhosts){
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		return victim;
+	}
+
+	private K first(Iterator<K> iterator,Predicate<? super K> evictable){
+		while (iterator.hasNext()){
+			K key=iterator.next();
+			if(evictable.test(key)){
+				iterator.remove();
+				return key;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		in.clear();
+		out.clear();
+		main.clear();
+	}
+}
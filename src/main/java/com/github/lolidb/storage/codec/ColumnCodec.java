@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.codec;
+
+import com.github.lolidb.exception.IllegalFormatException;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer of a single column type. A codec is resolved once by type of {@link Value},
+ * so serializing a field do not need to check its class any more.
+ * Serialized format of each type is the same as before:
+ * {{{
+ *     byte         1 byte
+ *     short/char   2 bytes
+ *     int/float    4 bytes
+ *     boolean      4 bytes (1 for true, 0 for false)
+ *     long/double  8 bytes
+ *     string       length (4 bytes) + 2 bytes for each char
+ *     normalized   length (4 bytes) + bytes
+ *     null         nothing
+ * }}}
+ */
+public abstract class ColumnCodec {
+
+	private static final ClassValue<ColumnCodec> CODECS=new ClassValue<ColumnCodec>() {
+		@Override
+		protected ColumnCodec computeValue(Class<?> klass) {
+			return create(klass);
+		}
+	};
+
+	/**
+	 * Get codec of given {@link Value} type.
+	 * @param klass value type
+	 * @return codec, or {@code null} if this type is not a simple type
+	 */
+	public static ColumnCodec of(Class klass){
+		return CODECS.get(klass);
+	}
+
+	private static ColumnCodec create(Class klass){
+		if (klass== IntegerValue.class){
+			return new IntegerCodec();
+		}else if (klass== LongValue.class){
+			return new LongCodec();
+		}else if(klass== ShortValue.class){
+			return new ShortCodec();
+		}else if(klass== CharacterValue.class){
+			return new CharacterCodec();
+		}else if(klass== FloatValue.class){
+			return new FloatCodec();
+		}else if(klass== DoubleValue.class){
+			return new DoubleCodec();
+		}else if(klass==ByteValue.class){
+			return new ByteCodec();
+		}else if(klass==BooleanValue.class){
+			return new BooleanCodec();
+		}else if(klass==StringValue.class){
+			return new StringCodec();
+		}else if(klass==NullValue.class){
+			return new NullCodec();
+		}else if(klass==NormalizedValue.class){
+			return new NormalizedCodec();
+		}
+		return null;
+	}
+
+	/**
+	 * Write value at current position of buffer.
+	 * @param value value of this codec type
+	 * @param buffer data buffer
+	 */
+	public abstract void write(Value value,ByteBuffer buffer);
+
+	/**
+	 * Read value at given offset of buffer.
+	 * @param buffer data buffer
+	 * @param offset offset in buffer
+	 * @return de-serialized value
+	 */
+	public abstract Value read(ByteBuffer buffer,int offset);
+
+	/**
+	 * Get bytes of value serialized at given offset of buffer.
+	 * @param buffer data buffer
+	 * @param offset offset in buffer
+	 * @return serialized bytes
+	 */
+	public int size(ByteBuffer buffer,int offset){
+		return fixedSize();
+	}
+
+	/**
+	 * Get serialized bytes of this type.
+	 * @return fixed bytes of this type, or -1 if length of this type is not fixed
+	 */
+	public abstract int fixedSize();
+
+	/**
+	 * Convert java object to value of this type.
+	 * @param obj java object or value
+	 * @return value
+	 */
+	public abstract Value parse(Object obj);
+
+	///////////////////////////////////////////////////////////////////////////
+	// Codec of simple types
+	///////////////////////////////////////////////////////////////////////////
+	static final class IntegerCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putInt(((IntegerValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new IntegerValue(buffer.getInt(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 4;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return IntegerValue.parse(obj);
+		}
+	}
+
+	static final class LongCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putLong(((LongValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new LongValue(buffer.getLong(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 8;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return LongValue.parse(obj);
+		}
+	}
+
+	static final class ShortCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putShort(((ShortValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new ShortValue(buffer.getShort(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 2;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return ShortValue.parse(obj);
+		}
+	}
+
+	static final class CharacterCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putChar(((CharacterValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new CharacterValue(buffer.getChar(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 2;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return CharacterValue.parse(obj);
+		}
+	}
+
+	static final class FloatCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putFloat(((FloatValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new FloatValue(buffer.getFloat(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 4;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return FloatValue.parse(obj);
+		}
+	}
+
+	static final class DoubleCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putDouble(((DoubleValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new DoubleValue(buffer.getDouble(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 8;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return DoubleValue.parse(obj);
+		}
+	}
+
+	static final class ByteCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.put(((ByteValue) value).getValue());
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new ByteValue(buffer.get(offset));
+		}
+
+		@Override
+		public int fixedSize() {
+			return 1;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return ByteValue.parse(obj);
+		}
+	}
+
+	static final class BooleanCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			buffer.putInt(((BooleanValue) value).getValue()?1:0);
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new BooleanValue(buffer.getInt(offset)!=0);
+		}
+
+		@Override
+		public int fixedSize() {
+			return 4;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return BooleanValue.parse(obj);
+		}
+	}
+
+	static final class StringCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			String s = ((StringValue) value).getValue();
+			buffer.putInt(s.length());
+			for (int i = 0; i < s.length(); i++) {
+				buffer.putChar(s.charAt(i));
+			}
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			int length=buffer.getInt(offset);
+			char[] chars=new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i]=buffer.getChar(offset+4+2*i);
+			}
+			return new StringValue(new String(chars));
+		}
+
+		@Override
+		public int size(ByteBuffer buffer, int offset) {
+			return 4+2*buffer.getInt(offset);
+		}
+
+		@Override
+		public int fixedSize() {
+			return -1;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return StringValue.parse(obj);
+		}
+	}
+
+	static final class NullCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			// nop
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			return new NullValue();
+		}
+
+		@Override
+		public int fixedSize() {
+			return 0;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			return NullValue.parse(obj);
+		}
+	}
+
+	static final class NormalizedCodec extends ColumnCodec {
+
+		@Override
+		public void write(Value value, ByteBuffer buffer) {
+			byte[] bytes=((NormalizedValue) value).getValue();
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+
+		@Override
+		public Value read(ByteBuffer buffer, int offset) {
+			byte[] bytes=new byte[buffer.getInt(offset)];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i]=buffer.get(offset+4+i);
+			}
+			return new NormalizedValue(bytes);
+		}
+
+		@Override
+		public int size(ByteBuffer buffer, int offset) {
+			return 4+buffer.getInt(offset);
+		}
+
+		@Override
+		public int fixedSize() {
+			return -1;
+		}
+
+		@Override
+		public Value parse(Object obj) {
+			if(obj instanceof NormalizedValue)
+				return (NormalizedValue) obj;
+			if(obj instanceof byte[])
+				return new NormalizedValue((byte[]) obj);
+			throw new IllegalFormatException(String.format("Illegal format:%s for normalized value",obj.getClass().getName()));
+		}
+	}
+}
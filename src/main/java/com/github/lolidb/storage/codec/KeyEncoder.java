@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage.codec;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.exception.IllegalFormatException;
+import com.github.lolidb.storage.Row;
+import com.github.lolidb.storage.RowView;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.utils.collections.BitMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encoder of normalized index keys. Columns of a key are encoded into bytes which compare with unsigned
+ * byte comparison in the same order as the columns compare one by one, so a composite key becomes a single
+ * {@link NormalizedValue}. Each column is a null flag followed by its bytes:
+ * {{{
+ *     null flag            1 byte, 0x00 before values and 0x02 after values, 0x01 for a value
+ *     byte/short/int/long  big endian with sign bit flipped
+ *     char                 big endian
+ *     float/double         big endian IEEE bits, all bits flipped if negative, or else sign bit flipped
+ *     boolean              1 byte, 0 for false and 1 for true
+ *     string               UTF-16 big endian, 0x00 is escaped as 0x00 0xff, ended by 0x00 0x01
+ *     null                 nothing behind null flag
+ * }}}
+ * Strings are ended by a terminator less than any escaped char, so a string is ordered before the strings
+ * it is a prefix of, and the columns behind it never take part in comparing it. Order of chars is the same
+ * as {@link String#compareTo(String)}. Floats compare like {@link Float#compare(float, float)}.
+ */
+public final class KeyEncoder {
+
+	private static final byte NULL_FIRST=0x00;
+
+	private static final byte NOT_NULL=0x01;
+
+	private static final byte NULL_LAST=0x02;
+
+	private final Class[] types;
+
+	// index of key columns in schema, or null if encoder is not compiled from a schema
+	private final int[] columns;
+
+	private final byte nullFlag;
+
+	// bytes of encoding key, reused by encoder
+	private byte[] buffer=new byte[64];
+
+	private int position;
+
+	/**
+	 * Create an encoder of key columns in schema, nulls are ordered first.
+	 * @param schema schema of rows
+	 * @param columns index of key columns in schema
+	 */
+	public KeyEncoder(Schema schema,int... columns){
+		this(schema,true,columns);
+	}
+
+	public KeyEncoder(Schema schema,boolean nullsFirst,int... columns){
+		List<ColumnDescription> cols=schema.getValues();
+		this.types=new Class[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			types[i]=cols.get(columns[i]).getType();
+		}
+		this.columns=columns.clone();
+		this.nullFlag=nullsFirst?NULL_FIRST:NULL_LAST;
+		check();
+	}
+
+	/**
+	 * Create an encoder of key columns of given types, nulls are ordered first.
+	 * @param types type of key columns
+	 */
+	public KeyEncoder(Class... types){
+		this(true,types);
+	}
+
+	public KeyEncoder(boolean nullsFirst,Class... types){
+		this.types=types.clone();
+		this.columns=null;
+		this.nullFlag=nullsFirst?NULL_FIRST:NULL_LAST;
+		check();
+	}
+
+	private void check(){
+		for (Class type:types) {
+			if(ColumnCodec.of(type)==null || type==NullValue.class || type==NormalizedValue.class){
+				throw new IllegalFormatException("Unsupported key column type: "+type);
+			}
+		}
+	}
+
+	public int size(){
+		return types.length;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Encoding
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Encode a search key. A key of one column is the value itself, and a composite key is a {@link StructValue}
+	 * of leading key columns, {@link NullValue} is encoded as null. A key of leading columns is a prefix
+	 * of the keys which start with it, see {@link NormalizedValue#startsWith(NormalizedValue)}.
+	 * @param key search key
+	 * @return normalized key
+	 */
+	public NormalizedValue encode(Value key){
+		position=0;
+		if(key instanceof StructValue){
+			List<Value> fields=(List<Value>) key.getValue();
+			if(fields.size()>types.length){
+				throw new IllegalFormatException("Key has more fields than "+types.length+" columns.");
+			}
+			for (int i = 0; i < fields.size(); i++) {
+				write(i,fields.get(i));
+			}
+		}else {
+			write(0,key);
+		}
+		return new NormalizedValue(Arrays.copyOf(buffer,position));
+	}
+
+	/**
+	 * Encode key columns of a row, null columns are taken from {@link BitMap} of row.
+	 * @param row data row
+	 * @return normalized key
+	 */
+	public NormalizedValue encode(Row row){
+		return encode(row.getData(),row.getBitMap());
+	}
+
+	/**
+	 * Encode key columns of row data.
+	 * @param data fields of row
+	 * @param bitMap null value map of row
+	 * @return normalized key
+	 */
+	public NormalizedValue encode(StructValue data,BitMap bitMap){
+		checkSchema();
+		List<Value> fields=(List<Value>) data.getValue();
+		position=0;
+		for (int i = 0; i < columns.length; i++) {
+			int col=columns[i];
+			write(i,bitMap!=null && bitMap.contains(col)?null:fields.get(col));
+		}
+		return new NormalizedValue(Arrays.copyOf(buffer,position));
+	}
+
+	/**
+	 * Encode key columns of a serialized row without deserializing it.
+	 * @param view view of row
+	 * @return normalized key
+	 */
+	public NormalizedValue encode(RowView view){
+		checkSchema();
+		position=0;
+		for (int i = 0; i < columns.length; i++) {
+			int col=columns[i];
+			if(view.isNull(col)){
+				writeNull();
+				continue;
+			}
+			ensure(1);
+			buffer[position++]=NOT_NULL;
+			Class type=types[i];
+			if(type==IntegerValue.class){
+				writeInt(view.getInt(col));
+			}else if(type==LongValue.class){
+				writeLong(view.getLong(col));
+			}else if(type==ShortValue.class){
+				writeShort(view.getShort(col));
+			}else if(type==CharacterValue.class){
+				writeChar(view.getChar(col));
+			}else if(type==FloatValue.class){
+				writeFloat(view.getFloat(col));
+			}else if(type==DoubleValue.class){
+				writeDouble(view.getDouble(col));
+			}else if(type==ByteValue.class){
+				writeByte(view.getByte(col));
+			}else if(type==BooleanValue.class){
+				writeBoolean(view.getBoolean(col));
+			}else {
+				writeString(view.getString(col));
+			}
+		}
+		return new NormalizedValue(Arrays.copyOf(buffer,position));
+	}
+
+	private void checkSchema(){
+		if(columns==null){
+			throw new IllegalStateException("Key encoder is not compiled from a schema.");
+		}
+	}
+
+	/**
+	 * Write a column of key, null or {@link NullValue} is written as null.
+	 */
+	private void write(int index,Value value){
+		if(value==null || value instanceof NullValue){
+			writeNull();
+			return;
+		}
+		Class type=types[index];
+		if(value.getClass()!=type){
+			throw new IllegalFormatException("Column "+index+" of key must be "+type.getSimpleName()+": "+value);
+		}
+		ensure(1);
+		buffer[position++]=NOT_NULL;
+		if(type==IntegerValue.class){
+			writeInt(((IntegerValue) value).getValue());
+		}else if(type==LongValue.class){
+			writeLong(((LongValue) value).getValue());
+		}else if(type==ShortValue.class){
+			writeShort(((ShortValue) value).getValue());
+		}else if(type==CharacterValue.class){
+			writeChar(((CharacterValue) value).getValue());
+		}else if(type==FloatValue.class){
+			writeFloat(((FloatValue) value).getValue());
+		}else if(type==DoubleValue.class){
+			writeDouble(((DoubleValue) value).getValue());
+		}else if(type==ByteValue.class){
+			writeByte(((ByteValue) value).getValue());
+		}else if(type==BooleanValue.class){
+			writeBoolean(((BooleanValue) value).getValue());
+		}else {
+			writeString(((StringValue) value).getValue());
+		}
+	}
+
+	private void writeNull(){
+		ensure(1);
+		buffer[position++]=nullFlag;
+	}
+
+	private void writeByte(byte v){
+		ensure(1);
+		buffer[position++]=(byte) (v^0x80);
+	}
+
+	private void writeBoolean(boolean v){
+		ensure(1);
+		buffer[position++]=(byte) (v?1:0);
+	}
+
+	private void writeShort(short v){
+		writeChar((char) (v^0x8000));
+	}
+
+	private void writeChar(char v){
+		ensure(2);
+		buffer[position++]=(byte) (v>>>8);
+		buffer[position++]=(byte) v;
+	}
+
+	private void writeInt(int v){
+		writeBits(v^Integer.MIN_VALUE);
+	}
+
+	private void writeLong(long v){
+		writeBits(v^Long.MIN_VALUE);
+	}
+
+	private void writeFloat(float v){
+		// NaN is canonical, and larger than any other float
+		int bits=Float.floatToIntBits(v);
+		writeBits(bits<0?~bits:bits^Integer.MIN_VALUE);
+	}
+
+	private void writeDouble(double v){
+		long bits=Double.doubleToLongBits(v);
+		writeBits(bits<0?~bits:bits^Long.MIN_VALUE);
+	}
+
+	private void writeBits(int bits){
+		ensure(4);
+		for (int shift = 24; shift >= 0; shift-=8) {
+			buffer[position++]=(byte) (bits>>>shift);
+		}
+	}
+
+	private void writeBits(long bits){
+		ensure(8);
+		for (int shift = 56; shift >= 0; shift-=8) {
+			buffer[position++]=(byte) (bits>>>shift);
+		}
+	}
+
+	private void writeString(String s){
+		ensure(4*s.length()+2);
+		for (int i = 0; i < s.length(); i++) {
+			char c=s.charAt(i);
+			writeEscaped((byte) (c>>>8));
+			writeEscaped((byte) c);
+		}
+		buffer[position++]=0x00;
+		buffer[position++]=0x01;
+	}
+
+	private void writeEscaped(byte b){
+		buffer[position++]=b;
+		if(b==0){
+			buffer[position++]=(byte) 0xff;
+		}
+	}
+
+	private void ensure(int bytes){
+		if(position+bytes>buffer.length){
+			buffer=Arrays.copyOf(buffer,Math.max(buffer.length*2,position+bytes));
+		}
+	}
+}
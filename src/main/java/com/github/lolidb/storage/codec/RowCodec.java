@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.codec;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.exception.IllegalFormatException;
+import com.github.lolidb.storage.Row;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.NullValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import com.github.lolidb.utils.collections.BitMap;
+import com.github.lolidb.utils.collections.Tuple;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row serializer compiled from a {@link Schema}. Codec of each column is resolved once when compiling,
+ * so serializing a row only iterates an array of {@link ColumnCodec}.
+ * Layout of row is same as {@code Row.writeObject}.
+ * {{{
+ *     removal flag     int
+ *
+ *     null value map   serialized {@link BitMap}
+ *
+ *     fields           serialized by column codec, null value occupies nothing
+ *
+ *     created time     long
+ *
+ *     updated time     long
+ * }}}
+ */
+public final class RowCodec {
+
+	private final Schema schema;
+
+	private final ColumnCodec[] codecs;
+
+	public RowCodec(Schema schema){
+		this.schema=schema;
+		List<ColumnDescription> cols = schema.getValues();
+		this.codecs=new ColumnCodec[cols.size()];
+		for (int i = 0; i < codecs.length; i++) {
+			ColumnCodec codec=ColumnCodec.of(cols.get(i).getType());
+			if(codec==null){
+				throw new IllegalFormatException("Unsupported column type: "+cols.get(i));
+			}
+			codecs[i]=codec;
+		}
+	}
+
+	public int size(){
+		return codecs.length;
+	}
+
+	public ColumnCodec getCodec(int col){
+		return codecs[col];
+	}
+
+	/**
+	 * Serialize {@link Row} into buffer
+	 * @param row data row
+	 * @param buffer buffer
+	 * @return first address of row in buffer, or -1 if buffer have no space for it
+	 */
+	public int write(Row row,ByteBuffer buffer){
+		if(row.getRealSize()+buffer.position()>=buffer.capacity()){
+			return -1;
+		}
+		int pos=buffer.position();
+		buffer.putInt(row.isDeleted()?1:0);
+		BitMap bitMap=row.getBitMap();
+		BitMap.writeObject(bitMap,buffer);
+		List<Value> fields=(List<Value>) row.getData().getValue();
+		for (int i = 0; i < codecs.length; i++) {
+			if(!bitMap.contains(i)){
+				codecs[i].write(fields.get(i),buffer);
+			}
+		}
+		buffer.putLong(row.getCreatedTimeStamp());
+		buffer.putLong(row.getLastUpdateTimeStamp());
+		return pos;
+	}
+
+	/**
+	 * Deserialize {@link Row} at given offset of buffer.
+	 * @param buffer data buffer
+	 * @param offset offset of row
+	 * @return row
+	 */
+	public Row read(ByteBuffer buffer,int offset){
+		Row row=new Row(null,null);
+		row.setDeleted(buffer.getInt(offset)!=0);
+		int pos=offset+4;
+
+		BitMap bitMap = BitMap.readObject(buffer, pos);
+		row.setBitMap(bitMap);
+		pos+=bitMap.getRealSize();
+
+		StructValue data=new StructValue(new ArrayList<>(codecs.length));
+		pos=readData(buffer,pos,bitMap,data);
+		row.setData(data);
+
+		row.setCreatedTimeStamp(buffer.getLong(pos));
+		row.setLastUpdateTimeStamp(buffer.getLong(pos+8));
+		return row;
+	}
+
+	/**
+	 * Deserialize fields at given offset of buffer into a {@link StructValue}.
+	 * @param buffer data buffer
+	 * @param offset offset of first field
+	 * @param bitMap null value map
+	 * @return struct value
+	 */
+	public StructValue readData(ByteBuffer buffer,int offset,BitMap bitMap){
+		StructValue data=new StructValue(new ArrayList<>(codecs.length));
+		readData(buffer,offset,bitMap,data);
+		return data;
+	}
+
+	private int readData(ByteBuffer buffer,int offset,BitMap bitMap,StructValue data){
+		for (int i = 0; i < codecs.length; i++) {
+			if(bitMap.contains(i)){
+				data.addField(new NullValue());
+				continue;
+			}
+			ColumnCodec codec=codecs[i];
+			data.addField(codec.read(buffer,offset));
+			offset+=codec.size(buffer,offset);
+		}
+		return offset;
+	}
+
+	public StructValue parse(Tuple tuple){
+		if(tuple.size()!=codecs.length){
+			throw new IllegalFormatException("Tuple value can not match with schema: "+schema);
+		}
+		StructValue value=new StructValue(new ArrayList<>(codecs.length));
+		for (int i = 0; i < codecs.length; i++) {
+			value.addField(codecs[i].parse(tuple.get(i)));
+		}
+		return value;
+	}
+
+	public StructValue parse(List<Object> fields){
+		if(fields.size()!=codecs.length){
+			throw new IllegalFormatException("Struct value can not match with schema: "+schema);
+		}
+		StructValue value=new StructValue(new ArrayList<>(codecs.length));
+		for (int i = 0; i < codecs.length; i++) {
+			value.addField(codecs[i].parse(fields.get(i)));
+		}
+		return value;
+	}
+}
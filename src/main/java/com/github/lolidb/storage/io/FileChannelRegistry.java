@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.io;
+
+import com.github.lolidb.utils.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of open partition files. All the pages of a partition share one {@link FileChannel},
+ * and read or write it by position, so no page holds a file descriptor of its own.
+ * Channels are opened lazily at the first I/O of a file, and at most {@code capacity} channels are kept open.
+ * The least recently used idle channel is closed when there are too many. A channel in use is never closed,
+ * so registry may be over its capacity for a while.
+ * A file which is deleted or replaced must be closed by {@link #close(File)}, or else the cached channel still
+ * writes to the unlinked file.
+ * {{{
+ *     try (FileChannelRegistry.Handle handle = registry.acquire(file)) {
+ *         handle.channel().write(buffer, position);
+ *     }
+ * }}}
+ */
+public class FileChannelRegistry {
+
+	private static final Logger logger= LoggerFactory.getLogger(FileChannelRegistry.class);
+
+	private static final FileChannelRegistry registry=new FileChannelRegistry(Configuration.DEFAULT_MAX_OPEN_CHANNELS);
+
+	public static FileChannelRegistry getInstance() {
+		return registry;
+	}
+
+	private final int capacity;
+
+	// access ordered channels, the least recently used is at head
+	private final LinkedHashMap<String,Entry> channels=new LinkedHashMap<>(16,0.75f,true);
+
+	// numbers of open syscalls
+	private long opens;
+
+	public FileChannelRegistry(int capacity){
+		if(capacity<=0){
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.capacity=capacity;
+	}
+
+	/**
+	 * Get shared channel of given file, file and its parent directories are created if they do not exist.
+	 * Handle must be closed after I/O.
+	 * @param file partition file
+	 * @return handle of channel
+	 */
+	public synchronized Handle acquire(File file) throws IOException {
+		String key=file.getPath();
+		Entry entry=channels.get(key);
+		if(entry==null){
+			File dir=file.getParentFile();
+			if(dir!=null && !dir.exists()){
+				dir.mkdirs();
+			}
+			FileChannel channel=FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE);
+			opens++;
+			entry=new Entry(key,channel);
+			channels.put(key,entry);
+		}
+		entry.refs++;
+		closeIdle();
+		return new Handle(entry);
+	}
+
+	private synchronized void release(Entry entry){
+		entry.refs--;
+		if(entry.detached){
+			if(entry.refs==0){
+				close(entry.path,entry);
+			}
+			return;
+		}
+		closeIdle();
+	}
+
+	/**
+	 * Close channel of given file, so the next I/O opens the file again. A channel in use is detached from
+	 * registry and closed when its last handle is closed.
+	 * @param file partition file
+	 */
+	public synchronized void close(File file){
+		Entry entry=channels.remove(file.getPath());
+		if(entry==null){
+			return;
+		}
+		if(entry.refs==0){
+			close(entry.path,entry);
+		}else {
+			entry.detached=true;
+		}
+	}
+
+	/**
+	 * Close the least recently used idle channels until open channels are not over capacity.
+	 */
+	private void closeIdle(){
+		Iterator<Map.Entry<String,Entry>> iterator = channels.entrySet().iterator();
+		while (channels.size()>capacity && iterator.hasNext()){
+			Map.Entry<String, Entry> eldest = iterator.next();
+			if(eldest.getValue().refs>0)
+				continue;
+			iterator.remove();
+			close(eldest.getKey(),eldest.getValue());
+		}
+	}
+
+	private void close(String path,Entry entry){
+		try {
+			entry.channel.close();
+		} catch (IOException e) {
+			logger.error("Close channel of file:{} on failure.",path,e);
+		}
+	}
+
+	/**
+	 * Close all the idle channels.
+	 */
+	public synchronized void closeAll(){
+		Iterator<Map.Entry<String,Entry>> iterator = channels.entrySet().iterator();
+		while (iterator.hasNext()){
+			Map.Entry<String, Entry> entry = iterator.next();
+			if(entry.getValue().refs==0){
+				iterator.remove();
+				close(entry.getKey(),entry.getValue());
+			}
+		}
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get numbers of open channels.
+	 * @return open channels
+	 */
+	public synchronized int openChannels(){
+		return channels.size();
+	}
+
+	/**
+	 * Get numbers of files opened by this registry, including closed ones.
+	 * @return numbers of open syscalls
+	 */
+	public synchronized long opens(){
+		return opens;
+	}
+
+	private static final class Entry {
+
+		private final String path;
+
+		private final FileChannel channel;
+
+		// numbers of handles in use
+		private int refs;
+
+		// removed from registry by close(File), and closed by the last handle
+		private boolean detached;
+
+		private Entry(String path,FileChannel channel){
+			this.path=path;
+			this.channel=channel;
+		}
+	}
+
+	/**
+	 * Reference of a shared channel. The channel can not be closed by registry until handle is closed.
+	 */
+	public final class Handle implements AutoCloseable {
+
+		private final Entry entry;
+
+		private boolean closed;
+
+		private Handle(Entry entry){
+			this.entry=entry;
+		}
+
+		public FileChannel channel(){
+			return entry.channel;
+		}
+
+		@Override
+		public void close() {
+			if(!closed){
+				closed=true;
+				release(entry);
+			}
+		}
+	}
+}
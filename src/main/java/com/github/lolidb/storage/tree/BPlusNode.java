@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+/**
+ * Node of {@link BPlusTree}. Keys of node are sorted, and a node holds at most {@code maxValues} keys,
+ * one more slot is kept so that node can overflow before it is split.
+ */
+abstract class BPlusNode {
+
+	protected final Value[] keys;
+
+	protected int size;
+
+	protected BPlusNode(int maxValues){
+		keys=new Value[maxValues+1];
+	}
+
+	abstract boolean isLeaf();
+
+	/**
+	 * Locate key in this node by binary search.
+	 * @param key searched key
+	 * @return index of key if found, or else {@code -(insertion point + 1)}
+	 */
+	int locate(Value key){
+		return locate(keys,size,key);
+	}
+
+	static int locate(Value[] keys,int size,Value key){
+		int low=0;
+		int high=size-1;
+		while (low<=high){
+			int mid=(low+high)>>>1;
+			Value current=keys[mid];
+			if(key.less(current)){
+				high=mid-1;
+			}else if(current.less(key)){
+				low=mid+1;
+			}else {
+				return mid;
+			}
+		}
+		return -(low+1);
+	}
+
+	Value firstKey(){
+		return keys[0];
+	}
+
+	Value lastKey(){
+		return keys[size-1];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder=new StringBuilder(isLeaf()?"leaf":"inner");
+		for (int i = 0; i < size; i++) {
+			builder.append(i==0?"[":", ").append(keys[i]);
+		}
+		return builder.append(size==0?"[]":"]").toString();
+	}
+}
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+import com.github.lolidb.annotation.TestApi;
+import com.github.lolidb.storage.tree.value.NullValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * B+ Tree Implementation, described in {@code docs/索引的支持.md}.
+ * All the values are kept in leaves, and leaves form an ordered linked list, internal nodes only hold
+ * separators to route a search. So a range search descends once to the start value, then walks through
+ * sibling leaves until the end value, its cost is decided by the height and size of result.
+ * {{{
+ *                     [ 5 | 9 ]
+ *                   /     |     \
+ *     [ 1 | 3 ] <-> [ 5 | 7 ] <-> [ 9 | 11 ]
+ * }}}
+ * Like {@link BTree}, a node holds at most {@code 2 * degree - 1} values, and at least {@code degree - 1}
+ * values unless it is root. This tree is not thread safe.
+ */
+public class BPlusTree {
+
+	private static final Logger logger= LoggerFactory.getLogger(BPlusTree.class);
+
+	protected final int degree;
+
+	protected int length;
+
+	protected BPlusNode root;
+
+	// numbers of modifications, iterators fail when tree is modified
+	protected int modCount;
+
+	// separator moved up by the last split, valid only while inserting
+	private Value promoted;
+
+	// value replaced by the last insertion
+	private Value replaced;
+
+	public BPlusTree(int degree){
+		if(degree<2){
+			throw new IllegalArgumentException("Degree of b+ tree must be at least 2.");
+		}
+		this.degree=degree;
+		this.root=new LeafNode(maxValues());
+	}
+
+	public int maxValues(){
+		return degree*2-1;
+	}
+
+	public int minValues(){
+		return degree-1;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Insertion
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Replace or insert a value into b+ tree.
+	 * @param value inserted value
+	 * @return replaced value, or null if value is new
+	 */
+	public Value replaceOrInsert(Value value){
+		if (value==null){
+			logger.warn("Insert value is null.");
+			return null;
+		}
+		modCount++;
+		BPlusNode right=insert(root,value);
+		if(right!=null){
+			// root is split, tree grows by one level
+			InnerNode newRoot=new InnerNode(maxValues());
+			newRoot.keys[0]=promoted;
+			newRoot.children[0]=root;
+			newRoot.children[1]=right;
+			newRoot.size=1;
+			root=newRoot;
+		}
+		promoted=null;
+		return replaced;
+	}
+
+	/**
+	 * Insert value into subtree.
+	 * @return new right sibling of node if node is split, and its separator is kept in {@code promoted}
+	 */
+	private BPlusNode insert(BPlusNode node,Value value){
+		if(node.isLeaf()){
+			LeafNode leaf=(LeafNode) node;
+			int located=leaf.locate(value);
+			if(located>=0){
+				replaced=leaf.keys[located];
+				leaf.keys[located]=value;
+				return null;
+			}
+			replaced=null;
+			leaf.insertAt(-(located+1),value);
+			length++;
+			if(leaf.size<=maxValues()){
+				return null;
+			}
+			LeafNode right=leaf.split();
+			promoted=right.firstKey();
+			return right;
+		}
+
+		InnerNode inner=(InnerNode) node;
+		int index=inner.childIndex(value);
+		BPlusNode child=insert(inner.children[index],value);
+		if(child==null){
+			return null;
+		}
+		inner.insertChild(index,promoted,child);
+		if(inner.size<=maxValues()){
+			return null;
+		}
+		promoted=inner.keys[inner.size/2];
+		return inner.split();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Removal
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Remove value from b+ tree.
+	 * @param value removed value
+	 * @return removed value in tree, or null if it is not found
+	 */
+	public Value remove(Value value){
+		if(value==null){
+			return null;
+		}
+		modCount++;
+		Value removal=remove(root,value);
+		if(!root.isLeaf() && root.size==0){
+			// root has only one child, tree shrinks by one level
+			root=((InnerNode) root).children[0];
+		}
+		return removal;
+	}
+
+	private Value remove(BPlusNode node,Value value){
+		if(node.isLeaf()){
+			LeafNode leaf=(LeafNode) node;
+			int located=leaf.locate(value);
+			if(located<0){
+				return null;
+			}
+			length--;
+			return leaf.removeAt(located);
+		}
+
+		InnerNode inner=(InnerNode) node;
+		int index=inner.childIndex(value);
+		Value removal=remove(inner.children[index],value);
+		if(removal!=null && inner.children[index].size<minValues()){
+			rebalance(inner,index);
+		}
+		return removal;
+	}
+
+	/**
+	 * Fix child of parent which has too few values, by borrowing from a sibling or merging with it.
+	 * @param parent parent node
+	 * @param index index of child in parent
+	 */
+	private void rebalance(InnerNode parent,int index){
+		BPlusNode child=parent.children[index];
+		BPlusNode left=index>0?parent.children[index-1]:null;
+		BPlusNode right=index<parent.size?parent.children[index+1]:null;
+
+		if(left!=null && left.size>minValues()){
+			borrowFromLeft(parent,index,left,child);
+		}else if(right!=null && right.size>minValues()){
+			borrowFromRight(parent,index,child,right);
+		}else if(left!=null){
+			merge(parent,index-1,left,child);
+		}else if(right!=null){
+			merge(parent,index,child,right);
+		}
+	}
+
+	private void borrowFromLeft(InnerNode parent,int index,BPlusNode left,BPlusNode child){
+		System.arraycopy(child.keys,0,child.keys,1,child.size);
+		if(child.isLeaf()){
+			child.keys[0]=left.keys[left.size-1];
+			parent.keys[index-1]=child.keys[0];
+		}else {
+			InnerNode c=(InnerNode) child;
+			InnerNode l=(InnerNode) left;
+			System.arraycopy(c.children,0,c.children,1,c.size+1);
+			c.keys[0]=parent.keys[index-1];
+			c.children[0]=l.children[l.size];
+			l.children[l.size]=null;
+			parent.keys[index-1]=l.keys[l.size-1];
+		}
+		left.keys[--left.size]=null;
+		child.size++;
+	}
+
+	private void borrowFromRight(InnerNode parent,int index,BPlusNode child,BPlusNode right){
+		if(child.isLeaf()){
+			child.keys[child.size]=right.keys[0];
+			System.arraycopy(right.keys,1,right.keys,0,right.size-1);
+			parent.keys[index]=right.keys[0];
+		}else {
+			InnerNode c=(InnerNode) child;
+			InnerNode r=(InnerNode) right;
+			c.keys[c.size]=parent.keys[index];
+			c.children[c.size+1]=r.children[0];
+			parent.keys[index]=r.keys[0];
+			System.arraycopy(r.keys,1,r.keys,0,r.size-1);
+			System.arraycopy(r.children,1,r.children,0,r.size);
+			r.children[r.size]=null;
+		}
+		right.keys[--right.size]=null;
+		child.size++;
+	}
+
+	/**
+	 * Merge right node into left node, and remove separator between them from parent.
+	 * @param parent parent node
+	 * @param index index of separator between left and right
+	 */
+	private void merge(InnerNode parent,int index,BPlusNode left,BPlusNode right){
+		if(left.isLeaf()){
+			((LeafNode) left).merge((LeafNode) right);
+		}else {
+			InnerNode l=(InnerNode) left;
+			InnerNode r=(InnerNode) right;
+			l.keys[l.size]=parent.keys[index];
+			System.arraycopy(r.keys,0,l.keys,l.size+1,r.size);
+			System.arraycopy(r.children,0,l.children,l.size+1,r.size+1);
+			l.size+=r.size+1;
+		}
+		parent.removeChild(index);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Find leaf whose range covers given value.
+	 */
+	protected LeafNode findLeaf(Value value){
+		BPlusNode node=root;
+		while (!node.isLeaf()){
+			InnerNode inner=(InnerNode) node;
+			node=inner.children[inner.childIndex(value)];
+		}
+		return (LeafNode) node;
+	}
+
+	protected LeafNode firstLeaf(){
+		BPlusNode node=root;
+		while (!node.isLeaf()){
+			node=((InnerNode) node).children[0];
+		}
+		return (LeafNode) node;
+	}
+
+	protected LeafNode lastLeaf(){
+		BPlusNode node=root;
+		while (!node.isLeaf()){
+			InnerNode inner=(InnerNode) node;
+			node=inner.children[inner.size];
+		}
+		return (LeafNode) node;
+	}
+
+	public Value get(Value key){
+		if(key==null)
+			return null;
+		LeafNode leaf=findLeaf(key);
+		int located=leaf.locate(key);
+		return located>=0?leaf.keys[located]:null;
+	}
+
+	public boolean contain(Value key){
+		return get(key)!=null;
+	}
+
+	/**
+	 * Fetch value range {@code from} -> {@code to}, {@link NullValue} means the range is open on that side.
+	 * @param from start value
+	 * @param to end value
+	 * @param hasStart whether can be from
+	 * @param hasEnd whether can be to
+	 */
+	public List<Value> range(Value from,Value to,boolean hasStart,boolean hasEnd){
+		List<Value> res=new ArrayList<>();
+		iterator(from,to,hasStart,hasEnd,OrderRule.ASCEND).forEachRemaining(res::add);
+		return res;
+	}
+
+	/**
+	 * Iterate value range {@code from} -> {@code to} lazily, {@link NullValue} means the range is open on that side.
+	 * Values are read from leaves only when they are asked for, so a caller can stop at any time.
+	 * @param from start value
+	 * @param to end value
+	 * @param hasStart whether can be from
+	 * @param hasEnd whether can be to
+	 * @param order ascending from {@code from}, or descending from {@code to}
+	 */
+	public Iterator<Value> iterator(Value from,Value to,boolean hasStart,boolean hasEnd,OrderRule order){
+		return new BPlusTreeIterator(this,from,to,hasStart,hasEnd,order);
+	}
+
+	public Value min(){
+		LeafNode leaf=firstLeaf();
+		return leaf.size==0?null:leaf.firstKey();
+	}
+
+	public Value max(){
+		LeafNode leaf=lastLeaf();
+		return leaf.size==0?null:leaf.lastKey();
+	}
+
+	public int size(){
+		return length;
+	}
+
+	/**
+	 * @return numbers of levels, a tree with a single leaf has height 1
+	 */
+	public int height(){
+		int height=1;
+		for (BPlusNode node=root;!node.isLeaf();node=((InnerNode) node).children[0]) {
+			height++;
+		}
+		return height;
+	}
+
+	@TestApi
+	BPlusNode getRoot() {
+		return root;
+	}
+
+	/**
+	 * Print values in order. Only for test.
+	 */
+	@TestApi
+	public void print(){
+		for (LeafNode leaf=firstLeaf();leaf!=null;leaf=leaf.next) {
+			System.out.print(leaf+" ");
+		}
+		System.out.println();
+	}
+}
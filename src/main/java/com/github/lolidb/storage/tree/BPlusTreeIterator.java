@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+import com.github.lolidb.storage.tree.value.NullValue;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over a value range of {@link BPlusTree}. It descends once to the leaf of start value,
+ * then walks through linked leaves, so it only keeps current leaf and index.
+ * Tree must not be modified while iterating.
+ */
+class BPlusTreeIterator implements Iterator<Value> {
+
+	private final BPlusTree tree;
+
+	private final int modCount;
+
+	private final boolean ascend;
+
+	// bound where iteration stops, it is null if range is open on this side
+	private final Value stop;
+
+	private final boolean includeStop;
+
+	private LeafNode leaf;
+
+	private int index;
+
+	private Value next;
+
+	BPlusTreeIterator(BPlusTree tree,Value from,Value to,boolean hasStart,boolean hasEnd,OrderRule order){
+		this.tree=tree;
+		this.modCount=tree.modCount;
+		this.ascend=order==OrderRule.ASCEND;
+		Value start=ascend?from:to;
+		Value end=ascend?to:from;
+		boolean inclusive=ascend?hasStart:hasEnd;
+		this.stop=end instanceof NullValue?null:end;
+		this.includeStop=ascend?hasEnd:hasStart;
+
+		if(start instanceof NullValue){
+			leaf=ascend?tree.firstLeaf():tree.lastLeaf();
+			index=ascend?0:leaf.size-1;
+		}else {
+			leaf=tree.findLeaf(start);
+			int located=leaf.locate(start);
+			if(located>=0){
+				index=inclusive?located:(ascend?located+1:located-1);
+			}else {
+				index=ascend?-(located+1):-(located+1)-1;
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(next!=null)
+			return true;
+		if(modCount!=tree.modCount)
+			throw new ConcurrentModificationException();
+
+		// skip to sibling when current leaf is exhausted
+		while (leaf!=null && (index<0 || index>=leaf.size)){
+			leaf=ascend?leaf.next:leaf.prev;
+			if(leaf!=null)
+				index=ascend?0:leaf.size-1;
+		}
+		if(leaf==null)
+			return false;
+
+		Value value=leaf.keys[index];
+		index+=ascend?1:-1;
+		if(stop!=null && (ascend?!value.less(stop):!stop.less(value))){
+			// only the stop value itself can be returned
+			leaf=null;
+			if(!(includeStop && value.equals(stop)))
+				return false;
+		}
+		next=value;
+		return true;
+	}
+
+	@Override
+	public Value next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+		Value value=next;
+		next=null;
+		return value;
+	}
+}
@@ -22,6 +22,7 @@ import com.github.lolidb.utils.collections.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -40,6 +41,9 @@ public class BTree implements Cloneable{
 
 	protected FreeList freeList;
 
+	// numbers of modifications, iterators fail when tree is modified
+	protected int modCount;
+
 	public BTree(int degree,FreeList freeList){
 		this.degree=degree;
 		this.length=0;
@@ -47,6 +51,14 @@ public class BTree implements Cloneable{
 		this.freeList=freeList;
 	}
 
+	/**
+	 * Create a btree with a free list of its own, so its nodes are not shared with other trees.
+	 * @param degree degree of btree
+	 */
+	public BTree(int degree){
+		this(degree,new FreeList());
+	}
+
 	@TestApi
 	public Node getRoot() {
 		return root;
@@ -80,6 +92,7 @@ public class BTree implements Cloneable{
 			logger.warn("Insert value is null.");
 			return null;
 		}
+		modCount++;
 
 		if(root==null){
 			root=freeList.getCurrentNode().setValuesSize(maxValues());
@@ -110,12 +123,16 @@ public class BTree implements Cloneable{
 	}
 
 	public void remove(Value value){
+		modCount++;
 		root.remove(value,minValues());
 		// when merge operation make root disappear, make root be the child
 		if(root.valueNums==0){
 			for (int i = 0; i < root.childNums; i++) {
 				if(root.children[i]!=null){
+					Node oldRoot=root;
 					root=root.children[i];
+					root.parent=null;
+					freeList.recycleNode(oldRoot);
 					break;
 				}
 			}
@@ -134,6 +151,20 @@ public class BTree implements Cloneable{
 		return list;
 	}
 
+	/**
+	 * Iterate value range {@code from} -> {@code to} lazily, {@link com.github.lolidb.storage.tree.value.NullValue}
+	 * means the range is open on that side. Only the path to current value is kept, so a caller can stop
+	 * at any time without collecting the whole range.
+	 * @param from start value
+	 * @param to end value
+	 * @param hasStart whether can be from
+	 * @param hasEnd whether can be to
+	 * @param order ascending from {@code from}, or descending from {@code to}
+	 */
+	public Iterator<Value> iterator(Value from,Value to,boolean hasStart,boolean hasEnd,OrderRule order){
+		return new BTreeIterator(this,from,to,hasStart,hasEnd,order);
+	}
+
 	public Node get(Value key){
 
 		if (root==null)
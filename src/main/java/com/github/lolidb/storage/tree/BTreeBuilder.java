@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage.tree;
+
+import com.github.lolidb.utils.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Build a {@link BTree} from bottom to up, which is much faster than inserting values one by one.
+ * Values are streamed into leaves of {@code fillFactor * (maxValues - 1)} values, and one value between
+ * two leaves becomes a separator of their parent. Separators are put into internal nodes in the same way,
+ * so only the last node of each level is open, and memory used by building is the size of built tree.
+ * {{{
+ *     sorted:   1 2 3 4 5 6 7 8 9 10 11
+ *
+ *                     [ 4 | 8 ]
+ *                   /     |     \
+ *     leaves:  [1 2 3] [5 6 7] [9 10 11]
+ * }}}
+ * When building finishes, the last node of a level is merged with or rebalanced against its left sibling
+ * if it has less than {@code minValues}, so every node but root has at least {@code minValues}, and nodes
+ * have room for later insertions. Values should be added in ascending order, or else call
+ * {@link #sorted(boolean)} with {@code false}, then they are buffered and sorted when building.
+ */
+public class BTreeBuilder {
+
+	private static final Comparator<Value> ORDER=(a,b) -> a.less(b)?-1:(b.less(a)?1:0);
+
+	private final int degree;
+
+	private double fillFactor=Configuration.DEFAULT_BTREE_FILL_FACTOR;
+
+	private FreeList freeList;
+
+	private boolean sorted=true;
+
+	// values added when they are not sorted
+	private final List<Value> unsorted=new ArrayList<>();
+
+	// tree being built, it is created by the first value
+	private BTree tree;
+
+	// expected numbers of values in a node
+	private int target;
+
+	// open node of each level, from leaves to up
+	private final List<Node> levels=new ArrayList<>();
+
+	// the last added value, it is kept back until a greater one comes, so an equal value replaces it
+	private Value last;
+
+	private int length;
+
+	public BTreeBuilder(int degree){
+		if(degree<2){
+			throw new IllegalArgumentException("Degree of btree must be at least 2.");
+		}
+		this.degree=degree;
+	}
+
+	/**
+	 * Set ratio of values in each node to its capacity.
+	 * @param fillFactor ratio in (0, 1]
+	 */
+	public BTreeBuilder fillFactor(double fillFactor){
+		if(fillFactor<=0 || fillFactor>1){
+			throw new IllegalArgumentException("Fill factor must be in (0, 1]: "+fillFactor);
+		}
+		if(adding()){
+			throw new IllegalStateException("Fill factor can not be changed after values are added.");
+		}
+		this.fillFactor=fillFactor;
+		return this;
+	}
+
+	/**
+	 * Set free list which nodes of built tree are taken from, a new one is created by default.
+	 */
+	public BTreeBuilder freeList(FreeList freeList){
+		if(adding()){
+			throw new IllegalStateException("Free list can not be changed after values are added.");
+		}
+		this.freeList=freeList;
+		return this;
+	}
+
+	/**
+	 * Tell whether values are added in ascending order. Unsorted values are sorted when building.
+	 */
+	public BTreeBuilder sorted(boolean sorted){
+		if(adding()){
+			throw new IllegalStateException("Order can not be changed after values are added.");
+		}
+		this.sorted=sorted;
+		return this;
+	}
+
+	/**
+	 * Add a value. Sorted values must be ascending, and a value equal to the last one replaces it
+	 * as {@link BTree#replaceOrInsert(Value)} does.
+	 * @param value added value
+	 */
+	public BTreeBuilder add(Value value){
+		if(value==null){
+			throw new IllegalArgumentException("Value of btree can not be null.");
+		}
+		if(sorted){
+			append(value);
+		}else {
+			unsorted.add(value);
+		}
+		return this;
+	}
+
+	public BTreeBuilder addAll(Iterator<? extends Value> iterator){
+		while (iterator.hasNext()){
+			add(iterator.next());
+		}
+		return this;
+	}
+
+	public BTreeBuilder addAll(Iterable<? extends Value> values){
+		return addAll(values.iterator());
+	}
+
+	/**
+	 * Build tree of added values, the builder is cleared and can be used again.
+	 * @return btree
+	 */
+	public BTree build(){
+		if(!sorted){
+			// stable sort keeps the last one of equal values at the end
+			unsorted.sort(ORDER);
+			for (Value value:unsorted) {
+				append(value);
+			}
+			unsorted.clear();
+		}
+		if(last!=null){
+			addValue(last);
+			last=null;
+		}
+		BTree built=tree==null?newTree():tree;
+		if(!levels.isEmpty()){
+			built.root=finish();
+			built.length=length;
+		}
+		tree=null;
+		levels.clear();
+		length=0;
+		return built;
+	}
+
+	// whether values are added and not built
+	private boolean adding(){
+		return last!=null || tree!=null || !unsorted.isEmpty();
+	}
+
+	private BTree newTree(){
+		return freeList==null?new BTree(degree):new BTree(degree,freeList);
+	}
+
+	/**
+	 * Keep back a sorted value until a greater one comes, equal values replace it.
+	 */
+	private void append(Value value){
+		if(last!=null){
+			if(value.less(last)){
+				throw new IllegalArgumentException("Value:"+value+" is less than the last value:"+last);
+			}
+			if(!last.less(value)){
+				last=value;
+				return;
+			}
+			addValue(last);
+		}
+		last=value;
+	}
+
+	/**
+	 * Put a value into the open leaf. A leaf holds one more value than target, which becomes separator
+	 * when the leaf is closed, so a separator always has a leaf on its right.
+	 */
+	private void addValue(Value value){
+		if(tree==null){
+			tree=newTree();
+			// a node is split when it reaches max values, so it holds one less
+			int capacity=tree.maxValues()-1;
+			target=Math.max(tree.minValues(),Math.min(capacity,(int) Math.round(capacity*fillFactor)));
+		}
+		Node leaf=open(0);
+		if(leaf.valueNums>target){
+			close(0);
+			leaf=open(0);
+		}
+		leaf.values[leaf.valueNums++]=value;
+		length++;
+	}
+
+	/**
+	 * Put a child into the open node of a level. The open node is closed first if it has one more
+	 * value than target, that is a separator following its last child.
+	 */
+	private void addChild(int level,Node child){
+		Node node=open(level);
+		if(node.valueNums>target){
+			close(level);
+			node=open(level);
+		}
+		node.children[node.childNums++]=child;
+		child.parent=node;
+	}
+
+	private Node open(int level){
+		if(levels.size()==level){
+			levels.add(null);
+		}
+		Node node=levels.get(level);
+		if(node==null){
+			node=tree.freeList.getCurrentNode().setValuesSize(tree.maxValues());
+			levels.set(level,node);
+		}
+		return node;
+	}
+
+	/**
+	 * Close the open node of a level, its last value becomes separator after it in upper level.
+	 */
+	private void close(int level){
+		Node node=levels.get(level);
+		levels.set(level,null);
+		Value separator=node.values[--node.valueNums];
+		node.values[node.valueNums]=null;
+		addChild(level+1,node);
+		Node parent=open(level+1);
+		parent.values[parent.valueNums++]=separator;
+	}
+
+	/**
+	 * Close open nodes from leaves to up, and fix the last node of each level.
+	 * @return root
+	 */
+	private Node finish(){
+		int capacity=tree.maxValues()-1;
+		for (int level = 0; ; level++) {
+			Node node=open(level);
+			// only a leaf holds more values than capacity, when target is capacity
+			if(node.valueNums>capacity){
+				close(level);
+				node=open(level);
+			}
+			if(level==levels.size()-1){
+				// merge of the level below may leave root only one child
+				if(node.valueNums==0 && node.childNums==1){
+					Node root=node.children[0];
+					root.parent=null;
+					tree.freeList.recycleNode(node);
+					return root;
+				}
+				return node;
+			}
+			if(node.valueNums<tree.minValues()){
+				node=rebalance(level,node);
+			}
+			levels.set(level,null);
+			if(node!=null){
+				addChild(level+1,node);
+			}
+		}
+	}
+
+	/**
+	 * Merge the last node of a level into its left sibling, or share values with it evenly.
+	 * Left sibling is the last child of the open node of upper level, and the last value of that
+	 * node is the separator between them.
+	 * @return the last node, or null if it is merged
+	 */
+	private Node rebalance(int level,Node right){
+		Node parent=levels.get(level+1);
+		Node left=parent.children[parent.childNums-1];
+		Value separator=parent.values[--parent.valueNums];
+		parent.values[parent.valueNums]=null;
+
+		int total=left.valueNums+1+right.valueNums;
+		Value[] values=new Value[total];
+		System.arraycopy(left.values,0,values,0,left.valueNums);
+		values[left.valueNums]=separator;
+		System.arraycopy(right.values,0,values,left.valueNums+1,right.valueNums);
+		Node[] children=null;
+		if(left.childNums>0){
+			children=new Node[total+1];
+			System.arraycopy(left.children,0,children,0,left.childNums);
+			System.arraycopy(right.children,0,children,left.childNums,right.childNums);
+		}
+
+		if(total<=tree.maxValues()-1){
+			fill(left,values,children,0,total);
+			tree.freeList.recycleNode(right);
+			return null;
+		}
+		// total is at least 2 * minValues + 1, so both of them have minValues
+		int size=total/2;
+		fill(left,values,children,0,size);
+		parent.values[parent.valueNums++]=values[size];
+		fill(right,values,children,size+1,total-size-1);
+		return right;
+	}
+
+	private static void fill(Node node,Value[] values,Node[] children,int from,int size){
+		Arrays.fill(node.values,null);
+		System.arraycopy(values,from,node.values,0,size);
+		node.valueNums=size;
+		if(children!=null){
+			Arrays.fill(node.children,null);
+			for (int i = 0; i <= size; i++) {
+				Node child=children[from+i];
+				node.children[i]=child;
+				child.parent=node;
+			}
+			node.childNums=size+1;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+import com.github.lolidb.storage.tree.value.NullValue;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over a value range of {@link BTree}. It keeps the path from root to current value,
+ * so memory is bounded by height of tree, and the first value is returned after one descent.
+ * {{{
+ *     nodes    | root | child | ... | current node |
+ *     indexes  | index of next value to return in each node |
+ * }}}
+ * Values of a node come after its left subtree when ascending, and before it when descending.
+ * Tree must not be modified while iterating.
+ */
+class BTreeIterator implements Iterator<Value> {
+
+	private final BTree tree;
+
+	private final int modCount;
+
+	private final boolean ascend;
+
+	// bound where iteration stops, it is null if range is open on this side
+	private final Value stop;
+
+	private final boolean includeStop;
+
+	private Node[] nodes=new Node[8];
+
+	private int[] indexes=new int[8];
+
+	private int depth;
+
+	private Value next;
+
+	private boolean finished;
+
+	BTreeIterator(BTree tree,Value from,Value to,boolean hasStart,boolean hasEnd,OrderRule order){
+		this.tree=tree;
+		this.modCount=tree.modCount;
+		this.ascend=order==OrderRule.ASCEND;
+		Value start=ascend?from:to;
+		Value end=ascend?to:from;
+		this.stop=end instanceof NullValue?null:end;
+		this.includeStop=ascend?hasEnd:hasStart;
+		seek(tree.root,start instanceof NullValue?null:start,ascend?hasStart:hasEnd);
+	}
+
+	/**
+	 * Descend from root to the first value of iteration.
+	 * @param start start value, null to begin at the first or last value of tree
+	 * @param inclusive whether start value is returned
+	 */
+	private void seek(Node node,Value start,boolean inclusive){
+		while (node!=null && node.valueNums>0){
+			if(start==null){
+				push(node,ascend?0:node.valueNums-1);
+				node=node.children[ascend?0:node.valueNums];
+				continue;
+			}
+			int located=node.locate(start);
+			int index=Node.position(located);
+			if(located>=0){
+				if(inclusive){
+					push(node,index);
+					return;
+				}
+				// values behind start are in the subtree on other side of it
+				push(node,ascend?index+1:index-1);
+				node=node.children[ascend?index+1:index];
+			}else {
+				push(node,ascend?index:index-1);
+				node=node.children[index];
+			}
+		}
+	}
+
+	private void push(Node node,int index){
+		if(depth==nodes.length){
+			nodes=Arrays.copyOf(nodes,depth*2);
+			indexes=Arrays.copyOf(indexes,depth*2);
+		}
+		nodes[depth]=node;
+		indexes[depth]=index;
+		depth++;
+	}
+
+	/**
+	 * Move to next value in order, and push the path to the nearest value in subtree behind it.
+	 */
+	private Value advance(){
+		while (depth>0){
+			Node node=nodes[depth-1];
+			int index=indexes[depth-1];
+			if(index<0 || index>=node.valueNums){
+				depth--;
+				continue;
+			}
+			indexes[depth-1]=ascend?index+1:index-1;
+			Node child=node.children[ascend?index+1:index];
+			while (child!=null && child.valueNums>0){
+				push(child,ascend?0:child.valueNums-1);
+				child=child.children[ascend?0:child.valueNums];
+			}
+			return node.values[index];
+		}
+		return null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(next!=null)
+			return true;
+		if(finished)
+			return false;
+		if(modCount!=tree.modCount)
+			throw new ConcurrentModificationException();
+
+		Value value=advance();
+		if(value!=null && stop!=null){
+			boolean beyond=ascend?!value.less(stop):!stop.less(value);
+			if(beyond){
+				// only the stop value itself can be returned
+				if(!(includeStop && value.equals(stop)))
+					value=null;
+				finished=true;
+				depth=0;
+			}
+		}
+		if(value==null){
+			finished=true;
+			return false;
+		}
+		next=value;
+		return true;
+	}
+
+	@Override
+	public Value next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+		Value value=next;
+		next=null;
+		return value;
+	}
+}
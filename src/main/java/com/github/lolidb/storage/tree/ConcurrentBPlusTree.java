@@ -0,0 +1,389 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage.tree;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread safe {@link BPlusTree} synchronized by optimistic lock coupling. Each node has a version counter,
+ * which is the stamp of its {@link StampedLock}:
+ * {{{
+ *     read:    stamp = tryOptimisticRead() -> read node -> validate(stamp), restart from root if it fails
+ *     write:   tryConvertToWriteLock(stamp) -> modify node -> unlockWrite, which moves version forward
+ * }}}
+ * A reader never writes shared memory, so point reads are lock-free and do not slow down each other.
+ * A writer descends optimistically as well, and only locks the leaf it modifies, so insertions into
+ * different leaves go on in parallel. A full node is split eagerly on the way down with its parent locked,
+ * so a split never goes up more than one level.
+ * <p>
+ * Nodes are not merged when values are removed, an empty leaf stays in tree until values of its range
+ * are inserted again. So nodes never leave tree, and a node read optimistically is always alive.
+ */
+public class ConcurrentBPlusTree {
+
+	private static final Logger logger= LoggerFactory.getLogger(ConcurrentBPlusTree.class);
+
+	// numbers of restarts before a thread yields to the writer it is waiting for
+	private static final int SPINS=64;
+
+	private final int degree;
+
+	private final LongAdder length=new LongAdder();
+
+	private volatile OptimisticNode root;
+
+	public ConcurrentBPlusTree(int degree){
+		if(degree<2){
+			throw new IllegalArgumentException("Degree of b+ tree must be at least 2.");
+		}
+		this.degree=degree;
+		this.root=new Leaf(maxValues());
+	}
+
+	public int maxValues(){
+		return degree*2-1;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get value equal to key, it never blocks unless the leaf is being written.
+	 * @param key searched key
+	 * @return value in tree, or null if it is not found
+	 */
+	public Value get(Value key){
+		if(key==null)
+			return null;
+		for (int restarts = 0; ; restarts++) {
+			backoff(restarts);
+			OptimisticNode node=root;
+			long stamp=node.lock.tryOptimisticRead();
+			if(stamp==0 || node!=root)
+				continue;
+			try {
+				while (!node.isLeaf()){
+					OptimisticNode child=((Inner) node).child(key);
+					if(!node.lock.validate(stamp))
+						break;
+					// parent is validated again, in case child is split before its version is read
+					long childStamp=child.lock.tryOptimisticRead();
+					if(childStamp==0 || !node.lock.validate(stamp))
+						break;
+					node=child;
+					stamp=childStamp;
+				}
+				if(!node.isLeaf())
+					continue;
+				int located=node.locate(key);
+				Value value=located>=0?node.keys[located]:null;
+				if(node.lock.validate(stamp))
+					return value;
+			}catch (RuntimeException e){
+				// node is changed while reading it
+				if(node.lock.validate(stamp))
+					throw e;
+			}
+		}
+	}
+
+	public boolean contain(Value key){
+		return get(key)!=null;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Modification
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Replace or insert a value into tree.
+	 * @param value inserted value
+	 * @return replaced value, or null if value is new
+	 */
+	public Value replaceOrInsert(Value value){
+		if(value==null){
+			logger.warn("Insert value is null.");
+			return null;
+		}
+		for (int restarts = 0; ; restarts++) {
+			backoff(restarts);
+			Leaf leaf=lockLeaf(value,true);
+			if(leaf==null)
+				continue;
+			try {
+				int located=leaf.locate(value);
+				if(located>=0){
+					Value replaced=leaf.keys[located];
+					leaf.keys[located]=value;
+					return replaced;
+				}
+				leaf.insertAt(-(located+1),value);
+				length.increment();
+				return null;
+			}finally {
+				leaf.lock.unlockWrite(leaf.stamp);
+			}
+		}
+	}
+
+	/**
+	 * Remove value from tree.
+	 * @param value removed value
+	 * @return removed value in tree, or null if it is not found
+	 */
+	public Value remove(Value value){
+		if(value==null)
+			return null;
+		for (int restarts = 0; ; restarts++) {
+			backoff(restarts);
+			Leaf leaf=lockLeaf(value,false);
+			if(leaf==null)
+				continue;
+			try {
+				int located=leaf.locate(value);
+				if(located<0)
+					return null;
+				length.decrement();
+				return leaf.removeAt(located);
+			}finally {
+				leaf.lock.unlockWrite(leaf.stamp);
+			}
+		}
+	}
+
+	/**
+	 * Descend to the leaf of value and write lock it, full nodes on the path are split if it is for insertion.
+	 * @return write locked leaf whose write stamp is kept in {@code stamp}, or null if caller must restart
+	 */
+	private Leaf lockLeaf(Value value,boolean insert){
+		OptimisticNode parent=null;
+		long parentStamp=0;
+		OptimisticNode node=root;
+		long stamp=node.lock.tryOptimisticRead();
+		if(stamp==0 || node!=root)
+			return null;
+		try {
+			while (true){
+				if(insert && node.size>=maxValues()){
+					split(parent,parentStamp,node,stamp);
+					return null;
+				}
+				if(node.isLeaf())
+					break;
+				OptimisticNode child=((Inner) node).child(value);
+				if(!node.lock.validate(stamp))
+					return null;
+				long childStamp=child.lock.tryOptimisticRead();
+				if(childStamp==0 || !node.lock.validate(stamp))
+					return null;
+				parent=node;
+				parentStamp=stamp;
+				node=child;
+				stamp=childStamp;
+			}
+		}catch (RuntimeException e){
+			if(node.lock.validate(stamp))
+				throw e;
+			return null;
+		}
+
+		// parent is validated again, so the locked leaf is still the one which holds value
+		long writeStamp=node.lock.tryConvertToWriteLock(stamp);
+		if(writeStamp==0)
+			return null;
+		if(parent!=null && !parent.lock.validate(parentStamp)){
+			node.lock.unlockWrite(writeStamp);
+			return null;
+		}
+		Leaf leaf=(Leaf) node;
+		leaf.stamp=writeStamp;
+		return leaf;
+	}
+
+	/**
+	 * Split a full node with its parent locked. Parent is never full, since it has been split on the way down.
+	 */
+	private void split(OptimisticNode parent,long parentStamp,OptimisticNode node,long stamp){
+		long parentWrite=0;
+		if(parent!=null){
+			parentWrite=parent.lock.tryConvertToWriteLock(parentStamp);
+			if(parentWrite==0)
+				return;
+		}
+		long nodeWrite=node.lock.tryConvertToWriteLock(stamp);
+		if(nodeWrite==0){
+			if(parent!=null)
+				parent.lock.unlockWrite(parentWrite);
+			return;
+		}
+		try {
+			if(parent==null && node!=root)
+				return;
+			Value separator;
+			OptimisticNode right;
+			if(node.isLeaf()){
+				right=((Leaf) node).split();
+				separator=right.firstKey();
+			}else {
+				separator=node.keys[node.size/2];
+				right=((Inner) node).split();
+			}
+			if(parent==null){
+				// root is split, tree grows by one level
+				Inner newRoot=new Inner(maxValues());
+				newRoot.keys[0]=separator;
+				newRoot.children[0]=node;
+				newRoot.children[1]=right;
+				newRoot.size=1;
+				root=newRoot;
+			}else {
+				Inner inner=(Inner) parent;
+				inner.insertChild(inner.childIndex(separator),separator,right);
+			}
+		}finally {
+			node.lock.unlockWrite(nodeWrite);
+			if(parent!=null)
+				parent.lock.unlockWrite(parentWrite);
+		}
+	}
+
+	private static void backoff(int restarts){
+		if(restarts>0 && restarts%SPINS==0){
+			Thread.yield();
+		}
+	}
+
+	public int size(){
+		return length.intValue();
+	}
+
+	/**
+	 * @return numbers of levels, a tree with a single leaf has height 1
+	 */
+	public int height(){
+		int height=1;
+		for (OptimisticNode node=root;!node.isLeaf();node=((Inner) node).children[0]) {
+			height++;
+		}
+		return height;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Nodes
+	///////////////////////////////////////////////////////////////////////////
+	private abstract static class OptimisticNode extends BPlusNode {
+
+		final StampedLock lock=new StampedLock();
+
+		OptimisticNode(int maxValues){
+			super(maxValues);
+		}
+	}
+
+	private static final class Leaf extends OptimisticNode {
+
+		// write stamp held by the thread modifying this leaf
+		long stamp;
+
+		Leaf(int maxValues){
+			super(maxValues);
+		}
+
+		@Override
+		boolean isLeaf() {
+			return true;
+		}
+
+		void insertAt(int index,Value value){
+			System.arraycopy(keys,index,keys,index+1,size-index);
+			keys[index]=value;
+			size++;
+		}
+
+		Value removeAt(int index){
+			Value removal=keys[index];
+			System.arraycopy(keys,index+1,keys,index,size-index-1);
+			keys[--size]=null;
+			return removal;
+		}
+
+		Leaf split(){
+			Leaf right=new Leaf(keys.length-1);
+			int from=size/2;
+			right.size=size-from;
+			System.arraycopy(keys,from,right.keys,0,right.size);
+			for (int i = from; i < size; i++) {
+				keys[i]=null;
+			}
+			size=from;
+			return right;
+		}
+	}
+
+	private static final class Inner extends OptimisticNode {
+
+		final OptimisticNode[] children;
+
+		Inner(int maxValues){
+			super(maxValues);
+			children=new OptimisticNode[maxValues+2];
+		}
+
+		@Override
+		boolean isLeaf() {
+			return false;
+		}
+
+		OptimisticNode child(Value key){
+			return children[childIndex(key)];
+		}
+
+		int childIndex(Value key){
+			int located=locate(key);
+			return located>=0?located+1:-(located+1);
+		}
+
+		void insertChild(int index,Value separator,OptimisticNode right){
+			System.arraycopy(keys,index,keys,index+1,size-index);
+			System.arraycopy(children,index+1,children,index+2,size-index);
+			keys[index]=separator;
+			children[index+1]=right;
+			size++;
+		}
+
+		Inner split(){
+			Inner right=new Inner(keys.length-1);
+			int mid=size/2;
+			right.size=size-mid-1;
+			System.arraycopy(keys,mid+1,right.keys,0,right.size);
+			System.arraycopy(children,mid+1,right.children,0,right.size+1);
+			for (int i = mid; i < size; i++) {
+				keys[i]=null;
+				children[i+1]=null;
+			}
+			size=mid;
+			return right;
+		}
+	}
+}
@@ -22,83 +22,169 @@ import com.github.lolidb.utils.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Freelist represents a free list of BTree nodes. Two BTree using same freelist is safe
  * when writing concurrently.
- * It's designed to implement a memory pool.
+ * It's designed to implement a memory pool, a node freed by tree is reset and handed out again,
+ * and a new node is created when pool is empty, so pool never runs out.
+ * {{{
+ *     thread local cache   | node | node |          no locking
+ *     shared pool          | node | node | ... |    guarded by lock, at most maxSize nodes are kept
+ * }}}
+ * Nodes move between cache of a thread and shared pool in batches, so threads building their own trees
+ * rarely meet on the lock. Each tree can also own a free list of its own, see {@link BTree#BTree(int)}.
  */
 public class FreeList {
 
 	private static final Logger logger= LoggerFactory.getLogger(FreeList.class);
 
-	protected Object lock=new Object();
+	protected final ReentrantLock lock=new ReentrantLock();
+
+	protected final ArrayDeque<Node> freeList;
+
+	private final ThreadLocal<ArrayDeque<Node>> localCache;
+
+	private final int maxSize;
 
-	protected int cursor=0;
+	private final int localCacheSize;
 
-	protected Node[] freeList;
+	private final LongAdder created=new LongAdder();
 
+	private final LongAdder reused=new LongAdder();
+
+	/**
+	 * Create a free list.
+	 * @param size numbers of nodes created at first
+	 * @param maxSize max numbers of free nodes kept by shared pool, more freed nodes are dropped
+	 * @param localCacheSize max numbers of free nodes kept by each thread
+	 */
+	public FreeList(int size,int maxSize,int localCacheSize){
+		if(size<0 || size>maxSize || localCacheSize<0){
+			throw new IllegalArgumentException("Illegal size of free list: "+size+"/"+maxSize);
+		}
+		this.maxSize=maxSize;
+		this.localCacheSize=localCacheSize;
+		this.freeList=new ArrayDeque<>(size);
+		this.localCache=ThreadLocal.withInitial(() -> new ArrayDeque<>(localCacheSize));
+		for (int i = 0; i < size; i++) {
+			freeList.push(new Node());
+		}
+		created.add(size);
+	}
 
 	/**
 	 * Create a free list with given capacity.
 	 * @param size
 	 */
 	public FreeList(int size){
-		freeList=new Node[size];
-		for (int i = 0; i < freeList.length; i++) {
-			freeList[i]=new Node();
-		}
-		cursor=size-1;
+		this(size,Math.max(size,Configuration.DEFAULT_NODE_FREELIST_MAX_SIZE),Configuration.DEFAULT_NODE_FREELIST_LOCAL_CACHE_SIZE);
 	}
 
 	/**
 	 * Create a free list with default capacity {@link Configuration} {@code FREELIST_DEFAULT_SIZE}.
 	 */
 	public FreeList(){
-		int size= Configuration.FREELIST_DEFAULT_SIZE;
-		freeList=new Node[size];
-		for (int i = 0; i < freeList.length; i++) {
-			freeList[i]=new Node();
-		}
-		cursor=size-1;
+		this(Configuration.FREELIST_DEFAULT_SIZE);
 	}
 
 	/**
-	 * This api can only for test, it can not be used from outside. And it will be removed soon.
-	 * @return free list info
+	 * Get an empty node from free list, a new node is created if free list is empty.
+	 * Node is bound to this free list, and nodes created by its split are taken from here too.
+	 * @return an available node
 	 */
-	@TestApi
-	@Deprecated
-	public Node[] getFreeList() {
-		return freeList;
+	public Node getCurrentNode(){
+		ArrayDeque<Node> cache=localCache.get();
+		Node node=cache.poll();
+		if(node==null){
+			node=refill(cache);
+		}
+		if(node==null){
+			node=new Node();
+			created.increment();
+		}else {
+			reused.increment();
+		}
+		node.freeList=this;
+		return node;
 	}
 
 	/**
-	 * Get node at current cursor from free list.
-	 * @return an available node
+	 * Recycle and reset node, node must not be referenced by any tree.
+	 * @param node freed node
+	 * @return whether recycle process is ok, when the pool is full, this method will return {@code false}
+	 * and node is left to gc.
 	 */
-	public synchronized Node getCurrentNode(){
-		return freeList[cursor--];
+	public boolean recycleNode(Node node){
+		node.reset();
+		ArrayDeque<Node> cache=localCache.get();
+		if(cache.size()<localCacheSize){
+			cache.push(node);
+			return true;
+		}
+		lock.lock();
+		try {
+			// move half of cache to shared pool in one go
+			for (int i = localCacheSize/2; i > 0 && freeList.size()<maxSize; i--) {
+				freeList.push(cache.pop());
+			}
+			if(cache.size()<localCacheSize){
+				cache.push(node);
+				return true;
+			}
+			if(freeList.size()<maxSize){
+				freeList.push(node);
+				return true;
+			}
+		}finally {
+			lock.unlock();
+		}
+		logger.debug("Free list is full, node is dropped.");
+		return false;
+	}
+
+	// move a batch of nodes from shared pool to cache, and take one of them
+	private Node refill(ArrayDeque<Node> cache){
+		lock.lock();
+		try {
+			Node node=freeList.poll();
+			for (int i = localCacheSize/2; i > 0 && !freeList.isEmpty(); i--) {
+				cache.push(freeList.pop());
+			}
+			return node;
+		}finally {
+			lock.unlock();
+		}
 	}
 
 	/**
-	 * Recycle and reset node. Please attention new node is not relevant to outside node.
-	 * Please free space of outside node.
-	 * @return whether recycle process is ok, when the pool is full, this method will return {@code false}.
+	 * Get numbers of free nodes in shared pool. Only for test.
+	 * @return free nodes
 	 */
-	public synchronized boolean recycleNode(){
-		if(cursor+1>=freeList.length)
-			return false;
-		freeList[++cursor]=new Node();
-		return true;
+	@TestApi
+	public int available() {
+		lock.lock();
+		try {
+			return freeList.size();
+		}finally {
+			lock.unlock();
+		}
 	}
 
+	/**
+	 * @return numbers of nodes created by this free list
+	 */
+	public long getCreated(){
+		return created.sum();
+	}
 
 	/**
-	 * Get the position of cursor, it can be used to known the available node in free list.
-	 * @return position of cursor
+	 * @return numbers of nodes handed out from pool, instead of created on demand
 	 */
-	@TestApi
-	public int getCursor() {
-		return cursor;
+	public long getReused(){
+		return reused.sum();
 	}
 }
@@ -0,0 +1,627 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.storage.codec.ColumnCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A node of {@link PagedBPlusTree} stored in a fixed-size page of index file. Entries are sorted by key,
+ * each of them holds place of its key and a long payload, which is the value in a leaf and the page id
+ * of right child in an internal node. Key bytes grow from end of page, so entries can be shifted cheaply.
+ * Keys of strings are compared as bytes, and bytes shared by all the keys of node are kept only once
+ * as prefix of node, so an entry only holds suffix of its key.
+ * {{{
+ *     0    int     type: leaf, inner or meta
+ *     4    int     numbers of entries
+ *     8    int     start of key heap
+ *     12   int     garbage bytes in key heap
+ *     16   long    next leaf page id in leaf, leftmost child page id in internal node
+ *     24   long    previous leaf page id in leaf
+ *     32   int     offset of prefix in key heap
+ *     36   int     bytes of prefix
+ *     40   entries | key offset (int) | key length (short) | posting length (short) | payload (long) | ...
+ *          ... free space ...
+ *          key heap, serialized by {@link ColumnCodec} of key type or suffix bytes, until end of page
+ * }}}
+ * Keys of removed entries are left in heap as garbage, until node needs their space.
+ * <p>
+ * An entry of leaf may keep a short posting list of a duplicate key right behind its key in heap,
+ * payload is the least row id and posting bytes are the other row ids as varint deltas in ascending order.
+ * A longer posting list is moved into posting pages, which hold sorted row ids instead of entries,
+ * pages of the same key are linked in ascending order of row ids:
+ * {{{
+ *     4    int     numbers of row ids
+ *     16   long    next posting page id
+ *     24   long    previous posting page id
+ *     40   row ids (long) | ...
+ * }}}
+ */
+class IndexPage extends Page {
+
+	static final int UNFORMATTED=0;
+
+	static final int LEAF=1;
+
+	static final int INNER=2;
+
+	static final int META=3;
+
+	static final int POSTING=4;
+
+	private static final int TYPE_OFFSET=0;
+
+	private static final int COUNT_OFFSET=4;
+
+	private static final int HEAP_OFFSET=8;
+
+	private static final int GARBAGE_OFFSET=12;
+
+	private static final int LINK_OFFSET=16;
+
+	private static final int PREV_OFFSET=24;
+
+	private static final int PREFIX_OFFSET=32;
+
+	private static final int PREFIX_LENGTH_OFFSET=36;
+
+	static final int HEADER_SIZE=40;
+
+	static final int ENTRY_SIZE=16;
+
+	static final long NONE=-1L;
+
+	private static final byte[] EMPTY=new byte[0];
+
+	IndexPage(long address,int capacity,File file){
+		super(address,capacity,file);
+	}
+
+	private IndexPage(long address,int capacity,File file,boolean empty){
+		super(address,capacity,file,empty);
+	}
+
+	/**
+	 * Read page from index file, its buffer is taken once and filled by file directly.
+	 */
+	static IndexPage read(long address,int capacity,File file) throws IOException {
+		IndexPage page=new IndexPage(address,capacity,file,false);
+		page.load();
+		return page;
+	}
+
+	/**
+	 * Index page is formatted when it is allocated by tree, untouched page is left as unformatted.
+	 */
+	@Override
+	protected void format() {
+		buffer.putInt(TYPE_OFFSET,UNFORMATTED);
+	}
+
+	@Override
+	protected void restore() {
+		// nop, node is read from buffer directly
+	}
+
+	ByteBuffer buffer(){
+		return buffer;
+	}
+
+	void format(int type){
+		buffer.putInt(TYPE_OFFSET,type);
+		buffer.putInt(COUNT_OFFSET,0);
+		buffer.putInt(HEAP_OFFSET,buffer.capacity());
+		buffer.putInt(GARBAGE_OFFSET,0);
+		buffer.putLong(LINK_OFFSET,NONE);
+		buffer.putLong(PREV_OFFSET,NONE);
+		buffer.putInt(PREFIX_OFFSET,buffer.capacity());
+		buffer.putInt(PREFIX_LENGTH_OFFSET,0);
+		changeState();
+	}
+
+	int type(){
+		return buffer.getInt(TYPE_OFFSET);
+	}
+
+	boolean isLeaf(){
+		return type()==LEAF;
+	}
+
+	int count(){
+		return buffer.getInt(COUNT_OFFSET);
+	}
+
+	long next(){
+		return buffer.getLong(LINK_OFFSET);
+	}
+
+	void setNext(long pageId){
+		buffer.putLong(LINK_OFFSET,pageId);
+		changeState();
+	}
+
+	long prev(){
+		return buffer.getLong(PREV_OFFSET);
+	}
+
+	void setPrev(long pageId){
+		buffer.putLong(PREV_OFFSET,pageId);
+		changeState();
+	}
+
+	long leftmost(){
+		return buffer.getLong(LINK_OFFSET);
+	}
+
+	void setLeftmost(long pageId){
+		buffer.putLong(LINK_OFFSET,pageId);
+		changeState();
+	}
+
+	private static int entry(int index){
+		return HEADER_SIZE+index*ENTRY_SIZE;
+	}
+
+	int keyOffset(int index){
+		return buffer.getInt(entry(index));
+	}
+
+	int keyLength(int index){
+		return buffer.getShort(entry(index)+4)&0xffff;
+	}
+
+	/**
+	 * Get bytes of posting list behind key of entry, it is 0 unless key holds an inline posting list.
+	 */
+	int postingLength(int index){
+		return buffer.getShort(entry(index)+6)&0xffff;
+	}
+
+	int postingOffset(int index){
+		return keyOffset(index)+keyLength(index);
+	}
+
+	// bytes of entry in heap
+	private int recordLength(int index){
+		return keyLength(index)+postingLength(index);
+	}
+
+	Value key(int index,ColumnCodec codec){
+		return codec.read(buffer,keyOffset(index));
+	}
+
+	long payload(int index){
+		return buffer.getLong(entry(index)+8);
+	}
+
+	void setPayload(int index,long payload){
+		buffer.putLong(entry(index)+8,payload);
+		changeState();
+	}
+
+	/**
+	 * Get child page id for index of child, child 0 is the leftmost one.
+	 */
+	long child(int index){
+		return index==0?leftmost():payload(index-1);
+	}
+
+	/**
+	 * Locate key by binary search.
+	 * @return index of key if found, or else {@code -(insertion point + 1)}
+	 */
+	int locate(Value key,ColumnCodec codec){
+		int low=0;
+		int high=count()-1;
+		while (low<=high){
+			int mid=(low+high)>>>1;
+			Value current=key(mid,codec);
+			if(key.less(current)){
+				high=mid-1;
+			}else if(current.less(key)){
+				low=mid+1;
+			}else {
+				return mid;
+			}
+		}
+		return -(low+1);
+	}
+
+	/**
+	 * Get index of child whose subtree may hold given key.
+	 */
+	int childIndex(Value key,ColumnCodec codec){
+		int located=locate(key,codec);
+		return located>=0?located+1:-(located+1);
+	}
+
+	int freeSpace(){
+		return buffer.getInt(HEAP_OFFSET)-entry(count());
+	}
+
+	/**
+	 * Check whether an entry of given key bytes can be inserted, garbage is counted as free space.
+	 */
+	boolean fits(int keyLength){
+		return freeSpace()+buffer.getInt(GARBAGE_OFFSET)>=ENTRY_SIZE+keyLength;
+	}
+
+	void insert(int index,ByteBuffer keys,int keyOffset,int keyLength,long payload){
+		insert(index,keys,keyOffset,keyLength,0,payload);
+	}
+
+	/**
+	 * Insert entry at index, caller must check space by {@link #fits(int)} first.
+	 * @param index index of entry
+	 * @param keys buffer holding serialized key, followed by posting bytes
+	 * @param keyOffset offset of key in buffer
+	 * @param keyLength bytes of key
+	 * @param postingLength bytes of inline posting list behind key
+	 * @param payload value, the least row id, or child page id
+	 */
+	void insert(int index,ByteBuffer keys,int keyOffset,int keyLength,int postingLength,long payload){
+		int length=keyLength+postingLength;
+		if(freeSpace()<ENTRY_SIZE+length){
+			compact();
+		}
+		int count=count();
+		int heap=buffer.getInt(HEAP_OFFSET)-length;
+		for (int i = 0; i < length; i++) {
+			buffer.put(heap+i,keys.get(keyOffset+i));
+		}
+		// shift entries behind index
+		for (int i = count; i > index; i--) {
+			copyEntry(i-1,i);
+		}
+		buffer.putInt(entry(index),heap);
+		buffer.putShort(entry(index)+4,(short) keyLength);
+		buffer.putShort(entry(index)+6,(short) postingLength);
+		buffer.putLong(entry(index)+8,payload);
+		buffer.putInt(HEAP_OFFSET,heap);
+		buffer.putInt(COUNT_OFFSET,count+1);
+		changeState();
+	}
+
+	/**
+	 * Remove entry at index, its key bytes become garbage.
+	 */
+	void remove(int index){
+		int count=count();
+		buffer.putInt(GARBAGE_OFFSET,buffer.getInt(GARBAGE_OFFSET)+recordLength(index));
+		for (int i = index; i < count-1; i++) {
+			copyEntry(i+1,i);
+		}
+		buffer.putInt(COUNT_OFFSET,count-1);
+		changeState();
+	}
+
+	private void copyEntry(int from,int to){
+		buffer.putInt(entry(to),buffer.getInt(entry(from)));
+		// key length and posting length
+		buffer.putInt(entry(to)+4,buffer.getInt(entry(from)+4));
+		buffer.putLong(entry(to)+8,buffer.getLong(entry(from)+8));
+	}
+
+	/**
+	 * Move entries from index to the end to an empty node, and drop them from this node.
+	 * Empty node takes the same prefix as this node.
+	 */
+	void moveTo(int from,IndexPage right){
+		right.copyPrefix(this);
+		int count=count();
+		for (int i = from; i < count; i++) {
+			right.insert(i-from,buffer,keyOffset(i),keyLength(i),postingLength(i),payload(i));
+		}
+		truncate(from);
+	}
+
+	/**
+	 * Drop entries from index to the end.
+	 */
+	void truncate(int from){
+		int garbage=buffer.getInt(GARBAGE_OFFSET);
+		for (int i = from; i < count(); i++) {
+			garbage+=recordLength(i);
+		}
+		buffer.putInt(GARBAGE_OFFSET,garbage);
+		buffer.putInt(COUNT_OFFSET,from);
+		changeState();
+	}
+
+	/**
+	 * Get index to split node at, entries before it take about a half of used bytes.
+	 */
+	int splitIndex(){
+		int count=count();
+		int total=0;
+		for (int i = 0; i < count; i++) {
+			total+=ENTRY_SIZE+recordLength(i);
+		}
+		int used=0;
+		for (int i = 0; i < count; i++) {
+			used+=ENTRY_SIZE+recordLength(i);
+			if(used*2>=total){
+				return Math.max(1,Math.min(i,count-1));
+			}
+		}
+		return count/2;
+	}
+
+	/**
+	 * Rewrite key heap without garbage, it replaces compaction of slotted page.
+	 */
+	@Override
+	public synchronized void compact(){
+		if(buffer.getInt(GARBAGE_OFFSET)==0){
+			return;
+		}
+		int count=count();
+		int end=buffer.capacity();
+		byte[] heap=new byte[end-buffer.getInt(HEAP_OFFSET)];
+		int top=heap.length;
+		for (int i = -1; i < count; i++) {
+			// prefix is moved as the first key
+			int offset=i<0?buffer.getInt(PREFIX_OFFSET):keyOffset(i);
+			int length=i<0?prefixLength():recordLength(i);
+			top-=length;
+			for (int j = 0; j < length; j++) {
+				heap[top+j]=buffer.get(offset+j);
+			}
+			buffer.putInt(i<0?PREFIX_OFFSET:entry(i),end-heap.length+top);
+		}
+		for (int i = top; i < heap.length; i++) {
+			buffer.put(end-heap.length+i,heap[i]);
+		}
+		buffer.putInt(HEAP_OFFSET,end-heap.length+top);
+		buffer.putInt(GARBAGE_OFFSET,0);
+		changeState();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Keys compared as bytes
+	///////////////////////////////////////////////////////////////////////////
+
+	int prefixLength(){
+		return buffer.getInt(PREFIX_LENGTH_OFFSET);
+	}
+
+	/**
+	 * Get the whole key of entry, including prefix of node.
+	 */
+	byte[] fullKey(int index){
+		int prefix=prefixLength();
+		int prefixOffset=buffer.getInt(PREFIX_OFFSET);
+		int offset=keyOffset(index);
+		byte[] key=new byte[prefix+keyLength(index)];
+		for (int i = 0; i < prefix; i++) {
+			key[i]=buffer.get(prefixOffset+i);
+		}
+		for (int i = prefix; i < key.length; i++) {
+			key[i]=buffer.get(offset+i-prefix);
+		}
+		return key;
+	}
+
+	/**
+	 * Compare key with suffix of entry as unsigned bytes, the first {@code from} bytes of key are skipped.
+	 */
+	private int compareSuffix(int index,byte[] key,int from){
+		int offset=keyOffset(index);
+		int length=keyLength(index);
+		int common=Math.min(length,key.length-from);
+		for (int i = 0; i < common; i++) {
+			int a=key[from+i]&0xff;
+			int b=buffer.get(offset+i)&0xff;
+			if(a!=b){
+				return a-b;
+			}
+		}
+		return (key.length-from)-length;
+	}
+
+	/**
+	 * Locate key by binary search on bytes.
+	 * @return index of key if found, or else {@code -(insertion point + 1)}
+	 */
+	int locate(byte[] key){
+		int prefix=prefixLength();
+		int prefixOffset=buffer.getInt(PREFIX_OFFSET);
+		// all the keys of node start with prefix, so a key without it is out of node
+		for (int i = 0; i < prefix; i++) {
+			int a=i<key.length?key[i]&0xff:-1;
+			int b=buffer.get(prefixOffset+i)&0xff;
+			if(a!=b){
+				return a<b?-1:-(count()+1);
+			}
+		}
+		int low=0;
+		int high=count()-1;
+		while (low<=high){
+			int mid=(low+high)>>>1;
+			int compared=compareSuffix(mid,key,prefix);
+			if(compared<0){
+				high=mid-1;
+			}else if(compared>0){
+				low=mid+1;
+			}else {
+				return mid;
+			}
+		}
+		return -(low+1);
+	}
+
+	int childIndex(byte[] key){
+		int located=locate(key);
+		return located>=0?located+1:-(located+1);
+	}
+
+	boolean fits(byte[] key){
+		return fits(key.length-prefixLength());
+	}
+
+	boolean fits(byte[] key,byte[] posting){
+		return fits(key.length-prefixLength()+posting.length);
+	}
+
+	void insert(int index,byte[] key,long payload){
+		insert(index,key,EMPTY,payload);
+	}
+
+	/**
+	 * Insert a whole key followed by inline posting list, only suffix of key behind prefix of node is stored.
+	 */
+	void insert(int index,byte[] key,byte[] posting,long payload){
+		int prefix=prefixLength();
+		if(key.length<prefix){
+			throw new IllegalStateException("Key is out of range of node:"+getPageId());
+		}
+		byte[] record=key;
+		if(posting.length>0){
+			record=Arrays.copyOf(key,key.length+posting.length);
+			System.arraycopy(posting,0,record,key.length,posting.length);
+		}
+		insert(index,ByteBuffer.wrap(record),prefix,key.length-prefix,posting.length,payload);
+	}
+
+	/**
+	 * Take a longer prefix when range of node is narrowed by split, all the keys of node must start with
+	 * the first {@code length} bytes of its first key. Suffixes are only shortened in place.
+	 */
+	void growPrefix(int length){
+		int prefix=prefixLength();
+		int count=count();
+		if(length<=prefix || count==0){
+			return;
+		}
+		byte[] bytes=fullKey(0);
+		if(!fits(length)){
+			return;
+		}
+		// old prefix becomes garbage
+		insertPrefix(bytes,length);
+		int delta=length-prefix;
+		for (int i = 0; i < count; i++) {
+			buffer.putInt(entry(i),keyOffset(i)+delta);
+			buffer.putShort(entry(i)+4,(short) (keyLength(i)-delta));
+		}
+		buffer.putInt(GARBAGE_OFFSET,buffer.getInt(GARBAGE_OFFSET)+prefix+count*delta);
+		changeState();
+	}
+
+	/**
+	 * Copy prefix of another node, it is used by an empty node taking entries of a node being split.
+	 */
+	void copyPrefix(IndexPage other){
+		int length=other.prefixLength();
+		if(length==0){
+			return;
+		}
+		byte[] bytes=new byte[length];
+		int offset=other.buffer.getInt(PREFIX_OFFSET);
+		for (int i = 0; i < length; i++) {
+			bytes[i]=other.buffer.get(offset+i);
+		}
+		insertPrefix(bytes,length);
+	}
+
+	private void insertPrefix(byte[] bytes,int length){
+		if(freeSpace()<length){
+			compact();
+		}
+		int heap=buffer.getInt(HEAP_OFFSET)-length;
+		for (int i = 0; i < length; i++) {
+			buffer.put(heap+i,bytes[i]);
+		}
+		buffer.putInt(HEAP_OFFSET,heap);
+		buffer.putInt(PREFIX_OFFSET,heap);
+		buffer.putInt(PREFIX_LENGTH_OFFSET,length);
+		changeState();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Row ids of posting page
+	///////////////////////////////////////////////////////////////////////////
+
+	int rowIdCapacity(){
+		return (buffer.capacity()-HEADER_SIZE)/8;
+	}
+
+	long rowId(int index){
+		return buffer.getLong(HEADER_SIZE+8*index);
+	}
+
+	/**
+	 * Locate row id by binary search.
+	 * @return index of row id if found, or else {@code -(insertion point + 1)}
+	 */
+	int locateRowId(long rowId){
+		int low=0;
+		int high=count()-1;
+		while (low<=high){
+			int mid=(low+high)>>>1;
+			long id=rowId(mid);
+			if(id<rowId){
+				low=mid+1;
+			}else if(id>rowId){
+				high=mid-1;
+			}else {
+				return mid;
+			}
+		}
+		return -(low+1);
+	}
+
+	/**
+	 * Insert row id at index, caller must check that page is not full.
+	 */
+	void insertRowId(int index,long rowId){
+		int count=count();
+		for (int i = count; i > index; i--) {
+			buffer.putLong(HEADER_SIZE+8*i,rowId(i-1));
+		}
+		buffer.putLong(HEADER_SIZE+8*index,rowId);
+		buffer.putInt(COUNT_OFFSET,count+1);
+		changeState();
+	}
+
+	void removeRowId(int index){
+		int count=count();
+		for (int i = index; i < count-1; i++) {
+			buffer.putLong(HEADER_SIZE+8*i,rowId(i+1));
+		}
+		buffer.putInt(COUNT_OFFSET,count-1);
+		changeState();
+	}
+
+	/**
+	 * Move row ids from index to the end to an empty posting page.
+	 */
+	void moveRowIdsTo(int from,IndexPage right){
+		int count=count();
+		for (int i = from; i < count; i++) {
+			right.insertRowId(i-from,rowId(i));
+		}
+		buffer.putInt(COUNT_OFFSET,from);
+		changeState();
+	}
+}
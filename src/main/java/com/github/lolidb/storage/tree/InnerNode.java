@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+/**
+ * Internal node of {@link BPlusTree}, it holds separators only.
+ * {{{
+ *     children[i]  <  keys[i]  <=  children[i+1]
+ * }}}
+ * A separator is not removed with its value, it still divides the subtrees.
+ */
+class InnerNode extends BPlusNode {
+
+	protected final BPlusNode[] children;
+
+	InnerNode(int maxValues){
+		super(maxValues);
+		children=new BPlusNode[maxValues+2];
+	}
+
+	@Override
+	boolean isLeaf() {
+		return false;
+	}
+
+	/**
+	 * Get index of child whose subtree may hold given key.
+	 */
+	int childIndex(Value key){
+		int located=locate(key);
+		return located>=0?located+1:-(located+1);
+	}
+
+	/**
+	 * Insert separator and its right child after child at {@code index}.
+	 */
+	void insertChild(int index,Value separator,BPlusNode right){
+		System.arraycopy(keys,index,keys,index+1,size-index);
+		System.arraycopy(children,index+1,children,index+2,size-index);
+		keys[index]=separator;
+		children[index+1]=right;
+		size++;
+	}
+
+	/**
+	 * Remove separator at {@code index} and the child on its right.
+	 */
+	void removeChild(int index){
+		System.arraycopy(keys,index+1,keys,index,size-index-1);
+		System.arraycopy(children,index+2,children,index+1,size-index-1);
+		keys[size-1]=null;
+		children[size]=null;
+		size--;
+	}
+
+	/**
+	 * Move upper half of separators and children to a new right node, the middle separator is moved up.
+	 * @return right node
+	 */
+	InnerNode split(){
+		InnerNode right=new InnerNode(keys.length-1);
+		int mid=size/2;
+		right.size=size-mid-1;
+		System.arraycopy(keys,mid+1,right.keys,0,right.size);
+		System.arraycopy(children,mid+1,right.children,0,right.size+1);
+		for (int i = mid; i < size; i++) {
+			keys[i]=null;
+			children[i+1]=null;
+		}
+		size=mid;
+		return right;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage.tree;
+
+/**
+ * Leaf of {@link BPlusTree}, all the values of tree are kept in leaves.
+ * Leaves are linked in key order, so a range is read by walking through siblings.
+ */
+class LeafNode extends BPlusNode {
+
+	protected LeafNode prev;
+
+	protected LeafNode next;
+
+	LeafNode(int maxValues){
+		super(maxValues);
+	}
+
+	@Override
+	boolean isLeaf() {
+		return true;
+	}
+
+	void insertAt(int index,Value value){
+		System.arraycopy(keys,index,keys,index+1,size-index);
+		keys[index]=value;
+		size++;
+	}
+
+	Value removeAt(int index){
+		Value removal=keys[index];
+		System.arraycopy(keys,index+1,keys,index,size-index-1);
+		keys[--size]=null;
+		return removal;
+	}
+
+	/**
+	 * Move upper half of values to a new right sibling, and link it after this leaf.
+	 * @return right sibling, its first key is the separator in parent
+	 */
+	LeafNode split(){
+		LeafNode right=new LeafNode(keys.length-1);
+		int from=size/2;
+		right.size=size-from;
+		System.arraycopy(keys,from,right.keys,0,right.size);
+		for (int i = from; i < size; i++) {
+			keys[i]=null;
+		}
+		size=from;
+
+		right.next=next;
+		right.prev=this;
+		if(next!=null){
+			next.prev=right;
+		}
+		next=right;
+		return right;
+	}
+
+	/**
+	 * Append all the values of right sibling to this leaf, and unlink right sibling.
+	 */
+	void merge(LeafNode right){
+		System.arraycopy(right.keys,0,keys,size,right.size);
+		size+=right.size;
+		next=right.next;
+		if(next!=null){
+			next.prev=this;
+		}
+	}
+}
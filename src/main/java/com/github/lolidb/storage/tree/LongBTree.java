@@ -0,0 +1,582 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage.tree;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * B+ Tree specialized for long keys and long values, such as surrogate keys mapped to row addresses.
+ * It has the same shape as {@link BPlusTree}, but a node keeps keys and values in {@code long[]} arrays,
+ * so a key takes 16 bytes instead of a {@link Value} object, and binary search walks through
+ * a contiguous array without any virtual call.
+ * {{{
+ *     leaf:    keys   [ k0 | k1 | ... ]    long[]
+ *              values [ v0 | v1 | ... ]    long[]
+ *     inner:   keys   [ s0 | s1 | ... ]    long[]
+ *              children [ c0 | c1 | c2 | ... ]
+ * }}}
+ * A value can not be {@link #NOT_FOUND}, which tells a missing key. This tree is not thread safe.
+ */
+public class LongBTree {
+
+	public static final long NOT_FOUND=-1L;
+
+	private final int degree;
+
+	private int length;
+
+	private LongNode root;
+
+	// numbers of modifications, cursors fail when tree is modified
+	private int modCount;
+
+	// separator and right node of the last split, valid only while inserting
+	private long promoted;
+
+	private LongNode split;
+
+	// value replaced by the last insertion
+	private long replaced;
+
+	public LongBTree(int degree){
+		if(degree<2){
+			throw new IllegalArgumentException("Degree of b+ tree must be at least 2.");
+		}
+		this.degree=degree;
+		this.root=new LongLeaf(maxValues());
+	}
+
+	public int maxValues(){
+		return degree*2-1;
+	}
+
+	public int minValues(){
+		return degree-1;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Insertion
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Replace or insert a key into tree.
+	 * @param key inserted key
+	 * @param value value of key
+	 * @return replaced value, or {@link #NOT_FOUND} if key is new
+	 */
+	public long replaceOrInsert(long key,long value){
+		if(value==NOT_FOUND){
+			throw new IllegalArgumentException("Value can not be "+NOT_FOUND);
+		}
+		modCount++;
+		replaced=NOT_FOUND;
+		if(insert(root,key,value)){
+			// root is split, tree grows by one level
+			LongInner newRoot=new LongInner(maxValues());
+			newRoot.keys[0]=promoted;
+			newRoot.children[0]=root;
+			newRoot.children[1]=split;
+			newRoot.size=1;
+			root=newRoot;
+			split=null;
+		}
+		return replaced;
+	}
+
+	/**
+	 * Insert key into subtree.
+	 * @return true if node is split, its separator and right node are kept in {@code promoted} and {@code split}
+	 */
+	private boolean insert(LongNode node,long key,long value){
+		int located=locate(node.keys,node.size,key);
+		if(node.isLeaf()){
+			LongLeaf leaf=(LongLeaf) node;
+			if(located>=0){
+				replaced=leaf.values[located];
+				leaf.values[located]=value;
+				return false;
+			}
+			leaf.insertAt(-(located+1),key,value);
+			length++;
+			if(leaf.size<=maxValues()){
+				return false;
+			}
+			LongLeaf right=leaf.split();
+			promoted=right.keys[0];
+			split=right;
+			return true;
+		}
+
+		LongInner inner=(LongInner) node;
+		int index=located>=0?located+1:-(located+1);
+		if(!insert(inner.children[index],key,value)){
+			return false;
+		}
+		inner.insertChild(index,promoted,split);
+		if(inner.size<=maxValues()){
+			return false;
+		}
+		promoted=inner.keys[inner.size/2];
+		split=inner.split();
+		return true;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Removal
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Remove key from tree.
+	 * @param key removed key
+	 * @return value of removed key, or {@link #NOT_FOUND} if it is not found
+	 */
+	public long remove(long key){
+		modCount++;
+		long removal=remove(root,key);
+		if(!root.isLeaf() && root.size==0){
+			// root has only one child, tree shrinks by one level
+			root=((LongInner) root).children[0];
+		}
+		return removal;
+	}
+
+	private long remove(LongNode node,long key){
+		int located=locate(node.keys,node.size,key);
+		if(node.isLeaf()){
+			if(located<0){
+				return NOT_FOUND;
+			}
+			length--;
+			return ((LongLeaf) node).removeAt(located);
+		}
+
+		LongInner inner=(LongInner) node;
+		int index=located>=0?located+1:-(located+1);
+		long removal=remove(inner.children[index],key);
+		if(removal!=NOT_FOUND && inner.children[index].size<minValues()){
+			rebalance(inner,index);
+		}
+		return removal;
+	}
+
+	/**
+	 * Fix child of parent which has too few keys, by borrowing from a sibling or merging with it.
+	 */
+	private void rebalance(LongInner parent,int index){
+		LongNode child=parent.children[index];
+		LongNode left=index>0?parent.children[index-1]:null;
+		LongNode right=index<parent.size?parent.children[index+1]:null;
+
+		if(left!=null && left.size>minValues()){
+			borrowFromLeft(parent,index,left,child);
+		}else if(right!=null && right.size>minValues()){
+			borrowFromRight(parent,index,child,right);
+		}else if(left!=null){
+			merge(parent,index-1,left,child);
+		}else if(right!=null){
+			merge(parent,index,child,right);
+		}
+	}
+
+	private void borrowFromLeft(LongInner parent,int index,LongNode left,LongNode child){
+		System.arraycopy(child.keys,0,child.keys,1,child.size);
+		if(child.isLeaf()){
+			LongLeaf c=(LongLeaf) child;
+			LongLeaf l=(LongLeaf) left;
+			System.arraycopy(c.values,0,c.values,1,c.size);
+			c.keys[0]=l.keys[l.size-1];
+			c.values[0]=l.values[l.size-1];
+			parent.keys[index-1]=c.keys[0];
+		}else {
+			LongInner c=(LongInner) child;
+			LongInner l=(LongInner) left;
+			System.arraycopy(c.children,0,c.children,1,c.size+1);
+			c.keys[0]=parent.keys[index-1];
+			c.children[0]=l.children[l.size];
+			l.children[l.size]=null;
+			parent.keys[index-1]=l.keys[l.size-1];
+		}
+		left.size--;
+		child.size++;
+	}
+
+	private void borrowFromRight(LongInner parent,int index,LongNode child,LongNode right){
+		if(child.isLeaf()){
+			LongLeaf c=(LongLeaf) child;
+			LongLeaf r=(LongLeaf) right;
+			c.keys[c.size]=r.keys[0];
+			c.values[c.size]=r.values[0];
+			System.arraycopy(r.keys,1,r.keys,0,r.size-1);
+			System.arraycopy(r.values,1,r.values,0,r.size-1);
+			parent.keys[index]=r.keys[0];
+		}else {
+			LongInner c=(LongInner) child;
+			LongInner r=(LongInner) right;
+			c.keys[c.size]=parent.keys[index];
+			c.children[c.size+1]=r.children[0];
+			parent.keys[index]=r.keys[0];
+			System.arraycopy(r.keys,1,r.keys,0,r.size-1);
+			System.arraycopy(r.children,1,r.children,0,r.size);
+			r.children[r.size]=null;
+		}
+		right.size--;
+		child.size++;
+	}
+
+	/**
+	 * Merge right node into left node, and remove separator between them from parent.
+	 */
+	private void merge(LongInner parent,int index,LongNode left,LongNode right){
+		if(left.isLeaf()){
+			((LongLeaf) left).merge((LongLeaf) right);
+		}else {
+			LongInner l=(LongInner) left;
+			LongInner r=(LongInner) right;
+			l.keys[l.size]=parent.keys[index];
+			System.arraycopy(r.keys,0,l.keys,l.size+1,r.size);
+			System.arraycopy(r.children,0,l.children,l.size+1,r.size+1);
+			l.size+=r.size+1;
+		}
+		parent.removeChild(index);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Locate key by binary search.
+	 * @return index of key if found, or else {@code -(insertion point + 1)}
+	 */
+	static int locate(long[] keys,int size,long key){
+		int low=0;
+		int high=size-1;
+		while (low<=high){
+			int mid=(low+high)>>>1;
+			long current=keys[mid];
+			if(current<key){
+				low=mid+1;
+			}else if(current>key){
+				high=mid-1;
+			}else {
+				return mid;
+			}
+		}
+		return -(low+1);
+	}
+
+	private LongLeaf findLeaf(long key){
+		LongNode node=root;
+		while (!node.isLeaf()){
+			LongInner inner=(LongInner) node;
+			int located=locate(inner.keys,inner.size,key);
+			node=inner.children[located>=0?located+1:-(located+1)];
+		}
+		return (LongLeaf) node;
+	}
+
+	private LongLeaf edgeLeaf(boolean first){
+		LongNode node=root;
+		while (!node.isLeaf()){
+			LongInner inner=(LongInner) node;
+			node=inner.children[first?0:inner.size];
+		}
+		return (LongLeaf) node;
+	}
+
+	/**
+	 * Get value of key.
+	 * @param key searched key
+	 * @return value, or {@link #NOT_FOUND} if key is not in tree
+	 */
+	public long get(long key){
+		LongLeaf leaf=findLeaf(key);
+		int located=locate(leaf.keys,leaf.size,key);
+		return located>=0?leaf.values[located]:NOT_FOUND;
+	}
+
+	public boolean contain(long key){
+		return get(key)!=NOT_FOUND;
+	}
+
+	/**
+	 * @throws NoSuchElementException if tree is empty
+	 */
+	public long min(){
+		LongLeaf leaf=edgeLeaf(true);
+		if(leaf.size==0)
+			throw new NoSuchElementException();
+		return leaf.keys[0];
+	}
+
+	/**
+	 * @throws NoSuchElementException if tree is empty
+	 */
+	public long max(){
+		LongLeaf leaf=edgeLeaf(false);
+		if(leaf.size==0)
+			throw new NoSuchElementException();
+		return leaf.keys[leaf.size-1];
+	}
+
+	/**
+	 * Fetch keys in range {@code from} -> {@code to}.
+	 * @param from start key
+	 * @param to end key
+	 * @param hasStart whether can be from
+	 * @param hasEnd whether can be to
+	 * @return keys in ascending order
+	 */
+	public long[] range(long from,long to,boolean hasStart,boolean hasEnd){
+		long[] res=new long[16];
+		int size=0;
+		for (Cursor cursor=cursor(from,to,hasStart,hasEnd,OrderRule.ASCEND);cursor.next();) {
+			if(size==res.length){
+				res=Arrays.copyOf(res,size*2);
+			}
+			res[size++]=cursor.key();
+		}
+		return Arrays.copyOf(res,size);
+	}
+
+	/**
+	 * Iterate keys and values in range {@code from} -> {@code to} lazily without boxing them.
+	 * Use {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} with inclusive bounds for an open range.
+	 * {{{
+	 *     for (LongBTree.Cursor cursor = tree.cursor(from, to, true, false, OrderRule.ASCEND); cursor.next();) {
+	 *         long key = cursor.key();
+	 *         long value = cursor.value();
+	 *     }
+	 * }}}
+	 * @param order ascending from {@code from}, or descending from {@code to}
+	 */
+	public Cursor cursor(long from,long to,boolean hasStart,boolean hasEnd,OrderRule order){
+		return new Cursor(from,to,hasStart,hasEnd,order);
+	}
+
+	public int size(){
+		return length;
+	}
+
+	/**
+	 * @return numbers of levels, a tree with a single leaf has height 1
+	 */
+	public int height(){
+		int height=1;
+		for (LongNode node=root;!node.isLeaf();node=((LongInner) node).children[0]) {
+			height++;
+		}
+		return height;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Cursor
+	///////////////////////////////////////////////////////////////////////////
+	public class Cursor {
+
+		private final int expectedModCount=modCount;
+
+		private final boolean ascend;
+
+		private final long stop;
+
+		private final boolean includeStop;
+
+		private LongLeaf leaf;
+
+		// index of next entry in leaf
+		private int index;
+
+		private long key;
+
+		private long value;
+
+		private Cursor(long from,long to,boolean hasStart,boolean hasEnd,OrderRule order){
+			this.ascend=order==OrderRule.ASCEND;
+			long start=ascend?from:to;
+			boolean inclusive=ascend?hasStart:hasEnd;
+			this.stop=ascend?to:from;
+			this.includeStop=ascend?hasEnd:hasStart;
+
+			leaf=findLeaf(start);
+			int located=locate(leaf.keys,leaf.size,start);
+			if(located>=0){
+				index=inclusive?located:(ascend?located+1:located-1);
+			}else {
+				index=ascend?-(located+1):-(located+1)-1;
+			}
+		}
+
+		/**
+		 * Move to the next entry.
+		 * @return false if there is no more entry in range
+		 */
+		public boolean next(){
+			if(expectedModCount!=modCount)
+				throw new ConcurrentModificationException();
+			while (leaf!=null && (index<0 || index>=leaf.size)){
+				leaf=ascend?leaf.next:leaf.prev;
+				if(leaf!=null){
+					index=ascend?0:leaf.size-1;
+				}
+			}
+			if(leaf==null)
+				return false;
+			long current=leaf.keys[index];
+			if(ascend?(current>stop || (current==stop && !includeStop)):(current<stop || (current==stop && !includeStop))){
+				leaf=null;
+				return false;
+			}
+			key=current;
+			value=leaf.values[index];
+			index+=ascend?1:-1;
+			return true;
+		}
+
+		public long key(){
+			return key;
+		}
+
+		public long value(){
+			return value;
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Nodes
+	///////////////////////////////////////////////////////////////////////////
+	private abstract static class LongNode {
+
+		final long[] keys;
+
+		int size;
+
+		LongNode(int maxValues){
+			keys=new long[maxValues+1];
+		}
+
+		abstract boolean isLeaf();
+	}
+
+	private static final class LongLeaf extends LongNode {
+
+		final long[] values;
+
+		LongLeaf prev;
+
+		LongLeaf next;
+
+		LongLeaf(int maxValues){
+			super(maxValues);
+			values=new long[maxValues+1];
+		}
+
+		@Override
+		boolean isLeaf() {
+			return true;
+		}
+
+		void insertAt(int index,long key,long value){
+			System.arraycopy(keys,index,keys,index+1,size-index);
+			System.arraycopy(values,index,values,index+1,size-index);
+			keys[index]=key;
+			values[index]=value;
+			size++;
+		}
+
+		long removeAt(int index){
+			long removal=values[index];
+			System.arraycopy(keys,index+1,keys,index,size-index-1);
+			System.arraycopy(values,index+1,values,index,size-index-1);
+			size--;
+			return removal;
+		}
+
+		LongLeaf split(){
+			LongLeaf right=new LongLeaf(keys.length-1);
+			int from=size/2;
+			right.size=size-from;
+			System.arraycopy(keys,from,right.keys,0,right.size);
+			System.arraycopy(values,from,right.values,0,right.size);
+			size=from;
+			right.next=next;
+			right.prev=this;
+			if(next!=null){
+				next.prev=right;
+			}
+			next=right;
+			return right;
+		}
+
+		void merge(LongLeaf right){
+			System.arraycopy(right.keys,0,keys,size,right.size);
+			System.arraycopy(right.values,0,values,size,right.size);
+			size+=right.size;
+			next=right.next;
+			if(next!=null){
+				next.prev=this;
+			}
+		}
+	}
+
+	private static final class LongInner extends LongNode {
+
+		final LongNode[] children;
+
+		LongInner(int maxValues){
+			super(maxValues);
+			children=new LongNode[maxValues+2];
+		}
+
+		@Override
+		boolean isLeaf() {
+			return false;
+		}
+
+		void insertChild(int index,long separator,LongNode right){
+			System.arraycopy(keys,index,keys,index+1,size-index);
+			System.arraycopy(children,index+1,children,index+2,size-index);
+			keys[index]=separator;
+			children[index+1]=right;
+			size++;
+		}
+
+		void removeChild(int index){
+			System.arraycopy(keys,index+1,keys,index,size-index-1);
+			System.arraycopy(children,index+2,children,index+1,size-index-1);
+			children[size]=null;
+			size--;
+		}
+
+		LongInner split(){
+			LongInner right=new LongInner(keys.length-1);
+			int mid=size/2;
+			right.size=size-mid-1;
+			System.arraycopy(keys,mid+1,right.keys,0,right.size);
+			System.arraycopy(children,mid+1,right.children,0,right.size+1);
+			for (int i = mid+1; i <= size; i++) {
+				children[i]=null;
+			}
+			size=mid;
+			return right;
+		}
+	}
+}
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -36,7 +37,7 @@ import java.util.List;
  * And this class provide insert,remove,query and update {@link Value} into this node given known limit n.
  * What's more, provide query value on leaf node as a B tree.
  *
- * todo change to B+ tree, so it will easy to query range.
+ * {@link BPlusTree} keeps values in linked leaves, so it is easy to query range.
  */
 public class Node implements Cloneable, Serializable {
 
@@ -56,6 +57,11 @@ public class Node implements Cloneable, Serializable {
 
 	protected int valueNums;
 
+	/**
+	 * Free list this node is taken from, new nodes of split are taken from it too.
+	 */
+	protected transient FreeList freeList;
+
 	///////////////////////////////////////////////////////////////////////////
 	// Constructor
 	///////////////////////////////////////////////////////////////////////////
@@ -76,11 +82,34 @@ public class Node implements Cloneable, Serializable {
 	// Get/Set lazy init
 	///////////////////////////////////////////////////////////////////////////
 	public Node setValuesSize(int size){
-		values=new Value[size+1];
-		children=new Node[size+1];
+		// arrays of a reused node are kept if they have the same size
+		if(values==null || values.length!=size+1){
+			values=new Value[size+1];
+			children=new Node[size+1];
+		}
 		return this;
 	}
 
+	/**
+	 * Clear this node, so it can be reused by free list.
+	 */
+	void reset(){
+		if(values!=null){
+			Arrays.fill(values,null);
+			Arrays.fill(children,null);
+		}
+		parent=null;
+		childNums=0;
+		valueNums=0;
+	}
+
+	/**
+	 * Get free list of this node, a node not created by free list uses the global one.
+	 */
+	private FreeList pool(){
+		return freeList==null?FreeListFactory.get():freeList;
+	}
+
 	///////////////////////////////////////////////////////////////////////////
 	// Basic Operation
 	///////////////////////////////////////////////////////////////////////////
@@ -99,20 +128,15 @@ public class Node implements Cloneable, Serializable {
 
 		if(valueNums<maxValues){
 			// directly insert
-			Tuple2<Location, Integer> locate = locate(value);
+			int located = locate(value);
 
-			if(locate.get(0)==Location.NONE){
-				values[0]=value;
-				valueNums++;
-				return this;
-			}else if(locate.get(0).equals(Location.VALUE)){
+			if(located>=0){
 				// replace exist value
-				index= (int) locate.get(1);
-				values[index]=value;
+				values[located]=value;
 				return this;
 			}else {
 				// this is a node value
-				index= (int) locate.get(1);
+				index= position(located);
 
 				if(children[index]==null){
 					for (int i = valueNums; i >=index; i--)
@@ -140,7 +164,7 @@ public class Node implements Cloneable, Serializable {
 			Node right= (Node) splits.get(1);
 
 			if(parent==null){
-				parent=FreeListFactory.get().getCurrentNode().setValuesSize(values.length-1);
+				parent=pool().getCurrentNode().setValuesSize(values.length-1);
 			}
 
 			for (int i = 0; i < parent.valueNums; i++) {
@@ -189,10 +213,10 @@ public class Node implements Cloneable, Serializable {
 		if(value==null)
 			return null;
 
-		Tuple2<Location, Integer> location = locate(value);
+		int located = locate(value);
 
-		int index= (int) location.get(1);
-		if(location.get(0)==Location.VALUE){
+		int index= position(located);
+		if(located>=0){
 			// find this value in current node
 			if(childNums==0){
 
@@ -211,10 +235,10 @@ public class Node implements Cloneable, Serializable {
 				// check if the value num reach min value, if so, borrow from sibling
 				if(valueNums<minValues){
 					// check right/left sibling values
-					Tuple2<Location, Integer> currentPosition = parent.locate(values[0]);
-					assert currentPosition.get(0)==Location.NODE;
+					int currentPosition = parent.locate(values[0]);
+					assert currentPosition<0;
 
-					index= (int) currentPosition.get(1);
+					index= position(currentPosition);
 
 					Node leftSibling=index==0?null:parent.children[index-1];
 					Node rightSibling=index>=parent.childNums-1?null:parent.children[index+1];
@@ -246,7 +270,7 @@ public class Node implements Cloneable, Serializable {
 						}else {
 							// merge with right sibling, move parent node and right child to this sibling
 							// and truncate right sibling and parent
-							index = (int) parent.locate(values[0]).get(1);
+							index = position(parent.locate(values[0]));
 							values[valueNums++]=parent.values[index];
 
 							// remove it from parent
@@ -263,6 +287,7 @@ public class Node implements Cloneable, Serializable {
 
 							// remove link to right sibling
 							parent.children[index+1]=null;
+							pool().recycleNode(rightSibling);
 
 							// assign child node
 							for (int i = index+1; i < parent.childNums - 1; i++) {
@@ -295,7 +320,7 @@ public class Node implements Cloneable, Serializable {
 						}else {
 
 							// move value of this node and parent value to left sibling,and delete this node
-							index= (int) parent.locate(leftSibling.values[0]).get(1);
+							index= position(parent.locate(leftSibling.values[0]));
 							leftSibling.values[leftSibling.valueNums++]=parent.values[index];
 							for (int i = 0; i < valueNums; i++) {
 								leftSibling.values[leftSibling.valueNums++]=values[i];
@@ -336,7 +361,7 @@ public class Node implements Cloneable, Serializable {
 
 							// both right and left child have not enough value to borrow
 							// here we choose to merge with right node
-							index= (int) parent.locate(rightSibling.values[0]).get(1);
+							index= position(parent.locate(rightSibling.values[0]));
 
 							values[valueNums++]=parent.values[index-1];
 
@@ -348,6 +373,7 @@ public class Node implements Cloneable, Serializable {
 							parent.children[index]=null;
 							rightSibling.parent=null;
 							rightSibling.valueNums=0;
+							pool().recycleNode(rightSibling);
 
 							// delete value from parent
 							for (int i = index-1; i < parent.valueNums; i++) {
@@ -418,15 +444,15 @@ public class Node implements Cloneable, Serializable {
 		if(values.length==0)
 			return null;
 
-		Tuple2<Location, Integer> locate = locate(value);
+		int located = locate(value);
 
-		if(locate.get(0).equals(Location.VALUE) && ((int)locate.get(1))!=-1){
+		if(located>=0){
 			return this;
 		}else {
-			int subtree= (int) locate.get(1);
-			logger.info("Search value:{} will be hand to sub-node:{}",value,children[subtree]);
+			int subtree= position(located);
+			logger.debug("Search value:{} will be hand to sub-node:{}",value,children[subtree]);
 			if(children[subtree]==null){
-				logger.info("Can not find value:{} in subtree.",value);
+				logger.debug("Can not find value:{} in subtree.",value);
 				return null;
 			}
 			return children[subtree].get(value);
@@ -487,42 +513,31 @@ public class Node implements Cloneable, Serializable {
 		boolean includeEnd,
 		List<Value> cache){
 
-		if(childNums==0){
-			if(values[valueNums-1].less(startValue))
-				return;
-
-			if(endValue.less(values[0]))
-				return;
+		if(valueNums==0)
+			return;
 
-			if(values[valueNums-1].equals(startValue) && !includeStart)
-				return;
+		// values and subtrees before start are skipped, subtree left to a value equal to start holds smaller values only
+		int located=locate(startValue);
+		int first=position(located);
 
-			if(values[0].equals(endValue) && !includeEnd)
-				return;
-		}
-
-		for (int i = 0; i < valueNums; i++) {
-			if(children[i]!=null){
+		for (int i = first; i <= valueNums; i++) {
+			if(children[i]!=null && (i!=first || located<0)){
 				children[i].iterate0(startValue,endValue,includeStart,includeEnd,cache);
 			}
+			if(i==valueNums)
+				break;
 
-			if (values[i].less(endValue) && startValue.less(values[i])){
-				cache.add(values[i]);
-			}
-
-			if(values[i].equals(startValue) && includeStart){
-				cache.add(values[i]);
+			Value value=values[i];
+			if(!value.less(endValue)){
+				// reach the end, values and subtrees behind it are greater
+				if(value.equals(endValue) && includeEnd && (includeStart || !value.equals(startValue)))
+					cache.add(value);
+				return;
 			}
-
-			if(values[i].equals(endValue) && includeEnd){
-				cache.add(values[i]);
+			if(startValue.less(value) || (includeStart && value.equals(startValue))){
+				cache.add(value);
 			}
 		}
-		if(children[valueNums]!=null){
-			children[valueNums].iterate0(startValue, endValue, includeStart, includeEnd, cache);
-		}
-
-		return;
 	}
 
 	///////////////////////////////////////////////////////////////////////////
@@ -560,7 +575,7 @@ public class Node implements Cloneable, Serializable {
 	 */
 	public Tuple2<Value,Node> split(int index) {
 		Value rootValue = values[index];
-		Node rightNode = FreeListFactory.get().getCurrentNode().setValuesSize(values.length-1);
+		Node rightNode = pool().getCurrentNode().setValuesSize(values.length-1);
 
 		int pos=0;
 		// get the right side node
@@ -593,37 +608,37 @@ public class Node implements Cloneable, Serializable {
 	}
 
 	/**
-	 * Locate value in this node.
+	 * Locate value in this node by binary search.
 	 * When value occurred in node return its index.
-	 * Otherwise, return its range.
+	 * Otherwise, return {@code -(insertion point + 1)}, insertion point is also the index of child whose
+	 * subtree holds the value. So the result is non-negative only if value is found, see {@link #position(int)}.
 	 * @param value pending value
-	 * @return index of values/children
+	 * @return encoded index of values/children
 	 */
-	private Tuple2<Location,Integer> locate(Value value){
-
-		if(valueNums==0){
-			return new Tuple2<>(Location.NONE,0);
-		}
-
-		int index=valueNums;
-		for (int i = 0; i < valueNums; i++) {
-			if(value.equals(values[i])){
-				index=i;
-				break;
-			}
-		}
-
-		if(index<valueNums && index>=0){
-			return new Tuple2<>(Location.VALUE,index);
-		}
-		for (int i = 0; i < valueNums; i++) {
-			if(value.less(values[i])){
-				return new Tuple2<>(Location.NODE,i);
+	int locate(Value value){
+		int low=0;
+		int high=valueNums-1;
+		while (low<=high){
+			int mid=(low+high)>>>1;
+			Value current=values[mid];
+			if(value.less(current)){
+				high=mid-1;
+			}else if(current.less(value)){
+				low=mid+1;
+			}else {
+				return mid;
 			}
 		}
+		return -(low+1);
+	}
 
-		// otherwise this value is greater than all value in this node
-		return new Tuple2<>(Location.NODE,valueNums);
+	/**
+	 * Decode result of {@link #locate(Value)}.
+	 * @param located encoded index
+	 * @return index of found value, or index of child to search
+	 */
+	static int position(int located){
+		return located>=0?located:-(located+1);
 	}
 
 
@@ -644,18 +659,21 @@ public class Node implements Cloneable, Serializable {
 	}
 
 	/**
-	 * Free a subtree to freelist. if freelist is full, it will break immediately.
+	 * Free a subtree to freelist. Nodes which can not be kept by a full freelist are left to gc.
 	 * @apiNote This only return to node pool, but not directly free node space
 	 * @param freeList node pool address
+	 * @return false if any node is dropped by freelist
 	 */
 	public Boolean free(FreeList freeList){
-
-		for (int i = 0; i < children.length; i++) {
-			if(!children[i].free(freeList)){
-				return false;
+		boolean kept=true;
+		if(children!=null){
+			for (int i = 0; i < children.length; i++) {
+				if(children[i]!=null && !children[i].free(freeList)){
+					kept=false;
+				}
 			}
 		}
-		return freeList.recycleNode();
+		return freeList.recycleNode(this) && kept;
 	}
 
 	@Override
@@ -0,0 +1,1243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage.tree;
+
+import com.github.lolidb.exception.IllegalFormatException;
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.cache.PageHandle;
+import com.github.lolidb.storage.codec.ColumnCodec;
+import com.github.lolidb.storage.io.FileChannelRegistry;
+import com.github.lolidb.storage.tree.value.NormalizedValue;
+import com.github.lolidb.storage.tree.value.NullValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.utils.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * B+ Tree stored in an index file, each node is a fixed-size {@link IndexPage} and child pointers are page ids.
+ * Pages are cached in the same {@link MemoryCache} as data pages, so an index can be larger than memory,
+ * and opening an existing index only reads its meta page. Keys are serialized by {@link ColumnCodec}
+ * of key type, and each key maps to a long value, such as the address of a row.
+ * {{{
+ *     page 0       meta page: magic, version, page size, root page id, page numbers, size, height,
+ *                  compression flag, unique flag, head of free pages, key type
+ *     page 1..n    leaf pages linked in both directions, and internal pages
+ * }}}
+ * Address of page {@code i} is {@code base | i << PAGE_SIZE_BITS}, so {@code base} must leave the bits of
+ * page id empty, and it tells index pages from pages of other files in cache.
+ * Keys of {@link StringValue} and {@link NormalizedValue} can be compressed, they are stored as bytes whose
+ * order is the order of keys: chars of string in big endian, or bytes of normalized value. A node keeps
+ * bytes shared by its range only once as prefix, which is taken from the separators bounding the node
+ * in its parents, and a split leaf only promotes the shortest prefix of its right half's first key that
+ * is still greater than the last key of left half.
+ * An index of duplicate keys maps a key to a single row id in leaf. Further row ids of the key are kept
+ * inline in its leaf entry as a posting list of varint deltas sorted by row id, so a key with a few rows
+ * costs a few bytes per row id. When the inline list outgrows a quarter of {@code maxKeySize}, row ids are
+ * moved into a list of posting pages, and leaf only holds id of the first posting page. So a hot key does
+ * not add entries into tree, and costs 8 bytes per row id. Posting pages are reused by a free list when
+ * they are emptied.
+ * Nodes are split by bytes rather than numbers of keys. Removal does not merge nodes, empty leaves are
+ * skipped by search, and their space is reused by later insertions of the same range.
+ * This tree is not thread safe, and {@link #flush()} must be called to make it durable.
+ */
+public class PagedBPlusTree implements Closeable {
+
+	private static final Logger logger= LoggerFactory.getLogger(PagedBPlusTree.class);
+
+	public static final long NOT_FOUND=-1L;
+
+	private static final int MAGIC=0x4c4c4258;
+
+	private static final int VERSION=4;
+
+	private static final long META_PAGE=0L;
+
+	private static final byte[] NO_POSTING=new byte[0];
+
+	///////////////////////////////////////////////////////////////////////////
+	// Layout of meta page, behind header of index page
+	///////////////////////////////////////////////////////////////////////////
+	private static final int MAGIC_OFFSET=IndexPage.HEADER_SIZE;
+
+	private static final int VERSION_OFFSET=MAGIC_OFFSET+4;
+
+	private static final int PAGE_SIZE_OFFSET=VERSION_OFFSET+4;
+
+	private static final int ROOT_OFFSET=PAGE_SIZE_OFFSET+4;
+
+	private static final int PAGES_OFFSET=ROOT_OFFSET+8;
+
+	private static final int SIZE_OFFSET=PAGES_OFFSET+8;
+
+	private static final int HEIGHT_OFFSET=SIZE_OFFSET+8;
+
+	private static final int COMPRESS_OFFSET=HEIGHT_OFFSET+4;
+
+	private static final int UNIQUE_OFFSET=COMPRESS_OFFSET+4;
+
+	private static final int FREE_OFFSET=UNIQUE_OFFSET+4;
+
+	private static final int KEY_TYPE_OFFSET=FREE_OFFSET+8;
+
+	private final File file;
+
+	private final Class<? extends Value> keyType;
+
+	private final ColumnCodec codec;
+
+	private final MemoryCache cache;
+
+	private final long base;
+
+	private final int pageSize;
+
+	// max bytes of a serialized key, so that a split node always has room for the new entry
+	private final int maxKeySize;
+
+	// max bytes of an inline posting list, a longer one is moved into posting pages
+	private final int maxInlinePosting;
+
+	// buffer to serialize keys
+	private final ByteBuffer scratch;
+
+	// whether keys are stored as bytes with prefix of node and truncated separators
+	private boolean compress;
+
+	// whether a key maps to a single value, or else to a posting list of row ids
+	private boolean unique;
+
+	// head of free pages linked by next page id
+	private long free=IndexPage.NONE;
+
+	private long root;
+
+	private long pages;
+
+	private long length;
+
+	private int height;
+
+	// numbers of modifications, iterators fail when tree is modified
+	private int modCount;
+
+	/**
+	 * Open index file, or create an empty index if file does not exist.
+	 * @param file index file
+	 * @param keyType type of keys, it must be a simple type supported by {@link ColumnCodec}
+	 * @param cache buffer pool holding index pages
+	 * @param base address of index file, low {@code PAGE_SIZE_BITS + PAGES_BITS_IN_A_TABLE} bits must be 0
+	 */
+	public PagedBPlusTree(File file,Class<? extends Value> keyType,MemoryCache cache,long base) throws IOException {
+		this(file,keyType,cache,base,(int) Configuration.PAGE_SIZE_BYTES);
+	}
+
+	public PagedBPlusTree(File file,Class<? extends Value> keyType,MemoryCache cache,long base,int pageSize) throws IOException {
+		this(file,keyType,cache,base,pageSize,true);
+	}
+
+	/**
+	 * Open index file, or create an empty index if file does not exist.
+	 * @param compress whether keys of a new index are compressed, it only works for {@link StringValue} and
+	 *                 {@link NormalizedValue}, and an existing index keeps the flag it is created with
+	 */
+	public PagedBPlusTree(File file,Class<? extends Value> keyType,MemoryCache cache,long base,int pageSize,
+						  boolean compress) throws IOException {
+		this(file,keyType,cache,base,pageSize,compress,true);
+	}
+
+	/**
+	 * Open index file, or create an empty index if file does not exist.
+	 * @param unique whether a new index maps a key to a single value, or else a key may hold any numbers of
+	 *               row ids, and an existing index keeps the flag it is created with
+	 */
+	public PagedBPlusTree(File file,Class<? extends Value> keyType,MemoryCache cache,long base,int pageSize,
+						  boolean compress,boolean unique) throws IOException {
+		if((base&((1L<<(Configuration.PAGE_SIZE_BITS+Configuration.PAGES_BITS_IN_A_TABLE))-1))!=0){
+			throw new IllegalArgumentException("Base address of index must not hold page id: "+base);
+		}
+		this.codec=ColumnCodec.of(keyType);
+		if(codec==null || keyType==NullValue.class){
+			throw new IllegalFormatException("Unsupported key type: "+keyType);
+		}
+		this.file=file;
+		this.keyType=keyType;
+		this.cache=cache;
+		this.base=base;
+		this.pageSize=pageSize;
+		this.maxKeySize=(pageSize-IndexPage.HEADER_SIZE)/4-IndexPage.ENTRY_SIZE;
+		this.maxInlinePosting=maxKeySize/4;
+		this.scratch=ByteBuffer.allocate(maxKeySize);
+		this.compress=compress && (keyType==StringValue.class || keyType==NormalizedValue.class);
+		this.unique=unique;
+
+		if(file.exists() && file.length()>0){
+			open();
+		}else {
+			if(file.getParentFile()!=null){
+				file.getParentFile().mkdirs();
+			}
+			create();
+		}
+	}
+
+	private void create() throws IOException {
+		pages=0;
+		try (PageHandle meta=allocate(IndexPage.META)){
+			if(meta.getPage().getPageId()!=META_PAGE){
+				throw new IllegalStateException("Meta page of index:"+file+" is not the first page.");
+			}
+		}
+		try (PageHandle leaf=allocate(IndexPage.LEAF)){
+			root=leaf.getPage().getPageId();
+		}
+		height=1;
+		length=0;
+		writeMeta();
+		logger.info("Create index:{} of key type:{}.",file,keyType.getSimpleName());
+	}
+
+	private void open() throws IOException {
+		try (PageHandle handle=fetch(META_PAGE)){
+			ByteBuffer buffer=((IndexPage) handle.getPage()).buffer();
+			if(buffer.getInt(MAGIC_OFFSET)!=MAGIC || buffer.getInt(VERSION_OFFSET)!=VERSION){
+				throw new IllegalFormatException("File:"+file+" is not an index of version "+VERSION);
+			}
+			if(buffer.getInt(PAGE_SIZE_OFFSET)!=pageSize){
+				throw new IllegalFormatException("Page size of index:"+file+" is "+buffer.getInt(PAGE_SIZE_OFFSET));
+			}
+			String type=readString(buffer,KEY_TYPE_OFFSET);
+			if(!type.equals(keyType.getName())){
+				throw new IllegalFormatException("Key type of index:"+file+" is "+type);
+			}
+			root=buffer.getLong(ROOT_OFFSET);
+			pages=buffer.getLong(PAGES_OFFSET);
+			length=buffer.getLong(SIZE_OFFSET);
+			height=buffer.getInt(HEIGHT_OFFSET);
+			compress=buffer.getInt(COMPRESS_OFFSET)!=0;
+			unique=buffer.getInt(UNIQUE_OFFSET)!=0;
+			free=buffer.getLong(FREE_OFFSET);
+		}
+		logger.info("Open index:{} with {} keys in {} pages.",file,length,pages);
+	}
+
+	private void writeMeta() throws IOException {
+		try (PageHandle handle=fetch(META_PAGE)){
+			IndexPage meta=(IndexPage) handle.getPage();
+			ByteBuffer buffer=meta.buffer();
+			buffer.putInt(MAGIC_OFFSET,MAGIC);
+			buffer.putInt(VERSION_OFFSET,VERSION);
+			buffer.putInt(PAGE_SIZE_OFFSET,pageSize);
+			buffer.putLong(ROOT_OFFSET,root);
+			buffer.putLong(PAGES_OFFSET,pages);
+			buffer.putLong(SIZE_OFFSET,length);
+			buffer.putInt(HEIGHT_OFFSET,height);
+			buffer.putInt(COMPRESS_OFFSET,compress?1:0);
+			buffer.putInt(UNIQUE_OFFSET,unique?1:0);
+			buffer.putLong(FREE_OFFSET,free);
+			writeString(buffer,KEY_TYPE_OFFSET,keyType.getName());
+			meta.changeState();
+		}
+	}
+
+	private static void writeString(ByteBuffer buffer,int offset,String s){
+		buffer.putInt(offset,s.length());
+		for (int i = 0; i < s.length(); i++) {
+			buffer.putChar(offset+4+2*i,s.charAt(i));
+		}
+	}
+
+	private static String readString(ByteBuffer buffer,int offset){
+		char[] chars=new char[buffer.getInt(offset)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i]=buffer.getChar(offset+4+2*i);
+		}
+		return new String(chars);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Page access
+	///////////////////////////////////////////////////////////////////////////
+	private long address(long pageId){
+		return base|(pageId<<Configuration.PAGE_SIZE_BITS);
+	}
+
+	/**
+	 * Pin page of given id, it is loaded from index file if it is not cached.
+	 */
+	private PageHandle fetch(long pageId) throws IOException {
+		long address=address(pageId);
+		PageHandle handle=cache.pin(address);
+		if(handle!=null){
+			return handle;
+		}
+		// page is pinned when it is cached, so it can not be evicted by other users of cache
+		return cache.putAndPin(address,IndexPage.read(address,pageSize,file));
+	}
+
+	/**
+	 * Take a free page, or append a new page to the end of index file, it is only written when it is flushed.
+	 */
+	private PageHandle allocate(int type) throws IOException {
+		if(free!=IndexPage.NONE){
+			PageHandle handle=fetch(free);
+			IndexPage page=(IndexPage) handle.getPage();
+			free=page.next();
+			page.format(type);
+			return handle;
+		}
+		long pageId=pages++;
+		if(pageId>=(1L<<Configuration.PAGES_BITS_IN_A_TABLE)){
+			pages--;
+			throw new IllegalStateException("Index:"+file+" is full.");
+		}
+		long address=address(pageId);
+		IndexPage page=new IndexPage(address,pageSize,file);
+		page.format(type);
+		return cache.putAndPin(address,page);
+	}
+
+	/**
+	 * Put page into free list, it must not be referred by any page.
+	 */
+	private void release(long pageId) throws IOException {
+		try (PageHandle handle=fetch(pageId)){
+			IndexPage page=(IndexPage) handle.getPage();
+			page.format(IndexPage.UNFORMATTED);
+			page.setNext(free);
+			free=pageId;
+		}
+	}
+
+	/**
+	 * Serialize key into bytes stored in node, they are bytes of codec, or ordered bytes if keys are compressed.
+	 */
+	private byte[] serialize(Value key){
+		if(key==null || key.getClass()!=keyType){
+			throw new IllegalArgumentException("Key:"+key+" is not of type "+keyType.getSimpleName());
+		}
+		byte[] bytes;
+		if(compress){
+			bytes=toBytes(key);
+		}else {
+			scratch.clear();
+			try {
+				codec.write(key,scratch);
+			}catch (BufferOverflowException e){
+				throw new IllegalArgumentException("Key is larger than "+maxKeySize+" bytes.");
+			}
+			bytes=Arrays.copyOf(scratch.array(),scratch.position());
+		}
+		if(bytes.length>maxKeySize){
+			throw new IllegalArgumentException("Key is larger than "+maxKeySize+" bytes.");
+		}
+		return bytes;
+	}
+
+	private static byte[] toBytes(Value key){
+		if(key instanceof NormalizedValue){
+			return ((NormalizedValue) key).getValue();
+		}
+		String s=((StringValue) key).getValue();
+		byte[] bytes=new byte[2*s.length()];
+		for (int i = 0; i < s.length(); i++) {
+			bytes[2*i]=(byte) (s.charAt(i)>>>8);
+			bytes[2*i+1]=(byte) s.charAt(i);
+		}
+		return bytes;
+	}
+
+	private Value fromBytes(byte[] bytes){
+		if(keyType==NormalizedValue.class){
+			return new NormalizedValue(bytes);
+		}
+		char[] chars=new char[bytes.length/2];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i]=(char) ((bytes[2*i]&0xff)<<8|(bytes[2*i+1]&0xff));
+		}
+		return new StringValue(new String(chars));
+	}
+
+	private Value key(IndexPage page,int index){
+		return compress?fromBytes(page.fullKey(index)):page.key(index,codec);
+	}
+
+	/**
+	 * Locate key in node, bytes of key are only used if keys are compressed.
+	 */
+	private int locate(IndexPage page,Value key,byte[] bytes){
+		return compress?page.locate(bytes):page.locate(key,codec);
+	}
+
+	private int childIndex(IndexPage page,Value key,byte[] bytes){
+		return compress?page.childIndex(bytes):page.childIndex(key,codec);
+	}
+
+	private byte[] lookupBytes(Value key){
+		return compress?toBytes(key):null;
+	}
+
+	/**
+	 * Length of common prefix of two keys, an open bound shares nothing.
+	 */
+	private static int commonPrefix(byte[] a,byte[] b){
+		if(a==null || b==null){
+			return 0;
+		}
+		int length=Math.min(a.length,b.length);
+		for (int i = 0; i < length; i++) {
+			if(a[i]!=b[i]){
+				return i;
+			}
+		}
+		return length;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Insertion
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Replace or insert a key into tree.
+	 * @param key inserted key
+	 * @param value value of key
+	 * @return replaced value, or {@link #NOT_FOUND} if key is new
+	 */
+	public long replaceOrInsert(Value key,long value) throws IOException {
+		if(!unique){
+			throw new UnsupportedOperationException("Index:"+file+" holds duplicate keys, row ids are added by insert.");
+		}
+		return put(key,value,true);
+	}
+
+	/**
+	 * Insert a row id of key. A unique index keeps the value of an existing key, and an index of duplicate
+	 * keys adds row id into posting list of key.
+	 * @param key inserted key
+	 * @param rowId row id, it must not be negative
+	 * @return false if key already exists in a unique index, or key already holds this row id
+	 */
+	public boolean insert(Value key,long rowId) throws IOException {
+		if(rowId<0){
+			throw new IllegalArgumentException("Row id must not be negative: "+rowId);
+		}
+		return put(key,rowId,false)==NOT_FOUND;
+	}
+
+	/**
+	 * Insert key, or update value of an existing key.
+	 * @param replace whether value of existing key is replaced in a unique index
+	 * @return old value of key, or {@link #NOT_FOUND} if key or row id is new
+	 */
+	private long put(Value key,long value,boolean replace) throws IOException {
+		byte[] bytes=serialize(key);
+		modCount++;
+
+		// descend to leaf, and remember the path to insert separators of split nodes,
+		// with separators bounding each node on path if keys are compressed
+		long[] path=new long[height];
+		int[] indexes=new int[height];
+		byte[][] lowers=new byte[height][];
+		byte[][] uppers=new byte[height][];
+		int depth=0;
+		long pageId=root;
+		while (true){
+			try (PageHandle handle=fetch(pageId)){
+				IndexPage page=(IndexPage) handle.getPage();
+				if(page.isLeaf()){
+					break;
+				}
+				int index=childIndex(page,key,bytes);
+				if(compress){
+					lowers[depth+1]=index>0?page.fullKey(index-1):lowers[depth];
+					uppers[depth+1]=index<page.count()?page.fullKey(index):uppers[depth];
+				}
+				path[depth]=pageId;
+				indexes[depth++]=index;
+				pageId=page.child(index);
+			}
+		}
+
+		byte[] separator;
+		long right;
+		try (PageHandle handle=fetch(pageId)){
+			IndexPage leaf=(IndexPage) handle.getPage();
+			int located=locate(leaf,key,bytes);
+			byte[] posting=NO_POSTING;
+			int index;
+			if(located>=0){
+				long old=leaf.payload(located);
+				if(unique){
+					if(replace){
+						leaf.setPayload(located,value);
+					}
+					return old;
+				}
+				if(isPosting(old)){
+					return addRowId(leaf,located,value)?NOT_FOUND:value;
+				}
+				long[] ids=inlineRowIds(leaf,located);
+				int at=Arrays.binarySearch(ids,value);
+				if(at>=0){
+					return value;
+				}
+				at=-(at+1);
+				long[] added=new long[ids.length+1];
+				System.arraycopy(ids,0,added,0,at);
+				added[at]=value;
+				System.arraycopy(ids,at,added,at+1,ids.length-at);
+				length++;
+				posting=encodePosting(added);
+				if(posting.length>maxInlinePosting || bytes.length+posting.length>maxKeySize){
+					// the removed entry leaves room for the smaller one
+					leaf.remove(located);
+					leaf.insert(located,bytes,toPosting(spill(added)));
+					return NOT_FOUND;
+				}
+				// entry grows, so it is inserted again as a new key
+				leaf.remove(located);
+				index=located;
+				value=added[0];
+			}else {
+				length++;
+				index=-(located+1);
+			}
+			if(leaf.fits(bytes,posting)){
+				leaf.insert(index,bytes,posting,value);
+				return NOT_FOUND;
+			}
+			try (PageHandle sibling=allocate(IndexPage.LEAF)){
+				IndexPage next=(IndexPage) sibling.getPage();
+				right=next.getPageId();
+				splitLeaf(leaf,next,index,bytes,posting,value);
+				separator=separator(leaf,next);
+				growPrefix(leaf,next,separator,lowers[depth],uppers[depth]);
+			}
+		}
+
+		// insert separators into parents until a parent is not split
+		while (depth>0){
+			pageId=path[--depth];
+			int index=indexes[depth];
+			try (PageHandle handle=fetch(pageId)){
+				IndexPage inner=(IndexPage) handle.getPage();
+				if(inner.fits(separator)){
+					inner.insert(index,separator,right);
+					return NOT_FOUND;
+				}
+				try (PageHandle sibling=allocate(IndexPage.INNER)){
+					IndexPage next=(IndexPage) sibling.getPage();
+					separator=splitInner(inner,next,index,separator,right);
+					right=next.getPageId();
+					growPrefix(inner,next,separator,lowers[depth],uppers[depth]);
+				}
+			}
+		}
+
+		// root is split, tree grows by one level
+		try (PageHandle handle=allocate(IndexPage.INNER)){
+			IndexPage newRoot=(IndexPage) handle.getPage();
+			newRoot.setLeftmost(root);
+			newRoot.insert(0,separator,right);
+			root=newRoot.getPageId();
+			height++;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Move upper half of a full leaf into its new right sibling, then insert key with its inline posting list.
+	 */
+	private void splitLeaf(IndexPage leaf,IndexPage right,int index,byte[] key,byte[] posting,long value) throws IOException {
+		int split=leaf.splitIndex();
+		leaf.moveTo(split,right);
+
+		long next=leaf.next();
+		right.setPrev(leaf.getPageId());
+		right.setNext(next);
+		leaf.setNext(right.getPageId());
+		if(next!=IndexPage.NONE){
+			try (PageHandle handle=fetch(next)){
+				((IndexPage) handle.getPage()).setPrev(right.getPageId());
+			}
+		}
+
+		if(index<=split){
+			leaf.insert(index,key,posting,value);
+		}else {
+			right.insert(index-split,key,posting,value);
+		}
+	}
+
+	/**
+	 * Separator of split leaves. If keys are compressed, it is the shortest prefix of first key of right leaf
+	 * which is greater than last key of left leaf.
+	 */
+	private byte[] separator(IndexPage left,IndexPage right){
+		byte[] first=right.fullKey(0);
+		if(!compress){
+			return first;
+		}
+		byte[] last=left.fullKey(left.count()-1);
+		return Arrays.copyOf(first,Math.min(first.length,commonPrefix(last,first)+1));
+	}
+
+	/**
+	 * Narrow prefix of split nodes to bytes shared by their new ranges:
+	 * {@code lower -> separator} for left node, {@code separator -> upper} for right node.
+	 */
+	private void growPrefix(IndexPage left,IndexPage right,byte[] separator,byte[] lower,byte[] upper){
+		if(compress){
+			left.growPrefix(commonPrefix(lower,separator));
+			right.growPrefix(commonPrefix(separator,upper));
+		}
+	}
+
+	/**
+	 * Split a full internal node, the middle key moves up, then insert separator and child.
+	 * @return separator of the new right node
+	 */
+	private byte[] splitInner(IndexPage inner,IndexPage right,int index,byte[] separator,long child){
+		int split=inner.splitIndex();
+		byte[] promoted=inner.fullKey(split);
+		right.setLeftmost(inner.payload(split));
+		inner.moveTo(split+1,right);
+		inner.truncate(split);
+		if(index<=split){
+			inner.insert(index,separator,child);
+		}else {
+			right.insert(index-split-1,separator,child);
+		}
+		return promoted;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Removal
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Remove key from tree.
+	 * @param key removed key
+	 * @return value of removed key, or {@link #NOT_FOUND} if it is not found
+	 */
+	public long remove(Value key) throws IOException {
+		if(key==null || key.getClass()!=keyType)
+			return NOT_FOUND;
+		byte[] bytes=lookupBytes(key);
+		try (PageHandle handle=findLeaf(key,bytes)){
+			IndexPage leaf=(IndexPage) handle.getPage();
+			int located=locate(leaf,key,bytes);
+			if(located<0){
+				return NOT_FOUND;
+			}
+			modCount++;
+			long old=leaf.payload(located);
+			if(unique || !isPosting(old)){
+				length-=unique?1:inlineRowIds(leaf,located).length;
+				leaf.remove(located);
+				return old;
+			}
+			leaf.remove(located);
+			// drop the whole posting list
+			long pageId=postingPage(old);
+			old=NOT_FOUND;
+			while (pageId!=IndexPage.NONE){
+				long next;
+				try (PageHandle posting=fetch(pageId)){
+					IndexPage page=(IndexPage) posting.getPage();
+					if(old==NOT_FOUND){
+						old=page.rowId(0);
+					}
+					length-=page.count();
+					next=page.next();
+				}
+				release(pageId);
+				pageId=next;
+			}
+			return old;
+		}
+	}
+
+	/**
+	 * Remove a row id of key.
+	 * @param key removed key
+	 * @param rowId removed row id, it is the value of key in a unique index
+	 * @return false if key does not hold this row id
+	 */
+	public boolean remove(Value key,long rowId) throws IOException {
+		if(key==null || key.getClass()!=keyType)
+			return false;
+		byte[] bytes=lookupBytes(key);
+		try (PageHandle handle=findLeaf(key,bytes)){
+			IndexPage leaf=(IndexPage) handle.getPage();
+			int located=locate(leaf,key,bytes);
+			if(located<0){
+				return false;
+			}
+			long payload=leaf.payload(located);
+			if(unique){
+				if(payload!=rowId){
+					return false;
+				}
+				leaf.remove(located);
+			}else if(isPosting(payload)){
+				if(!removeRowId(leaf,located,rowId)){
+					return false;
+				}
+			}else {
+				long[] ids=inlineRowIds(leaf,located);
+				int at=Arrays.binarySearch(ids,rowId);
+				if(at<0){
+					return false;
+				}
+				byte[] stored=leaf.fullKey(located);
+				leaf.remove(located);
+				if(ids.length>1){
+					// entry shrinks, so the space of removed one is enough
+					long[] left=new long[ids.length-1];
+					System.arraycopy(ids,0,left,0,at);
+					System.arraycopy(ids,at+1,left,at,left.length-at);
+					leaf.insert(located,stored,encodePosting(left),left[0]);
+				}
+			}
+			modCount++;
+			length--;
+			return true;
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Posting list
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Payload of a key holding posting list is a negative number less than {@link #NOT_FOUND},
+	 * which tells id of its first posting page from a row id.
+	 */
+	private static boolean isPosting(long payload){
+		return payload<NOT_FOUND;
+	}
+
+	private static long toPosting(long pageId){
+		return NOT_FOUND-1-pageId;
+	}
+
+	private static long postingPage(long payload){
+		return NOT_FOUND-1-payload;
+	}
+
+	/**
+	 * Read row ids of a key without posting pages, the least one is payload and the others are inline.
+	 */
+	private static long[] inlineRowIds(IndexPage leaf,int index){
+		int length=leaf.postingLength(index);
+		long id=leaf.payload(index);
+		if(length==0){
+			return new long[]{id};
+		}
+		ByteBuffer buffer=leaf.buffer();
+		long[] ids=new long[length+1];
+		int size=0;
+		ids[size++]=id;
+		int offset=leaf.postingOffset(index);
+		int end=offset+length;
+		while (offset<end){
+			long delta=0;
+			int shift=0;
+			byte b;
+			do {
+				b=buffer.get(offset++);
+				delta|=(long) (b&0x7f)<<shift;
+				shift+=7;
+			}while (b<0);
+			id+=delta;
+			ids[size++]=id;
+		}
+		return Arrays.copyOf(ids,size);
+	}
+
+	/**
+	 * Encode row ids behind the least one as varint deltas, 7 bits in a byte and high bit tells more bytes.
+	 * @param ids ascending row ids
+	 */
+	private static byte[] encodePosting(long[] ids){
+		byte[] bytes=new byte[10*(ids.length-1)];
+		int size=0;
+		for (int i = 1; i < ids.length; i++) {
+			long delta=ids[i]-ids[i-1];
+			while ((delta&~0x7fL)!=0){
+				bytes[size++]=(byte) ((delta&0x7f)|0x80);
+				delta>>>=7;
+			}
+			bytes[size++]=(byte) delta;
+		}
+		return Arrays.copyOf(bytes,size);
+	}
+
+	/**
+	 * Move an inline posting list into a new posting page, it always fits since inline list is short.
+	 * @param ids ascending row ids
+	 * @return id of posting page
+	 */
+	private long spill(long[] ids) throws IOException {
+		try (PageHandle handle=allocate(IndexPage.POSTING)){
+			IndexPage posting=(IndexPage) handle.getPage();
+			for (int i = 0; i < ids.length; i++) {
+				posting.insertRowId(i,ids[i]);
+			}
+			return posting.getPageId();
+		}
+	}
+
+	/**
+	 * Pin posting page whose range holds given row id.
+	 */
+	private PageHandle findPosting(long pageId,long rowId) throws IOException {
+		PageHandle handle=fetch(pageId);
+		while (true){
+			long next=((IndexPage) handle.getPage()).next();
+			if(next==IndexPage.NONE){
+				return handle;
+			}
+			try (PageHandle nextHandle=fetch(next)){
+				if(rowId<((IndexPage) nextHandle.getPage()).rowId(0)){
+					return handle;
+				}
+			}
+			handle.close();
+			handle=fetch(next);
+		}
+	}
+
+	/**
+	 * Add row id to posting pages of an existing key of leaf.
+	 * @return false if key already holds row id
+	 */
+	private boolean addRowId(IndexPage leaf,int located,long rowId) throws IOException {
+		long payload=leaf.payload(located);
+		try (PageHandle handle=findPosting(postingPage(payload),rowId)){
+			IndexPage page=(IndexPage) handle.getPage();
+			int index=page.locateRowId(rowId);
+			if(index>=0){
+				return false;
+			}
+			index=-(index+1);
+			if(page.count()<page.rowIdCapacity()){
+				page.insertRowId(index,rowId);
+			}else {
+				try (PageHandle sibling=allocate(IndexPage.POSTING)){
+					IndexPage right=(IndexPage) sibling.getPage();
+					// row ids appended in ascending order leave full pages behind, others split page in half
+					int split=index==page.count()?index:page.count()/2;
+					page.moveRowIdsTo(split,right);
+
+					long next=page.next();
+					right.setPrev(page.getPageId());
+					right.setNext(next);
+					page.setNext(right.getPageId());
+					if(next!=IndexPage.NONE){
+						try (PageHandle nextHandle=fetch(next)){
+							((IndexPage) nextHandle.getPage()).setPrev(right.getPageId());
+						}
+					}
+
+					if(index<split){
+						page.insertRowId(index,rowId);
+					}else {
+						right.insertRowId(index-split,rowId);
+					}
+				}
+			}
+		}
+		length++;
+		return true;
+	}
+
+	/**
+	 * Remove row id from posting list of key, an emptied page is released, and the last row id of key
+	 * moves back into leaf.
+	 * @return false if key does not hold row id
+	 */
+	private boolean removeRowId(IndexPage leaf,int located,long rowId) throws IOException {
+		long emptied=IndexPage.NONE;
+		try (PageHandle handle=findPosting(postingPage(leaf.payload(located)),rowId)){
+			IndexPage page=(IndexPage) handle.getPage();
+			int index=page.locateRowId(rowId);
+			if(index<0){
+				return false;
+			}
+			page.removeRowId(index);
+			if(page.count()==0){
+				long prev=page.prev();
+				long next=page.next();
+				if(prev==IndexPage.NONE){
+					leaf.setPayload(located,toPosting(next));
+				}else {
+					try (PageHandle prevHandle=fetch(prev)){
+						((IndexPage) prevHandle.getPage()).setNext(next);
+					}
+				}
+				if(next!=IndexPage.NONE){
+					try (PageHandle nextHandle=fetch(next)){
+						((IndexPage) nextHandle.getPage()).setPrev(prev);
+					}
+				}
+				emptied=page.getPageId();
+			}
+		}
+		if(emptied!=IndexPage.NONE){
+			release(emptied);
+		}
+
+		long first=postingPage(leaf.payload(located));
+		try (PageHandle handle=fetch(first)){
+			IndexPage page=(IndexPage) handle.getPage();
+			if(page.count()>1 || page.next()!=IndexPage.NONE){
+				return true;
+			}
+			leaf.setPayload(located,page.rowId(0));
+		}
+		release(first);
+		return true;
+	}
+
+	/**
+	 * Read all the row ids of posting list in ascending order.
+	 */
+	private long[] rowIds(long payload) throws IOException {
+		long[] ids=new long[16];
+		int size=0;
+		long pageId=postingPage(payload);
+		while (pageId!=IndexPage.NONE){
+			try (PageHandle handle=fetch(pageId)){
+				IndexPage page=(IndexPage) handle.getPage();
+				int count=page.count();
+				if(size+count>ids.length){
+					ids=Arrays.copyOf(ids,Math.max(ids.length*2,size+count));
+				}
+				for (int i = 0; i < count; i++) {
+					ids[size++]=page.rowId(i);
+				}
+				pageId=page.next();
+			}
+		}
+		return Arrays.copyOf(ids,size);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Pin leaf whose range holds given key.
+	 */
+	private PageHandle findLeaf(Value key,byte[] bytes) throws IOException {
+		PageHandle handle=fetch(root);
+		IndexPage page=(IndexPage) handle.getPage();
+		while (!page.isLeaf()){
+			long child=page.child(childIndex(page,key,bytes));
+			handle.close();
+			handle=fetch(child);
+			page=(IndexPage) handle.getPage();
+		}
+		return handle;
+	}
+
+	private PageHandle edgeLeaf(boolean first) throws IOException {
+		PageHandle handle=fetch(root);
+		IndexPage page=(IndexPage) handle.getPage();
+		while (!page.isLeaf()){
+			long child=page.child(first?0:page.count());
+			handle.close();
+			handle=fetch(child);
+			page=(IndexPage) handle.getPage();
+		}
+		return handle;
+	}
+
+	/**
+	 * Get value of key.
+	 * @param key searched key
+	 * @return value, the least row id of a duplicate key, or {@link #NOT_FOUND} if key is not in tree
+	 */
+	public long get(Value key) throws IOException {
+		if(key==null || key.getClass()!=keyType)
+			return NOT_FOUND;
+		byte[] bytes=lookupBytes(key);
+		try (PageHandle handle=findLeaf(key,bytes)){
+			IndexPage leaf=(IndexPage) handle.getPage();
+			int located=locate(leaf,key,bytes);
+			if(located<0){
+				return NOT_FOUND;
+			}
+			long payload=leaf.payload(located);
+			if(unique || !isPosting(payload)){
+				return payload;
+			}
+			try (PageHandle posting=fetch(postingPage(payload))){
+				return ((IndexPage) posting.getPage()).rowId(0);
+			}
+		}
+	}
+
+	/**
+	 * Get all the row ids of key.
+	 * @param key searched key
+	 * @return row ids in ascending order, or value of key in a unique index
+	 */
+	public long[] getAll(Value key) throws IOException {
+		if(key==null || key.getClass()!=keyType)
+			return new long[0];
+		byte[] bytes=lookupBytes(key);
+		try (PageHandle handle=findLeaf(key,bytes)){
+			IndexPage leaf=(IndexPage) handle.getPage();
+			int located=locate(leaf,key,bytes);
+			if(located<0){
+				return new long[0];
+			}
+			long payload=leaf.payload(located);
+			if(unique){
+				return new long[]{payload};
+			}
+			return isPosting(payload)?rowIds(payload):inlineRowIds(leaf,located);
+		}
+	}
+
+	public boolean contain(Value key) throws IOException {
+		return get(key)!=NOT_FOUND;
+	}
+
+	/**
+	 * Fetch keys and values in range {@code from} -> {@code to}, {@link NullValue} means the range is open
+	 * on that side.
+	 */
+	public List<Map.Entry<Value,Long>> range(Value from,Value to,boolean hasStart,boolean hasEnd){
+		List<Map.Entry<Value,Long>> res=new ArrayList<>();
+		iterator(from,to,hasStart,hasEnd,OrderRule.ASCEND).forEachRemaining(res::add);
+		return res;
+	}
+
+	/**
+	 * Iterate keys and values in range {@code from} -> {@code to} lazily, {@link NullValue} means the range
+	 * is open on that side. A leaf is pinned only while its entries in range are read, so the iterator
+	 * does not hold any page between calls.
+	 * @param order ascending from {@code from}, or descending from {@code to}
+	 */
+	public Iterator<Map.Entry<Value,Long>> iterator(Value from,Value to,boolean hasStart,boolean hasEnd,OrderRule order){
+		return new PagedIterator(from,to,hasStart,hasEnd,order);
+	}
+
+	/**
+	 * @return numbers of entries, each row id of a duplicate key is counted once
+	 */
+	public int size(){
+		return (int) Math.min(length,Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return numbers of levels, a tree with a single leaf has height 1
+	 */
+	public int height(){
+		return height;
+	}
+
+	/**
+	 * @return numbers of pages in index file, including meta page
+	 */
+	public long pages(){
+		return pages;
+	}
+
+	public boolean isUnique(){
+		return unique;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Persistence
+	///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Write meta page and dirty pages of this index into index file.
+	 */
+	public void flush() throws IOException {
+		writeMeta();
+		for (Page page:cache.dirtyPages()) {
+			if(owns(page.getAddress())){
+				page.flush();
+			}
+		}
+	}
+
+	private boolean owns(long address){
+		long mask=(1L<<(Configuration.PAGE_SIZE_BITS+Configuration.PAGES_BITS_IN_A_TABLE))-1;
+		return (address&~mask)==base && Page.pageId(address)<pages;
+	}
+
+	/**
+	 * Flush index and drop its pages from cache.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		for (long i = 0; i < pages; i++) {
+			Page page=cache.remove(address(i));
+			if(page!=null){
+				page.spill();
+			}
+		}
+		// index file may be deleted and created again at the same path
+		FileChannelRegistry.getInstance().close(file);
+		logger.info("Close index:{}.",file);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Iterator
+	///////////////////////////////////////////////////////////////////////////
+	private class PagedIterator implements Iterator<Map.Entry<Value,Long>> {
+
+		private final int expectedModCount;
+
+		private final boolean ascend;
+
+		// bound where iteration stops, it is null if range is open on this side
+		private final Value stop;
+
+		private final boolean includeStop;
+
+		// entries of current leaf in range
+		private final List<Map.Entry<Value,Long>> batch=new ArrayList<>();
+
+		private int cursor;
+
+		// page id of the next leaf to read
+		private long leaf;
+
+		private boolean finished;
+
+		PagedIterator(Value from,Value to,boolean hasStart,boolean hasEnd,OrderRule order){
+			this.expectedModCount=modCount;
+			this.ascend=order==OrderRule.ASCEND;
+			Value start=ascend?from:to;
+			Value end=ascend?to:from;
+			boolean inclusive=ascend?hasStart:hasEnd;
+			this.stop=end instanceof NullValue?null:end;
+			this.includeStop=ascend?hasEnd:hasStart;
+
+			try {
+				boolean open=start instanceof NullValue;
+				byte[] bytes=open?null:lookupBytes(start);
+				try (PageHandle handle=open?edgeLeaf(ascend):findLeaf(start,bytes)){
+					IndexPage page=(IndexPage) handle.getPage();
+					int index;
+					if(open){
+						index=ascend?0:page.count()-1;
+					}else {
+						int located=locate(page,start,bytes);
+						if(located>=0){
+							index=inclusive?located:(ascend?located+1:located-1);
+						}else {
+							index=ascend?-(located+1):-(located+1)-1;
+						}
+					}
+					read(page,index);
+				}
+			}catch (IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Read entries of leaf from index until stop bound, and move to the sibling leaf.
+		 */
+		private void read(IndexPage page,int index) throws IOException {
+			batch.clear();
+			cursor=0;
+			int step=ascend?1:-1;
+			for (int i = index; i >= 0 && i < page.count(); i+=step) {
+				Value key=key(page,i);
+				if(stop!=null){
+					boolean beyond=ascend?stop.less(key):key.less(stop);
+					if(beyond || (!includeStop && !stop.less(key) && !key.less(stop))){
+						finished=true;
+						break;
+					}
+				}
+				long payload=page.payload(i);
+				if(unique){
+					batch.add(new AbstractMap.SimpleImmutableEntry<>(key,payload));
+					continue;
+				}
+				// each row id of a duplicate key is an entry
+				long[] ids=isPosting(payload)?rowIds(payload):inlineRowIds(page,i);
+				for (int j = 0; j < ids.length; j++) {
+					batch.add(new AbstractMap.SimpleImmutableEntry<>(key,ids[ascend?j:ids.length-1-j]));
+				}
+			}
+			leaf=ascend?page.next():page.prev();
+			if(leaf==IndexPage.NONE){
+				finished=true;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(expectedModCount!=modCount)
+				throw new ConcurrentModificationException();
+			while (cursor>=batch.size()){
+				if(finished){
+					return false;
+				}
+				try (PageHandle handle=fetch(leaf)){
+					IndexPage page=(IndexPage) handle.getPage();
+					read(page,ascend?0:page.count()-1);
+				}catch (IOException e){
+					throw new UncheckedIOException(e);
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Map.Entry<Value,Long> next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return batch.get(cursor++);
+		}
+	}
+}
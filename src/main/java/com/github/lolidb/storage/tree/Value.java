@@ -16,18 +16,16 @@
 
 package com.github.lolidb.storage.tree;
 
-import com.github.lolidb.catalyst.catalog.ColumnDescription;
 import com.github.lolidb.catalyst.catalog.Schema;
-import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.storage.codec.ColumnCodec;
+import com.github.lolidb.storage.tree.value.StructValue;
 import com.github.lolidb.utils.collections.BitMap;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Describe an value in btree, should be comparable.
@@ -42,11 +40,6 @@ public abstract class Value implements Cloneable, Serializable {
 
 	protected abstract boolean less(Value other);
 
-	/**
-	 * This register will storage physical address with same value as spill pages.
-	 */
-	protected Set<Long> spillPages=new HashSet<>();
-
 	public abstract int getSize();
 
 	/**
@@ -76,39 +69,16 @@ public abstract class Value implements Cloneable, Serializable {
 		if(value.getRealSize()+buffer.position()>=buffer.capacity())
 			return false;
 
-		Class klass=value.getClass();
-		if (klass== IntegerValue.class){
-			buffer.putInt((Integer) value.getValue());
-		}else if (klass== LongValue.class){
-			buffer.putLong((Long) value.getValue());
-		}else if(klass== ShortValue.class){
-			buffer.putShort((Short) value.getValue());
-		}else if(klass== CharacterValue.class){
-			buffer.putChar((Character) value.getValue());
-		}else if(klass== FloatValue.class){
-			buffer.putFloat((Float) value.getValue());
-		}else if(klass== DoubleValue.class){
-			buffer.putDouble((Double) value.getValue());
-		}else if(klass==ByteValue.class){
-			buffer.put((Byte) value.getValue());
-		}else if(klass==BooleanValue.class){
-			Boolean val = (Boolean) value.getValue();
-			buffer.putInt(val?1:0);
-		}else if(klass==StringValue.class){
-			String s = (String) value.getValue();
-			int pos=buffer.position();
-			buffer.putInt(s.length());
-			for (int i = 0; i < s.length(); i++) {
-				buffer.putChar(s.charAt(i));
-			}
-		}else if(klass==StructValue.class){
-			assert value instanceof StructValue;
+		if(value instanceof StructValue){
 			List<Value> fields = (List<Value>) value.getValue();
 			for (int i = 0; i < fields.size(); i++) {
 				Value.writeObject(fields.get(i),buffer);
 			}
-		}else if(klass==NullValue.class){
-			// nop
+		}else {
+			ColumnCodec codec=ColumnCodec.of(value.getClass());
+			if(codec!=null){
+				codec.write(value,buffer);
+			}
 		}
 		return true;
 	}
@@ -123,43 +93,8 @@ public abstract class Value implements Cloneable, Serializable {
 	 * @throws IOException
 	 */
 	public static Value readObject(ByteBuffer buffer,int offset, Class klass) throws IOException{
-		if (klass== IntegerValue.class){
-
-			return new IntegerValue(buffer.getInt(offset));
-		}else if (klass== LongValue.class){
-
-			return new LongValue(buffer.getLong(offset));
-		}else if(klass== ShortValue.class){
-
-			return new ShortValue(buffer.getShort(offset));
-		}else if(klass== CharacterValue.class){
-
-			return new CharacterValue(buffer.getChar(offset));
-		}else if(klass== FloatValue.class){
-
-			return new FloatValue(buffer.getFloat(offset));
-		}else if(klass== DoubleValue.class){
-
-			return new DoubleValue(buffer.getDouble(offset));
-		}else if(klass==ByteValue.class){
-
-			return new ByteValue(buffer.get(offset));
-		}else if(klass==BooleanValue.class){
-
-			return new BooleanValue(buffer.getInt(offset)!=0);
-		}else if(klass==StringValue.class){
-			int size=buffer.getInt(offset);
-			offset+=4;
-			StringBuffer sb=new StringBuffer();
-			for (int i = 0; i < size; i++) {
-				sb.append(buffer.getChar(offset+2*i));
-			}
-			return new StringValue(sb.toString());
-		}else if(klass==NullValue.class){
-			// nop
-			return new NullValue();
-		}
-		return null;
+		ColumnCodec codec=ColumnCodec.of(klass);
+		return codec==null?null:codec.read(buffer,offset);
 	}
 
 	/**
@@ -173,21 +108,7 @@ public abstract class Value implements Cloneable, Serializable {
 	 * @throws IOException
 	 */
 	public static Value readObject(ByteBuffer buffer, int offset, Schema schema, BitMap bitMap) throws IOException {
-
-		List<ColumnDescription> descriptions = schema.getValues();
-
-		StructValue value = new StructValue();
-		int totalSize=0;
-		for (int i = 0; i < descriptions.size(); i++) {
-			if(bitMap.contains(i)){
-				value.addField(new NullValue());
-				continue;
-			}
-			Value field=readObject(buffer,offset+totalSize,descriptions.get(i).getType());
-			value.addField(field);
-			totalSize+=field.getRealSize();
-		}
-		return value;
+		return schema.getCodec().readData(buffer,offset,bitMap);
 	}
 
 	public abstract void setDefault();
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage.tree.value;
+
+import com.github.lolidb.storage.codec.KeyEncoder;
+import com.github.lolidb.storage.tree.Value;
+
+import java.util.Arrays;
+
+/**
+ * Key encoded by {@link KeyEncoder}, whose bytes compare in the same order as the encoded columns.
+ * So a composite key of any column types is compared by a single unsigned byte comparison,
+ * without a virtual call for each field.
+ */
+public class NormalizedValue extends Value {
+
+	private static final byte[] EMPTY=new byte[0];
+
+	private byte[] value;
+
+	public NormalizedValue(byte[] value){
+		this.value=value;
+	}
+
+	public NormalizedValue(){
+		this.value=EMPTY;
+	}
+
+	/**
+	 * Compare two byte arrays as unsigned bytes, a prefix is less than the longer array.
+	 * @return negative, zero or positive like {@link Comparable#compareTo(Object)}
+	 */
+	public static int compare(byte[] a,byte[] b){
+		int length=Math.min(a.length,b.length);
+		for (int i = 0; i < length; i++) {
+			if(a[i]!=b[i]){
+				return (a[i]&0xff)-(b[i]&0xff);
+			}
+		}
+		return a.length-b.length;
+	}
+
+	// empty key is less than any other key
+	@Override
+	protected Value MIN() {
+		return new NormalizedValue(EMPTY);
+	}
+
+	// not support
+	@Override
+	protected Value MAX() {
+		return null;
+	}
+
+	@Override
+	protected boolean less(Value other) {
+		if(other instanceof NullValue)
+			return true;
+		assert other instanceof NormalizedValue;
+		return compare(value,((NormalizedValue) other).value)<0;
+	}
+
+	@Override
+	public int getSize() {
+		return value.length;
+	}
+
+	@Override
+	public void setDefault() {
+		this.value=EMPTY;
+	}
+
+	@Override
+	public int getRealSize() {
+		return value.length+4;
+	}
+
+	public byte[] getValue() {
+		return value;
+	}
+
+	/**
+	 * Check whether this key starts with given key, such as the key of leading columns.
+	 */
+	public boolean startsWith(NormalizedValue prefix){
+		byte[] bytes=prefix.value;
+		if(bytes.length>value.length)
+			return false;
+		for (int i = 0; i < bytes.length; i++) {
+			if(bytes[i]!=value[i])
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof NormalizedValue))
+			return false;
+		return Arrays.equals(value,((NormalizedValue) obj).value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(value);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder=new StringBuilder("NormalizedValue: ");
+		for (byte b:value) {
+			builder.append(Character.forDigit((b>>4)&0xf,16)).append(Character.forDigit(b&0xf,16));
+		}
+		return builder.toString();
+	}
+}
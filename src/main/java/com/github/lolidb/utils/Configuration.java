@@ -32,6 +32,16 @@ public class Configuration {
 
 	public static final String USE_LOG_MANAGER="use.log.manager";
 
+	// max bytes of buffer pool, such as "4 GB"
+	public static final String BUFFER_POOL_SIZE="buffer.pool.size";
+
+	// eviction policy of buffer pool, "lru" or "2q"
+	public static final String EVICTION_POLICY="buffer.pool.eviction";
+
+	// max bytes of off-heap page arena, such as "128 MB", it is the size of buffer pool by default,
+	// so cached pages never run out of frames
+	public static final String PAGE_ARENA_SIZE="page.arena.size";
+
 	///////////////////////////////////////////////////////////////////////////
 	// default value
 	///////////////////////////////////////////////////////////////////////////
@@ -40,8 +50,49 @@ public class Configuration {
 
 	public static final int FREELIST_DEFAULT_SIZE=64;
 
+	// max numbers of pages of page free list
+	public static final int DEFAULT_FREELIST_MAX_SIZE=1024;
+
+	// numbers of pages cached by each thread in page free list
+	public static final int DEFAULT_FREELIST_LOCAL_CACHE_SIZE=8;
+
+	// max numbers of free nodes kept by btree node free list
+	public static final int DEFAULT_NODE_FREELIST_MAX_SIZE=4096;
+
+	// numbers of free nodes cached by each thread in btree node free list
+	public static final int DEFAULT_NODE_FREELIST_LOCAL_CACHE_SIZE=32;
+
+	// leaves of a bulk loaded btree are filled to this ratio, and the rest is left for later insertions
+	public static final double DEFAULT_BTREE_FILL_FACTOR=0.75;
+
 	public static final int DEFAULT_MEMORY_POOL_SIZE=16;
 
+	public static final String DEFAULT_BUFFER_POOL_SIZE="128 MB";
+
+	public static final String DEFAULT_EVICTION_POLICY="lru";
+
+	// bytes of each allocation of page arena
+	public static final long DEFAULT_ARENA_SLAB_BYTES=16L<<20;
+
+	// page flusher starts writing when dirty bytes are over high watermark of buffer pool,
+	// and stops when they are under low watermark
+	public static final double DEFAULT_DIRTY_HIGH_WATERMARK=0.4;
+
+	public static final double DEFAULT_DIRTY_LOW_WATERMARK=0.2;
+
+	public static final int DEFAULT_FLUSHER_THREADS=2;
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MS=100;
+
+	// max numbers of partition files kept open
+	public static final int DEFAULT_MAX_OPEN_CHANNELS=128;
+
+	// bytes of each mapping of mapped partition
+	public static final long DEFAULT_MAPPED_CHUNK_BYTES=64L<<20;
+
+	// numbers of lock stripes of page cache
+	public static final int DEFAULT_CACHE_CONCURRENCY_LEVEL=16;
+
 	public static final long PAGE_SIZE_BYTES=8192;
 
 	// in lolidb, can allow at most 128 databases in sys
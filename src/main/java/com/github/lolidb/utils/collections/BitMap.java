@@ -95,6 +95,38 @@ public class BitMap {
 		return (tmp & cmp)!=0;
 	}
 
+	/**
+	 * Check if this value is belong to the bit map serialized at given offset of buffer.
+	 * Nothing will be deserialized.
+	 * @param buffer data buffer
+	 * @param offset offset of serialized bit map
+	 * @param code target value
+	 * @return true if exists else false.
+	 */
+	public static boolean contains(ByteBuffer buffer,int offset,int code){
+		int index=code>>3;
+		if(index>=buffer.getInt(offset))
+			return false;
+		int position=code & 0x07;
+		byte cmp=(byte)(1<<((position-1)<0?8:(position-1)));
+		return (buffer.get(offset+4+index) & cmp)!=0;
+	}
+
+	/**
+	 * Check if any value is in the bit map serialized at given offset of buffer.
+	 * @param buffer data buffer
+	 * @param offset offset of serialized bit map
+	 * @return true if the bit map is empty
+	 */
+	public static boolean isEmpty(ByteBuffer buffer,int offset){
+		int length=buffer.getInt(offset);
+		for (int i = 0; i < length; i++) {
+			if(buffer.get(offset+4+i)!=0)
+				return false;
+		}
+		return true;
+	}
+
 	public int size(){
 		return bits.length;
 	}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.tree.BPlusTree;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point and range operations of {@link BPlusTree}, same as {@link BTreeBenchmark}.
+ * Run both with a larger {@code size}, cost of range search here should not grow with tree size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BPlusTreeBenchmark {
+
+	@Param({"1000"})
+	private int size;
+
+	@Param({"32"})
+	private int degree;
+
+	@Param({"100"})
+	private int rangeLength;
+
+	private BPlusTree tree;
+
+	private IntegerValue[] keys;
+
+	private int cursor;
+
+	@Setup
+	public void setup(){
+		tree=new BPlusTree(degree);
+		keys=new IntegerValue[size];
+		for (int i = 0; i < size; i++) {
+			keys[i]=new IntegerValue(i);
+			tree.replaceOrInsert(keys[i]);
+		}
+		// shuffle lookup order
+		Random random=new Random(7);
+		for (int i = size-1; i > 0; i--) {
+			int j=random.nextInt(i+1);
+			IntegerValue tmp=keys[i];
+			keys[i]=keys[j];
+			keys[j]=tmp;
+		}
+	}
+
+	private IntegerValue nextKey(){
+		cursor=cursor+1<size?cursor+1:0;
+		return keys[cursor];
+	}
+
+	@Benchmark
+	public Value replaceOrInsert(){
+		return tree.replaceOrInsert(nextKey());
+	}
+
+	@Benchmark
+	public Value get(){
+		return tree.get(nextKey());
+	}
+
+	@Benchmark
+	public List range(){
+		int from=nextKey().getValue()%(size-rangeLength);
+		return tree.range(new IntegerValue(from),new IntegerValue(from+rangeLength),true,false);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.tree.BTree;
+import com.github.lolidb.storage.tree.BTreeBuilder;
+import com.github.lolidb.storage.tree.FreeList;
+import com.github.lolidb.storage.tree.Node;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point and range operations of {@link BTree}. The tree is built once, and {@code replaceOrInsert}
+ * replaces existing keys, so node allocation is not measured. Node allocation is measured by {@code build},
+ * which builds a tree and frees its nodes to the free list it is built with, and {@code bulkLoad} builds
+ * the same tree from sorted keys by {@link BTreeBuilder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BTreeBenchmark {
+
+	@Param({"1000"})
+	private int size;
+
+	@Param({"32"})
+	private int degree;
+
+	@Param({"100"})
+	private int rangeLength;
+
+	private BTree tree;
+
+	private FreeList buildList;
+
+	private IntegerValue[] keys;
+
+	private IntegerValue[] sorted;
+
+	private int cursor;
+
+	@Setup
+	public void setup(){
+		tree=new BTree(degree);
+		buildList=new FreeList();
+		keys=new IntegerValue[size];
+		for (int i = 0; i < size; i++) {
+			keys[i]=new IntegerValue(i);
+			tree.replaceOrInsert(keys[i]);
+		}
+		sorted=keys.clone();
+		// shuffle lookup order
+		Random random=new Random(7);
+		for (int i = size-1; i > 0; i--) {
+			int j=random.nextInt(i+1);
+			IntegerValue tmp=keys[i];
+			keys[i]=keys[j];
+			keys[j]=tmp;
+		}
+	}
+
+	private IntegerValue nextKey(){
+		cursor=cursor+1<size?cursor+1:0;
+		return keys[cursor];
+	}
+
+	@Benchmark
+	public Node replaceOrInsert(){
+		return tree.replaceOrInsert(nextKey());
+	}
+
+	@Benchmark
+	public Node get(){
+		return tree.get(nextKey());
+	}
+
+	@Benchmark
+	public int build(){
+		BTree built=new BTree(degree,buildList);
+		for (int i = 0; i < size; i++) {
+			built.replaceOrInsert(keys[i]);
+		}
+		built.getRoot().free(buildList);
+		return built.size();
+	}
+
+	@Benchmark
+	public int bulkLoad(){
+		BTreeBuilder builder=new BTreeBuilder(degree).freeList(buildList);
+		for (int i = 0; i < size; i++) {
+			builder.add(sorted[i]);
+		}
+		BTree built=builder.build();
+		built.getRoot().free(buildList);
+		return built.size();
+	}
+
+	@Benchmark
+	public List range(){
+		int from=nextKey().getValue()%(size-rangeLength);
+		return tree.range(new IntegerValue(from),new IntegerValue(from+rangeLength),true,false);
+	}
+}
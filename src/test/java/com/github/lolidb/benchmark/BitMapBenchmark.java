@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.utils.collections.BitMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bit operations of {@link BitMap}, both on heap and in serialized form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitMapBenchmark {
+
+	private BitMap bitMap;
+
+	private ByteBuffer buffer;
+
+	private int code;
+
+	@Setup
+	public void setup(){
+		bitMap=new BitMap(256);
+		for (int i = 0; i < 256; i+=3) {
+			bitMap.set(i);
+		}
+		buffer=ByteBuffer.allocateDirect(64);
+		BitMap.writeObject(bitMap,buffer);
+	}
+
+	private int nextCode(){
+		code=(code+1)&255;
+		return code;
+	}
+
+	@Benchmark
+	public boolean setAndUnset(){
+		int c=nextCode();
+		bitMap.set(c);
+		bitMap.unset(c);
+		return bitMap.contains(c);
+	}
+
+	@Benchmark
+	public boolean contains(){
+		return bitMap.contains(nextCode());
+	}
+
+	@Benchmark
+	public boolean containsInBuffer(){
+		return BitMap.contains(buffer,0,nextCode());
+	}
+
+	@Benchmark
+	public BitMap readObject(){
+		return BitMap.readObject(buffer,0);
+	}
+}
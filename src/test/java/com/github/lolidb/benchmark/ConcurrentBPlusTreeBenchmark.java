@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.tree.BPlusTree;
+import com.github.lolidb.storage.tree.ConcurrentBPlusTree;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * YCSB style workloads on an index shared by all the cores, keys are chosen uniformly from loaded records:
+ * {{{
+ *     A    50% read, 50% update
+ *     B    95% read, 5% update
+ *     C    100% read
+ *     D    100% insert of new keys
+ * }}}
+ * {@code optimistic} is {@link ConcurrentBPlusTree}, and {@code locked} is {@link BPlusTree} behind a global
+ * read-write lock. Run with {@code -t} to see how throughput scales with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ConcurrentBPlusTreeBenchmark {
+
+	@Param({"optimistic","locked"})
+	private String index;
+
+	@Param({"A","B","C","D"})
+	private String workload;
+
+	@Param({"1000000"})
+	private int records;
+
+	@Param({"32"})
+	private int degree;
+
+	private ConcurrentBPlusTree concurrent;
+
+	private BPlusTree tree;
+
+	private final ReadWriteLock lock=new ReentrantReadWriteLock();
+
+	private IntegerValue[] keys;
+
+	private int readPercent;
+
+	// next new key of workload D
+	private final AtomicInteger inserted=new AtomicInteger();
+
+	@Setup
+	public void setup(){
+		concurrent=new ConcurrentBPlusTree(degree);
+		tree=new BPlusTree(degree);
+		keys=new IntegerValue[records];
+		for (int i = 0; i < records; i++) {
+			keys[i]=new IntegerValue(i);
+			if(index.equals("optimistic")){
+				concurrent.replaceOrInsert(keys[i]);
+			}else {
+				tree.replaceOrInsert(keys[i]);
+			}
+		}
+		readPercent=workload.equals("A")?50:workload.equals("B")?95:workload.equals("C")?100:0;
+	}
+
+	private Value read(Value key){
+		if(index.equals("optimistic")){
+			return concurrent.get(key);
+		}
+		lock.readLock().lock();
+		try {
+			return tree.get(key);
+		}finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Value write(Value key){
+		if(index.equals("optimistic")){
+			return concurrent.replaceOrInsert(key);
+		}
+		lock.writeLock().lock();
+		try {
+			return tree.replaceOrInsert(key);
+		}finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Benchmark
+	public Value operate(){
+		ThreadLocalRandom random=ThreadLocalRandom.current();
+		if(readPercent==0){
+			// new keys are behind loaded records, so threads insert into the same leaves
+			return write(new IntegerValue(records+inserted.getAndIncrement()));
+		}
+		IntegerValue key=keys[random.nextInt(records)];
+		return random.nextInt(100)<readPercent?read(key):write(key);
+	}
+}
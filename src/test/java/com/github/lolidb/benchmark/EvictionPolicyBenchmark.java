@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.cache.EvictionPolicy;
+import com.github.lolidb.storage.cache.MemoryCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replay a mixed access trace against each {@link EvictionPolicy} and report hit ratio. The trace is
+ * OLTP lookups skewed to a hot set of index and catalog pages, interrupted by full scans of a partition
+ * which is larger than the cache. A scan reads rows one at a time, so it touches each page several times
+ * in a row.
+ * <p>
+ * Hits and misses of each replay are reported as secondary results, and {@link #main} prints hit ratios directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class EvictionPolicyBenchmark {
+
+	// pages in cache
+	private static final int CAPACITY=1024;
+
+	// hot pages accessed by oltp lookups
+	private static final int HOT_PAGES=800;
+
+	// pages of the scanned partition
+	private static final int SCAN_PAGES=4096;
+
+	// touches of a scanned page in a row, one for each row read from it
+	private static final int TOUCHES_PER_SCAN_PAGE=3;
+
+	// oltp lookups between two scans
+	private static final int LOOKUPS_PER_SCAN=20000;
+
+	private static final int SCANS=10;
+
+	@Param({"lru","2q"})
+	private String policy;
+
+	private long[] trace;
+
+	@Setup
+	public void setup(){
+		trace=trace(new Random(7));
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+
+		public long hits;
+
+		public long misses;
+
+		@Setup(Level.Iteration)
+		public void reset(){
+			hits=0;
+			misses=0;
+		}
+	}
+
+	@Benchmark
+	public long replay(Counters counters){
+		long hits=replay(MemoryCache.policyOf(policy).get(),trace,CAPACITY);
+		counters.hits+=hits;
+		counters.misses+=trace.length-hits;
+		return hits;
+	}
+
+	/**
+	 * Generate trace of page numbers. Scan pages are numbered after hot pages.
+	 */
+	static long[] trace(Random random){
+		long[] trace=new long[SCANS*(LOOKUPS_PER_SCAN+SCAN_PAGES*TOUCHES_PER_SCAN_PAGE)];
+		int pos=0;
+		for (int scan = 0; scan < SCANS; scan++) {
+			for (int i = 0; i < LOOKUPS_PER_SCAN; i++) {
+				// skewed to low page numbers, such as root and upper index pages
+				double r=random.nextDouble();
+				trace[pos++]=(long) (HOT_PAGES*r*r);
+			}
+			for (int i = 0; i < SCAN_PAGES; i++) {
+				for (int j = 0; j < TOUCHES_PER_SCAN_PAGE; j++) {
+					trace[pos++]=HOT_PAGES+i;
+				}
+			}
+		}
+		return trace;
+	}
+
+	/**
+	 * Replay trace against policy with a cache holding given numbers of pages.
+	 * @return hits
+	 */
+	static long replay(EvictionPolicy<Long> policy,long[] trace,int capacity){
+		Set<Long> resident=new HashSet<>();
+		long hits=0;
+		for (long page:trace) {
+			Long key=page;
+			if(resident.contains(key)){
+				policy.onAccess(key);
+				hits++;
+				continue;
+			}
+			policy.onInsert(key);
+			resident.add(key);
+			if(resident.size()>capacity){
+				resident.remove(policy.evict(k -> !k.equals(key)));
+			}
+		}
+		return hits;
+	}
+
+	public static void main(String[] args) {
+		long[] trace=trace(new Random(7));
+		for (String name:new String[]{"lru","2q"}) {
+			long hits=replay(MemoryCache.policyOf(name).get(),trace,CAPACITY);
+			System.out.printf("%-4s hit ratio: %.4f (%d/%d)%n",name,(double) hits/trace.length,hits,trace.length);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.tree.BPlusTree;
+import com.github.lolidb.storage.tree.LongBTree;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.LongValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point lookups of {@link LongBTree} against {@link BPlusTree} of {@link LongValue} keys holding the same keys.
+ * A larger {@code size} makes the tree miss cpu cache, where the compact nodes of long keys matter most.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongBTreeBenchmark {
+
+	@Param({"1000000"})
+	private int size;
+
+	@Param({"32"})
+	private int degree;
+
+	private LongBTree longTree;
+
+	private BPlusTree valueTree;
+
+	private long[] keys;
+
+	private LongValue[] values;
+
+	private int cursor;
+
+	@Setup
+	public void setup(){
+		longTree=new LongBTree(degree);
+		valueTree=new BPlusTree(degree);
+		keys=new long[size];
+		values=new LongValue[size];
+		for (int i = 0; i < size; i++) {
+			keys[i]=i*7L;
+		}
+		// shuffle lookup order
+		Random random=new Random(7);
+		for (int i = size-1; i > 0; i--) {
+			int j=random.nextInt(i+1);
+			long tmp=keys[i];
+			keys[i]=keys[j];
+			keys[j]=tmp;
+		}
+		for (int i = 0; i < size; i++) {
+			values[i]=new LongValue(keys[i]);
+			longTree.replaceOrInsert(keys[i],i);
+			valueTree.replaceOrInsert(values[i]);
+		}
+	}
+
+	private int next(){
+		cursor=cursor+1<size?cursor+1:0;
+		return cursor;
+	}
+
+	@Benchmark
+	public long getLong(){
+		return longTree.get(keys[next()]);
+	}
+
+	@Benchmark
+	public Value getValue(){
+		return valueTree.get(values[next()]);
+	}
+
+	@Benchmark
+	public long replaceLong(){
+		int i=next();
+		return longTree.replaceOrInsert(keys[i],i);
+	}
+
+	@Benchmark
+	public Value replaceValue(){
+		return valueTree.replaceOrInsert(values[next()]);
+	}
+}
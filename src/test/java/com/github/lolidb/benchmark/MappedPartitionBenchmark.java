@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.MappedPartition;
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.storage.Row;
+import com.github.lolidb.storage.RowView;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.LongValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import com.github.lolidb.utils.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random page reads of a partition, by buffered {@link Page#load()} which copies page into a direct buffer,
+ * and by {@link MappedPartition} which reads the mapping in place. Default dataset is small enough for CI,
+ * run with {@code -p megabytes=<more than RAM>} to measure a dataset larger than memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedPartitionBenchmark {
+
+	private static final String TABLE="benchmark_mapped";
+
+	private static final int PAGE_SIZE=8192;
+
+	@Param({"256"})
+	private int megabytes;
+
+	private long pages;
+
+	private Schema schema;
+
+	private RowView view;
+
+	private MappedPartition partition;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		schema=new Schema()
+			.addColumn(new ColumnDescription("id","", LongValue.class))
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class));
+		view=new RowView(schema);
+		pages=(long) megabytes*(1<<20)/PAGE_SIZE;
+
+		// build an image of page, and copy it to every page of partition
+		Page template=new Page(0,PAGE_SIZE,TABLE);
+		for (long i = 0; template.addRecord(new Row(new StructValue().addField(new LongValue(i))
+			.addField(new StringValue("lolita")).addField(new IntegerValue((int) i)))); i++) {
+			// fill page
+		}
+		template.flush();
+		File file=new File(partitionFile());
+		ByteBuffer image=ByteBuffer.allocateDirect(PAGE_SIZE);
+		try (FileChannel channel=FileChannel.open(file.toPath(),StandardOpenOption.READ,StandardOpenOption.WRITE)){
+			channel.read(image,0);
+			for (long pageId = 1; pageId < pages; pageId++) {
+				image.clear();
+				channel.write(image,pageId*PAGE_SIZE);
+			}
+		}
+		partition=new MappedPartition(TABLE,"default",PAGE_SIZE,64L<<20);
+	}
+
+	private static String partitionFile(){
+		String rootDir=System.getProperty(Configuration.STORAGE_ROOT_DIR,Configuration.DEFAULT_STORAGE_ROOT_DIR);
+		return rootDir+TABLE+"/default.llb";
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		partition.close();
+		new File(partitionFile()).delete();
+	}
+
+	private long randomAddress(){
+		return ThreadLocalRandom.current().nextLong(pages)*PAGE_SIZE;
+	}
+
+	@Benchmark
+	public int bufferedRead() throws IOException {
+		Page page=new Page(randomAddress(),PAGE_SIZE,TABLE);
+		page.spill();
+		page.load();
+		return page.view(page.getSlotNums()-1,view).getInt(2);
+	}
+
+	@Benchmark
+	public int mappedRead() throws IOException {
+		Page page=partition.getPage(randomAddress());
+		return page.view(page.getSlotNums()-1,view).getInt(2);
+	}
+}
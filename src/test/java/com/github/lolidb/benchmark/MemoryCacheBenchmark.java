@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.storage.cache.MemoryCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and insertion of {@link MemoryCache} shared by all the cores. All the pages fit into cache,
+ * so this measures contention of cache itself rather than page spilling. Concurrency level 1 is a cache
+ * guarded by a single lock. Run with {@code -t} to see how throughput scales with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class MemoryCacheBenchmark {
+
+	@Param({"256"})
+	private int pages;
+
+	@Param({"1","16"})
+	private int concurrencyLevel;
+
+	private MemoryCache cache;
+
+	private Long[] addresses;
+
+	private Page[] values;
+
+	@Setup
+	public void setup() throws IOException {
+		cache=new MemoryCache(pages,concurrencyLevel);
+		addresses=new Long[pages];
+		values=new Page[pages];
+		for (int i = 0; i < pages; i++) {
+			addresses[i]=i*8192L;
+			values[i]=new Page(addresses[i],8192,"benchmark");
+			cache.put(addresses[i],values[i]);
+		}
+	}
+
+	@Benchmark
+	public Page get(){
+		return cache.get(addresses[ThreadLocalRandom.current().nextInt(pages)]);
+	}
+
+	@Benchmark
+	public Page put(){
+		int i=ThreadLocalRandom.current().nextInt(pages);
+		return cache.put(addresses[i],values[i]);
+	}
+
+	/**
+	 * Mixed workload, 9 lookups for each insertion.
+	 */
+	@Benchmark
+	public Page mixed(){
+		int i=ThreadLocalRandom.current().nextInt(pages);
+		if(i%10==0)
+			return cache.put(addresses[i],values[i]);
+		return cache.get(addresses[i]);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.io.NioBufferedFileInputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential read throughput of {@link NioBufferedFileInputStream}, compared with {@link BufferedInputStream}.
+ * Score is file bytes read per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NioBufferedFileInputStreamBenchmark {
+
+	private static final int FILE_SIZE=16*1024*1024;
+
+	@Param({"8192"})
+	private int bufferSize;
+
+	private File file;
+
+	private byte[] chunk;
+
+	@Setup
+	public void setup() throws IOException {
+		file=File.createTempFile("lolidb-nio",".dat");
+		file.deleteOnExit();
+		byte[] data=new byte[FILE_SIZE];
+		new Random(7).nextBytes(data);
+		try (OutputStream out=new FileOutputStream(file)){
+			out.write(data);
+		}
+		chunk=new byte[4096];
+	}
+
+	@TearDown
+	public void tearDown(){
+		file.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILE_SIZE)
+	public long nioRead() throws IOException {
+		try (InputStream in=new NioBufferedFileInputStream(file,bufferSize)){
+			return drain(in);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILE_SIZE)
+	public long bufferedRead() throws IOException {
+		try (InputStream in=new BufferedInputStream(new FileInputStream(file),bufferSize)){
+			return drain(in);
+		}
+	}
+
+	private long drain(InputStream in) throws IOException {
+		long total=0;
+		int read;
+		while ((read=in.read(chunk,0,chunk.length))>0){
+			total+=read;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.storage.Row;
+import com.github.lolidb.storage.RowView;
+import com.github.lolidb.storage.tree.value.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record insertion and lookup of a single {@link Page}, and churn of page buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBenchmark {
+
+	private Schema schema;
+
+	private Row row;
+
+	// page written by addRecord, it is emptied once full
+	private Page writePage;
+
+	// page filled with records for lookups
+	private Page readPage;
+
+	private RowView view;
+
+	private int slot;
+
+	@Setup
+	public void setup() throws IOException {
+		schema=new Schema()
+			.addColumn(new ColumnDescription("id","", LongValue.class))
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("sex","", BooleanValue.class));
+		row=new Row(new StructValue().addField(new LongValue(7L)).addField(new StringValue("lolita"))
+			.addField(new IntegerValue(18)).addField(new BooleanValue(true)));
+		view=new RowView(schema);
+
+		writePage=new Page(0,8192,"benchmark");
+		readPage=new Page(8192,8192,"benchmark");
+		while (readPage.addRecord(row)){
+			// fill page
+		}
+	}
+
+	@Benchmark
+	public boolean addRecord() throws IOException {
+		if(writePage.addRecord(row,schema))
+			return true;
+		for (int i = 0; i < writePage.getSlotNums(); i++) {
+			writePage.removeRecord(i,schema);
+		}
+		writePage.compact();
+		return writePage.addRecord(row,schema);
+	}
+
+	@Benchmark
+	public Row get() throws IOException {
+		slot=(slot+1)%readPage.getSlotNums();
+		return readPage.get(slot,schema);
+	}
+
+	@Benchmark
+	public long view(){
+		slot=(slot+1)%readPage.getSlotNums();
+		return readPage.view(slot,view).getLong(0);
+	}
+
+	/**
+	 * Page buffer is taken from page arena and given back by spilling a clean page, no I/O is involved.
+	 */
+	@Benchmark
+	public Page churn() throws IOException {
+		Page page=new Page(0,8192,"benchmark");
+		page.spill();
+		return page;
+	}
+}
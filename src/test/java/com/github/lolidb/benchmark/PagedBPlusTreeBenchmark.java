@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.tree.PagedBPlusTree;
+import com.github.lolidb.storage.tree.value.StringValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point lookups of {@link PagedBPlusTree} with url-like string keys, compressed or not.
+ * Cache only holds part of index pages, so a tree of fewer pages reads index file less often.
+ * Bytes per key of each index is printed when it is built.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagedBPlusTreeBenchmark {
+
+	private static final long BASE=1L<<40;
+
+	@Param({"200000"})
+	private int size;
+
+	@Param({"512"})
+	private int cachedPages;
+
+	@Param({"true","false"})
+	private boolean compress;
+
+	private PagedBPlusTree tree;
+
+	private StringValue[] keys;
+
+	private int cursor;
+
+	@Setup
+	public void setup() throws IOException {
+		File file=new File("E:/data/index/benchmark-"+compress+".idx");
+		file.delete();
+		tree=new PagedBPlusTree(file,StringValue.class,new MemoryCache(cachedPages,1),BASE,8192,compress);
+		Random random=new Random(7);
+		keys=new StringValue[size];
+		for (int i = 0; i < size; i++) {
+			keys[i]=new StringValue("https://www.example.com/catalog/items/"+random.nextInt(100)+"/"
+				+random.nextInt(1000000)+"?ref="+i);
+			tree.replaceOrInsert(keys[i],i);
+		}
+		System.out.println("Compress:"+compress+", pages:"+tree.pages()+", bytes per key:"+tree.pages()*8192/size);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		tree.close();
+		tree.getFile().delete();
+	}
+
+	@Benchmark
+	public long get() throws IOException {
+		cursor=cursor+1<size?cursor+1:0;
+		return tree.get(keys[cursor]);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.storage.tree.BPlusTree;
+import com.github.lolidb.storage.tree.BTree;
+import com.github.lolidb.storage.tree.OrderRule;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.NullValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first value of a range covering the whole tree, by a materialized {@code range} list and
+ * by a lazy iterator, like a {@code LIMIT 1} query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeIteratorBenchmark {
+
+	@Param({"100000"})
+	private int size;
+
+	@Param({"32"})
+	private int degree;
+
+	private BTree bTree;
+
+	private BPlusTree bPlusTree;
+
+	private final Value open=new NullValue();
+
+	@Setup
+	public void setup(){
+		bTree=new BTree(degree);
+		bPlusTree=new BPlusTree(degree);
+		for (int i = 0; i < size; i++) {
+			bTree.replaceOrInsert(new IntegerValue(i));
+			bPlusTree.replaceOrInsert(new IntegerValue(i));
+		}
+	}
+
+	@Benchmark
+	public Object bTreeList(){
+		return bTree.range(open,open,true,true).get(0);
+	}
+
+	@Benchmark
+	public Value bTreeIterator(){
+		return bTree.iterator(open,open,true,true,OrderRule.ASCEND).next();
+	}
+
+	@Benchmark
+	public Value bPlusTreeList(){
+		return bPlusTree.range(open,open,true,true).get(0);
+	}
+
+	@Benchmark
+	public Value bPlusTreeIterator(){
+		return bPlusTree.iterator(open,open,true,true,OrderRule.ASCEND).next();
+	}
+
+	@Benchmark
+	public Value bPlusTreeDescendIterator(){
+		return bPlusTree.iterator(open,open,true,true,OrderRule.DESCEND).next();
+	}
+}
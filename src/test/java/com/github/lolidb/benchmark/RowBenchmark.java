@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.Row;
+import com.github.lolidb.storage.RowView;
+import com.github.lolidb.storage.tree.value.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of {@link Row} into buffer and back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowBenchmark {
+
+	private Schema schema;
+
+	private Row row;
+
+	private RowView view;
+
+	private ByteBuffer writeBuffer;
+
+	private ByteBuffer readBuffer;
+
+	@Setup
+	public void setup() throws IOException {
+		schema=new Schema()
+			.addColumn(new ColumnDescription("id","", LongValue.class))
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("sex","", BooleanValue.class));
+		row=new Row(new StructValue().addField(new LongValue(7L)).addField(new StringValue("lolita"))
+			.addField(new IntegerValue(18)).addField(new BooleanValue(true)));
+		view=new RowView(schema);
+
+		writeBuffer=ByteBuffer.allocateDirect(8192);
+		readBuffer=ByteBuffer.allocateDirect(8192);
+		Row.writeObject(row,readBuffer);
+	}
+
+	@Benchmark
+	public int writeObject() throws IOException {
+		writeBuffer.clear();
+		return Row.writeObject(row,writeBuffer);
+	}
+
+	@Benchmark
+	public Row readObject() throws IOException {
+		return Row.readObject(readBuffer,0,schema);
+	}
+
+	@Benchmark
+	public int readView(){
+		return view.wrap(readBuffer,0).getInt(2);
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.benchmark;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.Page;
+import com.github.lolidb.storage.Row;
+import com.github.lolidb.storage.codec.RowCodec;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.utils.collections.BitMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare row serialization of the codec compiled from {@link Schema} with the per-field type
+ * dispatching path which was used before. The legacy path is kept here as reference only.
+ * {@code pageInsert} and {@code rowWrite} measure what {@link Page} runs: insertion with schema of page,
+ * and {@link Row#writeObject} used by insertion without schema.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowCodecBenchmark {
+
+	private Schema schema;
+
+	private RowCodec codec;
+
+	private Row row;
+
+	private ByteBuffer writeBuffer;
+
+	private ByteBuffer readBuffer;
+
+	// page written by pageInsert, it is emptied once full
+	private Page page;
+
+	@Setup
+	public void setup() throws IOException {
+		schema=new Schema()
+			.addColumn(new ColumnDescription("id","", LongValue.class))
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("sex","", BooleanValue.class))
+			.addColumn(new ColumnDescription("score","", DoubleValue.class))
+			.addColumn(new ColumnDescription("level","", ShortValue.class));
+		codec=schema.getCodec();
+		row=new Row(new StructValue().addField(new LongValue(7L)).addField(new StringValue("lolita"))
+			.addField(new IntegerValue(18)).addField(new BooleanValue(true))
+			.addField(new DoubleValue(99.5)).addField(new ShortValue((short) 3)));
+
+		writeBuffer=ByteBuffer.allocateDirect(8192);
+		readBuffer=ByteBuffer.allocateDirect(8192);
+		codec.write(row,readBuffer);
+		page=new Page(0,8192,"benchmark");
+	}
+
+	@Benchmark
+	public int legacyWrite(){
+		writeBuffer.clear();
+		return LegacyCodec.write(row,writeBuffer);
+	}
+
+	@Benchmark
+	public int codecWrite(){
+		writeBuffer.clear();
+		return codec.write(row,writeBuffer);
+	}
+
+	@Benchmark
+	public int rowWrite() throws IOException {
+		writeBuffer.clear();
+		return Row.writeObject(row,writeBuffer);
+	}
+
+	@Benchmark
+	public int pageInsert() throws IOException {
+		int slot=page.insert(row,schema);
+		if(slot>=0)
+			return slot;
+		for (int i = 0; i < page.getSlotNums(); i++) {
+			page.removeRecord(i,schema);
+		}
+		page.compact();
+		return page.insert(row,schema);
+	}
+
+	@Benchmark
+	public Row legacyRead(){
+		return LegacyCodec.read(readBuffer,0,schema);
+	}
+
+	@Benchmark
+	public Row codecRead(){
+		return codec.read(readBuffer,0);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Legacy per-field dispatching serializer
+	///////////////////////////////////////////////////////////////////////////
+	static final class LegacyCodec {
+
+		static int write(Row row,ByteBuffer buffer){
+			if(row.getRealSize()+buffer.position()>=buffer.capacity()){
+				return -1;
+			}
+			int pos=buffer.position();
+			writeValue(new BooleanValue(row.isDeleted()),buffer);
+			BitMap.writeObject(row.getBitMap(),buffer);
+			writeValue(row.getData(),buffer);
+			writeValue(new LongValue(row.getCreatedTimeStamp()),buffer);
+			writeValue(new LongValue(row.getLastUpdateTimeStamp()),buffer);
+			return pos;
+		}
+
+		static Row read(ByteBuffer buffer,int offset,Schema schema){
+			Row row=new Row(null,null);
+			int size=0;
+			Value isDeleted=readValue(buffer,offset,BooleanValue.class);
+			row.setDeleted((Boolean) isDeleted.getValue());
+			size+=isDeleted.getRealSize();
+
+			BitMap bitMap=BitMap.readObject(buffer,offset+size);
+			row.setBitMap(bitMap);
+			size+=bitMap.getRealSize();
+
+			List<ColumnDescription> descriptions=schema.getValues();
+			StructValue data=new StructValue();
+			for (int i = 0; i < descriptions.size(); i++) {
+				if(bitMap.contains(i)){
+					data.addField(new NullValue());
+					continue;
+				}
+				Value field=readValue(buffer,offset+size,descriptions.get(i).getType());
+				data.addField(field);
+				size+=field.getRealSize();
+			}
+			row.setData(data);
+
+			Value create=readValue(buffer,offset+size,LongValue.class);
+			row.setCreatedTimeStamp((Long) create.getValue());
+			size+=create.getRealSize();
+
+			Value updated=readValue(buffer,offset+size,LongValue.class);
+			row.setLastUpdateTimeStamp((Long) updated.getValue());
+			return row;
+		}
+
+		private static void writeValue(Value value,ByteBuffer buffer){
+			Class klass=value.getClass();
+			if (klass== IntegerValue.class){
+				buffer.putInt((Integer) value.getValue());
+			}else if (klass== LongValue.class){
+				buffer.putLong((Long) value.getValue());
+			}else if(klass== ShortValue.class){
+				buffer.putShort((Short) value.getValue());
+			}else if(klass== CharacterValue.class){
+				buffer.putChar((Character) value.getValue());
+			}else if(klass== FloatValue.class){
+				buffer.putFloat((Float) value.getValue());
+			}else if(klass== DoubleValue.class){
+				buffer.putDouble((Double) value.getValue());
+			}else if(klass==ByteValue.class){
+				buffer.put((Byte) value.getValue());
+			}else if(klass==BooleanValue.class){
+				buffer.putInt((Boolean) value.getValue()?1:0);
+			}else if(klass==StringValue.class){
+				String s = (String) value.getValue();
+				buffer.putInt(s.length());
+				for (int i = 0; i < s.length(); i++) {
+					buffer.putChar(s.charAt(i));
+				}
+			}else if(klass==StructValue.class){
+				List<Value> fields = (List<Value>) value.getValue();
+				for (int i = 0; i < fields.size(); i++) {
+					writeValue(fields.get(i),buffer);
+				}
+			}
+		}
+
+		private static Value readValue(ByteBuffer buffer,int offset,Class klass){
+			if (klass== IntegerValue.class){
+				return new IntegerValue(buffer.getInt(offset));
+			}else if (klass== LongValue.class){
+				return new LongValue(buffer.getLong(offset));
+			}else if(klass== ShortValue.class){
+				return new ShortValue(buffer.getShort(offset));
+			}else if(klass== CharacterValue.class){
+				return new CharacterValue(buffer.getChar(offset));
+			}else if(klass== FloatValue.class){
+				return new FloatValue(buffer.getFloat(offset));
+			}else if(klass== DoubleValue.class){
+				return new DoubleValue(buffer.getDouble(offset));
+			}else if(klass==ByteValue.class){
+				return new ByteValue(buffer.get(offset));
+			}else if(klass==BooleanValue.class){
+				return new BooleanValue(buffer.getInt(offset)!=0);
+			}else if(klass==StringValue.class){
+				int size=buffer.getInt(offset);
+				StringBuffer sb=new StringBuffer();
+				for (int i = 0; i < size; i++) {
+					sb.append(buffer.getChar(offset+4+2*i));
+				}
+				return new StringValue(sb.toString());
+			}
+			return new NullValue();
+		}
+	}
+}
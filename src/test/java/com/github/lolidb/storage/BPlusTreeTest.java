@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.tree.BPlusTree;
+import com.github.lolidb.storage.tree.OrderRule;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.NullValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+@DisplayName("B+ tree test")
+public class BPlusTreeTest {
+
+	@DisplayName("Build b+ tree with ordered and disordered values.")
+	@Test
+	public void testInsert(){
+		BPlusTree tree=new BPlusTree(3);
+		int[] values = {3, 4, 5, 9, 2, 1, 14, 19, 18, 13, 11, 0, 7, 6, 12, 8, 10, 17, 15, 16, 7, 9, 7};
+		for (int value : values) {
+			tree.replaceOrInsert(new IntegerValue(value));
+		}
+		tree.print();
+		Assert.assertEquals(20,tree.size());
+		Assert.assertEquals(new IntegerValue(0),tree.min());
+		Assert.assertEquals(new IntegerValue(19),tree.max());
+		Assert.assertNotNull(tree.replaceOrInsert(new IntegerValue(7)));
+		Assert.assertEquals(20,tree.size());
+
+		for (int i = 20; i < 1000; i++) {
+			tree.replaceOrInsert(new IntegerValue(i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertTrue(tree.contain(new IntegerValue(i)));
+		}
+		Assert.assertFalse(tree.contain(new IntegerValue(1000)));
+		System.out.println("height: "+tree.height());
+	}
+
+	@DisplayName("Range search walks through linked leaves.")
+	@Test
+	public void testRange(){
+		BPlusTree tree=new BPlusTree(3);
+		for (int i = 0; i < 30; i++) {
+			tree.replaceOrInsert(new IntegerValue(i*2));
+		}
+
+		// ( 6 , 15 ]
+		List<Value> ans=tree.range(new IntegerValue(6),new IntegerValue(15),false,true);
+		Assert.assertEquals(4,ans.size());
+		Assert.assertEquals(new IntegerValue(8),ans.get(0));
+		Assert.assertEquals(new IntegerValue(14),ans.get(3));
+
+		// [ 6 , 16 ]
+		ans=tree.range(new IntegerValue(6),new IntegerValue(16),true,true);
+		Assert.assertEquals(6,ans.size());
+		Assert.assertEquals(new IntegerValue(16),ans.get(5));
+
+		// [ 6 , 16 )
+		ans=tree.range(new IntegerValue(6),new IntegerValue(16),true,false);
+		Assert.assertEquals(5,ans.size());
+
+		ans=tree.range(new NullValue(),new IntegerValue(10),true,false);
+		Assert.assertEquals(5,ans.size());
+		ans=tree.range(new IntegerValue(50),new NullValue(),false,true);
+		Assert.assertEquals(4,ans.size());
+		ans=tree.range(new NullValue(),new NullValue(),true,true);
+		Assert.assertEquals(30,ans.size());
+		ans=tree.range(new IntegerValue(16),new IntegerValue(6),true,true);
+		Assert.assertTrue(ans.isEmpty());
+	}
+
+	@DisplayName("Remove values with borrowing and merging.")
+	@Test
+	public void testRemove(){
+		for (int degree = 2; degree <= 5; degree++) {
+			BPlusTree tree=new BPlusTree(degree);
+			TreeSet<Integer> expected=new TreeSet<>();
+			Random random=new Random(degree);
+			for (int i = 0; i < 20000; i++) {
+				int value=random.nextInt(2000);
+				if(random.nextInt(3)==0){
+					Assert.assertEquals(expected.remove(value),tree.remove(new IntegerValue(value))!=null);
+				}else {
+					Assert.assertEquals(!expected.add(value),tree.replaceOrInsert(new IntegerValue(value))!=null);
+				}
+			}
+			Assert.assertEquals(expected.size(),tree.size());
+			List<Value> all=tree.range(new NullValue(),new NullValue(),true,true);
+			Assert.assertEquals(expected.size(),all.size());
+			int i=0;
+			for (Integer value : expected) {
+				Assert.assertEquals(new IntegerValue(value),all.get(i++));
+			}
+
+			for (Integer value : expected) {
+				Assert.assertNotNull(tree.remove(new IntegerValue(value)));
+			}
+			Assert.assertEquals(0,tree.size());
+			Assert.assertEquals(1,tree.height());
+			Assert.assertNull(tree.min());
+		}
+	}
+
+	@DisplayName("Iterate ranges lazily in both orders.")
+	@Test
+	public void testIterator(){
+		BPlusTree tree=new BPlusTree(3);
+		TreeSet<Integer> expected=new TreeSet<>();
+		for (int i = 0; i < 200; i++) {
+			tree.replaceOrInsert(new IntegerValue(i*3));
+			expected.add(i*3);
+		}
+		Random random=new Random(11);
+		for (int round = 0; round < 500; round++) {
+			int from=random.nextInt(650)-25;
+			int to=from+random.nextInt(120);
+			boolean hasStart=random.nextBoolean();
+			boolean hasEnd=random.nextBoolean();
+			NavigableSet<Integer> sub=expected.subSet(from,hasStart,to,hasEnd);
+			assertIterate(sub.iterator(),tree.iterator(new IntegerValue(from),new IntegerValue(to),hasStart,hasEnd,OrderRule.ASCEND));
+			assertIterate(sub.descendingIterator(),tree.iterator(new IntegerValue(from),new IntegerValue(to),hasStart,hasEnd,OrderRule.DESCEND));
+		}
+		assertIterate(expected.descendingIterator(),tree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.DESCEND));
+		assertIterate(expected.headSet(30,false).descendingIterator(),
+			tree.iterator(new NullValue(),new IntegerValue(30),true,false,OrderRule.DESCEND));
+		assertIterate(expected.tailSet(30,false).iterator(),
+			tree.iterator(new IntegerValue(30),new NullValue(),false,true,OrderRule.ASCEND));
+
+		// iterator fails once tree is modified
+		Iterator<Value> iterator=tree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.ASCEND);
+		iterator.next();
+		tree.replaceOrInsert(new IntegerValue(1));
+		try {
+			iterator.next();
+			Assert.fail();
+		}catch (ConcurrentModificationException e){
+			// expected
+		}
+	}
+
+	static void assertIterate(Iterator<Integer> expected,Iterator<Value> actual){
+		while (expected.hasNext()){
+			Assert.assertTrue(actual.hasNext());
+			Assert.assertEquals(new IntegerValue(expected.next()),actual.next());
+		}
+		Assert.assertFalse(actual.hasNext());
+	}
+}
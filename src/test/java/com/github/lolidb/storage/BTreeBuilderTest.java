@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.tree.BTree;
+import com.github.lolidb.storage.tree.BTreeBuilder;
+import com.github.lolidb.storage.tree.Node;
+import com.github.lolidb.storage.tree.OrderRule;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.NullValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+@DisplayName("Btree bulk loading test")
+public class BTreeBuilderTest {
+
+	@DisplayName("Bulk loaded btree keeps balance for any size.")
+	@Test
+	public void testBalance(){
+		for (int degree:new int[]{2,3,5}) {
+			for (int size = 0; size < 300; size++) {
+				for (double fillFactor:new double[]{0.5,0.75,1.0}) {
+					BTreeBuilder builder=new BTreeBuilder(degree).fillFactor(fillFactor);
+					for (int i = 0; i < size; i++) {
+						builder.add(new IntegerValue(i));
+					}
+					BTree tree=builder.build();
+					Assert.assertEquals(size,tree.size());
+					if(size>0){
+						checkNode(tree,tree.getRoot(),true,depth(tree.getRoot()));
+					}
+					assertOrder(tree,size);
+				}
+			}
+		}
+	}
+
+	@DisplayName("Insert into bulk loaded btree.")
+	@Test
+	public void testInsertAfterBuild(){
+		BTreeBuilder builder=new BTreeBuilder(8);
+		for (int i = 0; i < 20000; i+=2) {
+			builder.add(new IntegerValue(i));
+		}
+		BTree tree=builder.build();
+		Assert.assertEquals(10000,tree.size());
+		checkNode(tree,tree.getRoot(),true,depth(tree.getRoot()));
+
+		for (int i = 1; i < 20000; i+=2) {
+			tree.replaceOrInsert(new IntegerValue(i));
+		}
+		Assert.assertEquals(20000,tree.size());
+		assertOrder(tree,20000);
+		for (int i = 0; i < 20000; i++) {
+			Assert.assertTrue(tree.contain(new IntegerValue(i)));
+		}
+	}
+
+	@DisplayName("Sort and deduplicate values which are not in order.")
+	@Test
+	public void testUnsorted(){
+		List<Value> values=new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			values.add(new IntegerValue(i));
+			values.add(new IntegerValue(i));
+		}
+		Collections.shuffle(values,new Random(7));
+		BTree tree=new BTreeBuilder(4).sorted(false).addAll(values).build();
+		Assert.assertEquals(5000,tree.size());
+		checkNode(tree,tree.getRoot(),true,depth(tree.getRoot()));
+		assertOrder(tree,5000);
+
+		try {
+			new BTreeBuilder(4).add(new IntegerValue(2)).add(new IntegerValue(1));
+			Assert.fail("Values out of order are accepted.");
+		}catch (IllegalArgumentException e){
+			System.out.println(e.getMessage());
+		}
+	}
+
+	private static int depth(Node node){
+		int depth=1;
+		while (node.getChildNums()>0){
+			node=node.getChild(0);
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * Check numbers of values in node, and all the leaves are at the same depth.
+	 */
+	private static void checkNode(BTree tree,Node node,boolean root,int depth){
+		Assert.assertTrue(node.getValueNums()<tree.maxValues());
+		if(!root){
+			Assert.assertTrue(node.getValueNums()>=tree.minValues());
+		}
+		if(node.getChildNums()==0){
+			Assert.assertEquals(1,depth);
+			return;
+		}
+		Assert.assertEquals(node.getValueNums()+1,node.getChildNums());
+		for (int i = 0; i < node.getChildNums(); i++) {
+			checkNode(tree,node.getChild(i),false,depth-1);
+		}
+	}
+
+	private static void assertOrder(BTree tree,int size){
+		if(size==0){
+			return;
+		}
+		Iterator<Value> iterator=tree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.ASCEND);
+		for (int i = 0; i < size; i++) {
+			Assert.assertEquals(new IntegerValue(i),iterator.next());
+		}
+		Assert.assertFalse(iterator.hasNext());
+	}
+}
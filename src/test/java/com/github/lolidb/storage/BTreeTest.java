@@ -19,13 +19,20 @@ package com.github.lolidb.storage;
 import com.github.lolidb.storage.tree.BTree;
 import com.github.lolidb.storage.tree.FreeListFactory;
 import com.github.lolidb.storage.tree.Node;
+import com.github.lolidb.storage.tree.OrderRule;
+import com.github.lolidb.storage.tree.Value;
 import com.github.lolidb.storage.tree.value.IntegerValue;
 import com.github.lolidb.storage.tree.value.NullValue;
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
 
 public class BTreeTest {
 
@@ -209,6 +216,76 @@ public class BTreeTest {
 		}
 	}
 
+	/**
+	 * Lookup and range search on large nodes, which locate values by binary search.
+	 */
+	@Test
+	public void testLocateInLargeNode(){
+		bTree=new BTree(32);
+
+		int[] values=new int[2000];
+		for (int i = 0; i < values.length; i++) {
+			values[i]=(int) ((i*7919L)%values.length);
+			bTree.replaceOrInsert(new IntegerValue(values[i]));
+		}
+
+		for (int i = 0; i < values.length; i++) {
+			Assert.assertTrue(bTree.contain(new IntegerValue(i)));
+		}
+		Assert.assertFalse(bTree.contain(new IntegerValue(-1)));
+		Assert.assertFalse(bTree.contain(new IntegerValue(values.length)));
+
+		List all=bTree.range(new NullValue(),new NullValue(),true,true);
+		Assert.assertEquals(values.length,all.size());
+		for (int i = 0; i < all.size(); i++) {
+			Assert.assertEquals(new IntegerValue(i),all.get(i));
+		}
+
+		// ( 100 , 400 ]
+		List ans=bTree.range(new IntegerValue(100),new IntegerValue(400),false,true);
+		Assert.assertEquals(300,ans.size());
+		Assert.assertEquals(new IntegerValue(101),ans.get(0));
+		Assert.assertEquals(new IntegerValue(400),ans.get(299));
+
+		// [ 100 , 400 )
+		ans=bTree.range(new IntegerValue(100),new IntegerValue(400),true,false);
+		Assert.assertEquals(300,ans.size());
+		Assert.assertEquals(new IntegerValue(100),ans.get(0));
+		Assert.assertEquals(new IntegerValue(399),ans.get(299));
+	}
+
+	/**
+	 * Iterate ranges lazily in both orders.
+	 */
+	@Test
+	public void testIterator(){
+		bTree=new BTree(3);
+		TreeSet<Integer> expected=new TreeSet<>();
+		for (int i = 0; i < 200; i++) {
+			bTree.replaceOrInsert(new IntegerValue(i*3));
+			expected.add(i*3);
+		}
+		Random random=new Random(11);
+		for (int round = 0; round < 500; round++) {
+			int from=random.nextInt(650)-25;
+			int to=from+random.nextInt(120);
+			boolean hasStart=random.nextBoolean();
+			boolean hasEnd=random.nextBoolean();
+			NavigableSet<Integer> sub=expected.subSet(from,hasStart,to,hasEnd);
+			BPlusTreeTest.assertIterate(sub.iterator(),
+				bTree.iterator(new IntegerValue(from),new IntegerValue(to),hasStart,hasEnd,OrderRule.ASCEND));
+			BPlusTreeTest.assertIterate(sub.descendingIterator(),
+				bTree.iterator(new IntegerValue(from),new IntegerValue(to),hasStart,hasEnd,OrderRule.DESCEND));
+		}
+		BPlusTreeTest.assertIterate(expected.iterator(),
+			bTree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.ASCEND));
+		BPlusTreeTest.assertIterate(expected.descendingIterator(),
+			bTree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.DESCEND));
+
+		Iterator<Value> first=bTree.iterator(new IntegerValue(30),new NullValue(),false,true,OrderRule.ASCEND);
+		Assert.assertEquals(new IntegerValue(33),first.next());
+	}
+
 	@Test
 	public void testContain(){
 
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.tree.ConcurrentBPlusTree;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+@DisplayName("Concurrent b+ tree test")
+public class ConcurrentBPlusTreeTest {
+
+	private static final int THREADS=8;
+
+	private static final int KEYS=20000;
+
+	@DisplayName("Insert and read keys with multiple threads.")
+	@Test
+	public void testConcurrentInsert() throws Exception {
+		ConcurrentBPlusTree tree=new ConcurrentBPlusTree(4);
+		// numbers of keys inserted by each writer, keys under it must be found by readers
+		AtomicIntegerArray progress=new AtomicIntegerArray(THREADS);
+		ExecutorService executor=Executors.newFixedThreadPool(THREADS*2);
+		List<Future<?>> futures=new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread=t;
+			// keys of writers are interleaved, so they share leaves
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < KEYS; i++) {
+					Assert.assertNull(tree.replaceOrInsert(new IntegerValue(i*THREADS+thread)));
+					progress.set(thread,i+1);
+				}
+			}));
+			futures.add(executor.submit(() -> {
+				ThreadLocalRandom random=ThreadLocalRandom.current();
+				while (progress.get(thread)<KEYS){
+					int inserted=progress.get(thread);
+					if(inserted==0)
+						continue;
+					int key=random.nextInt(inserted)*THREADS+thread;
+					Assert.assertEquals(new IntegerValue(key),tree.get(new IntegerValue(key)));
+				}
+			}));
+		}
+		for (Future<?> future:futures) {
+			future.get();
+		}
+
+		Assert.assertEquals(THREADS*KEYS,tree.size());
+		System.out.println("Height:"+tree.height());
+		for (int i = 0; i < THREADS*KEYS; i++) {
+			Assert.assertTrue(tree.contain(new IntegerValue(i)));
+		}
+		Assert.assertFalse(tree.contain(new IntegerValue(THREADS*KEYS)));
+
+		// remove odd keys in parallel
+		futures.clear();
+		for (int t = 0; t < THREADS; t++) {
+			int thread=t;
+			futures.add(executor.submit(() -> {
+				for (int i = thread*2+1; i < THREADS*KEYS; i+=THREADS*2) {
+					Assert.assertEquals(new IntegerValue(i),tree.remove(new IntegerValue(i)));
+				}
+			}));
+		}
+		for (Future<?> future:futures) {
+			future.get();
+		}
+		executor.shutdown();
+		Assert.assertEquals(THREADS*KEYS/2,tree.size());
+		for (int i = 0; i < THREADS*KEYS; i++) {
+			Assert.assertEquals(i%2==0,tree.contain(new IntegerValue(i)));
+		}
+	}
+}
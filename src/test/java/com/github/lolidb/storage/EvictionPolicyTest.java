@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.cache.EvictionPolicy;
+import com.github.lolidb.storage.cache.LruPolicy;
+import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.cache.StorageUnit;
+import com.github.lolidb.storage.cache.TwoQueuePolicy;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+@DisplayName("Eviction policy test")
+public class EvictionPolicyTest {
+
+	@DisplayName("LRU evicts the eldest accessed key.")
+	@Test
+	public void testLru(){
+		EvictionPolicy<Long> policy=new LruPolicy<>();
+		policy.onInsert(1L);
+		policy.onInsert(2L);
+		policy.onInsert(3L);
+		policy.onAccess(1L);
+
+		Assert.assertEquals(Long.valueOf(2L),policy.evict(k -> true));
+		// skip keys which can not be evicted
+		Assert.assertEquals(Long.valueOf(1L),policy.evict(k -> k!=3L));
+		Assert.assertEquals(Long.valueOf(3L),policy.evict(k -> true));
+		Assert.assertNull(policy.evict(k -> true));
+	}
+
+	@DisplayName("2Q keeps hot keys when a scan passes through.")
+	@Test
+	public void testScanResistance(){
+		int lruHits=replayHotAfterScan(new LruPolicy<>());
+		int twoQueueHits=replayHotAfterScan(new TwoQueuePolicy<>());
+		System.out.println("lru hits: "+lruHits+", 2q hits: "+twoQueueHits);
+		Assert.assertEquals(0,lruHits);
+		// a1in takes its share from hot keys once, the rest of them survive the scan
+		Assert.assertTrue(twoQueueHits>=8);
+	}
+
+	/**
+	 * Warm up 12 hot keys mixed with cold keys in a cache of 16 keys, then scan 1000 cold keys
+	 * touching each of them 3 times in a row, and count hits of hot keys.
+	 */
+	private int replayHotAfterScan(EvictionPolicy<Long> policy){
+		Set<Long> resident=new HashSet<>();
+		long cold=10000;
+		for (int round = 0; round < 20; round++) {
+			for (long key = 0; key < 12; key++) {
+				access(policy,resident,key,16);
+				if(key%3==0)
+					access(policy,resident,cold++,16);
+			}
+		}
+		for (long key = 100; key < 1100; key++) {
+			for (int i = 0; i < 3; i++) {
+				access(policy,resident,key,16);
+			}
+		}
+		int hits=0;
+		for (long key = 0; key < 12; key++) {
+			if(access(policy,resident,key,16))
+				hits++;
+		}
+		return hits;
+	}
+
+	private boolean access(EvictionPolicy<Long> policy,Set<Long> resident,Long key,int capacity){
+		if(resident.contains(key)){
+			policy.onAccess(key);
+			return true;
+		}
+		policy.onInsert(key);
+		resident.add(key);
+		if(resident.size()>capacity){
+			resident.remove(policy.evict(k -> !k.equals(key)));
+		}
+		return false;
+	}
+
+	@DisplayName("Cache evicts pages by given policy.")
+	@Test
+	public void testCacheWithPolicy() throws IOException {
+		MemoryCache cache=new MemoryCache(4*8192,StorageUnit.BYTE,1,MemoryCache.policyOf("2q"));
+		for (int i = 0; i < 4; i++) {
+			cache.put(i*8192L,new Page(i*8192L));
+		}
+		cache.put(4*8192L,new Page(4*8192L));
+		Assert.assertEquals(4,cache.size());
+		// first page of fifo queue is evicted
+		Assert.assertNull(cache.get(0L));
+		Assert.assertNotNull(cache.get(4*8192L));
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.io.FileChannelRegistry;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@DisplayName("Shared file channel test")
+public class FileChannelRegistryTest {
+
+	private static String rootDir="E:/data/";
+
+	@DisplayName("Keep at most capacity idle channels open.")
+	@Test
+	public void testBoundedChannels() throws IOException {
+		FileChannelRegistry registry=new FileChannelRegistry(2);
+		File a=new File(rootDir+"registry/a.llb");
+		File b=new File(rootDir+"registry/b.llb");
+		File c=new File(rootDir+"registry/c.llb");
+
+		try (FileChannelRegistry.Handle handle=registry.acquire(a)){
+			handle.channel().write(ByteBuffer.wrap(new byte[]{1,2,3}),0);
+		}
+		// the same file shares one channel
+		try (FileChannelRegistry.Handle first=registry.acquire(a);
+			 FileChannelRegistry.Handle second=registry.acquire(a)){
+			Assert.assertSame(first.channel(),second.channel());
+		}
+		Assert.assertEquals(1,registry.opens());
+
+		try (FileChannelRegistry.Handle handleA=registry.acquire(a)){
+			registry.acquire(b).close();
+			// a is in use, so it is not closed even if it is the least recently used one
+			try (FileChannelRegistry.Handle handleC=registry.acquire(c)){
+				Assert.assertTrue(handleA.channel().isOpen());
+				Assert.assertEquals(2,registry.openChannels());
+			}
+		}
+		Assert.assertEquals(3,registry.opens());
+
+		registry.closeAll();
+		Assert.assertEquals(0,registry.openChannels());
+	}
+
+	@DisplayName("Open file again after it is closed, deleted and created at the same path.")
+	@Test
+	public void testRecreateFile() throws IOException {
+		FileChannelRegistry registry=new FileChannelRegistry(2);
+		File file=new File(rootDir+"registry/recreate.llb");
+		file.delete();
+
+		FileChannelRegistry.Handle handle=registry.acquire(file);
+		handle.channel().write(ByteBuffer.wrap(new byte[]{1,2,3}),0);
+		// a channel in use is closed by its last handle
+		registry.close(file);
+		Assert.assertTrue(handle.channel().isOpen());
+		Assert.assertEquals(0,registry.openChannels());
+		handle.close();
+		Assert.assertFalse(handle.channel().isOpen());
+
+		Assert.assertTrue(file.delete());
+		try (FileChannelRegistry.Handle other=registry.acquire(file)){
+			other.channel().write(ByteBuffer.wrap(new byte[]{4,5}),0);
+		}
+		registry.close(file);
+		Assert.assertTrue(file.exists());
+		Assert.assertEquals(2,file.length());
+		Assert.assertEquals(2,registry.opens());
+	}
+
+	@DisplayName("Create page without opening file, and write it by shared channel.")
+	@Test
+	public void testPageWithoutSyscall() throws IOException {
+		File file=new File(rootDir+"registry_page/default.llb");
+		file.delete();
+
+		Page page=new Page(0,8192,"registry_page");
+		Assert.assertFalse(file.exists());
+
+		page.addRecord(new Row(new StructValue().addField(new StringValue("mark")).addField(new IntegerValue(18))));
+		page.spill();
+		Assert.assertTrue(file.exists());
+		Assert.assertEquals(8192,file.length());
+
+		page.load(0,8192,8192);
+		Assert.assertEquals(1,page.getLiveNums());
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.tree.BTree;
+import com.github.lolidb.storage.tree.FreeList;
+import com.github.lolidb.storage.tree.FreeListFactory;
+import com.github.lolidb.storage.tree.Node;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@DisplayName("BTree node free list test")
+public class FreeListTest {
+
+	@DisplayName("Freed node is reused, and free list grows when it is empty.")
+	@Test
+	public void testReuse(){
+		FreeList freeList=new FreeList(1,16,0);
+		Node node=freeList.getCurrentNode().setValuesSize(5);
+		Node created=freeList.getCurrentNode();
+		Assert.assertEquals(2,freeList.getCreated());
+
+		node.insert(new IntegerValue(1),5);
+		Assert.assertTrue(freeList.recycleNode(node));
+		Node reused=freeList.getCurrentNode().setValuesSize(5);
+		Assert.assertSame(node,reused);
+		Assert.assertEquals(0,reused.getValueNums());
+		Assert.assertNotSame(created,reused);
+		Assert.assertEquals(2,freeList.getReused());
+	}
+
+	@DisplayName("Nodes of split are taken from free list of tree.")
+	@Test
+	public void testTreeOwnsFreeList(){
+		FreeList freeList=new FreeList(0,64,8);
+		long global=FreeListFactory.get().getCreated()+FreeListFactory.get().getReused();
+		BTree tree=new BTree(3,freeList);
+		// far more nodes than default size of free list
+		for (int i = 0; i < 2000; i++) {
+			tree.replaceOrInsert(new IntegerValue(i));
+		}
+		Assert.assertEquals(2000,tree.size());
+		Assert.assertNotNull(tree.get(new IntegerValue(1999)));
+		Assert.assertTrue(freeList.getCreated()>64);
+		Assert.assertEquals(global,FreeListFactory.get().getCreated()+FreeListFactory.get().getReused());
+
+		long created=freeList.getCreated();
+		tree.getRoot().free(freeList);
+		BTree other=new BTree(3,freeList);
+		for (int i = 0; i < 100; i++) {
+			other.replaceOrInsert(new IntegerValue(i));
+		}
+		Assert.assertEquals(created,freeList.getCreated());
+		System.out.println("created:"+freeList.getCreated()+" reused:"+freeList.getReused());
+	}
+
+	@DisplayName("Threads build their own trees on a shared free list.")
+	@Test
+	public void testConcurrentBuild() throws InterruptedException {
+		FreeList freeList=new FreeList();
+		int threads=4;
+		CountDownLatch done=new CountDownLatch(threads);
+		AtomicReference<Throwable> error=new AtomicReference<>();
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				try {
+					for (int round = 0; round < 20; round++) {
+						BTree tree=new BTree(4,freeList);
+						for (int i = 0; i < 500; i++) {
+							tree.replaceOrInsert(new IntegerValue(i));
+						}
+						if(tree.size()!=500 || tree.get(new IntegerValue(250))==null){
+							throw new IllegalStateException("Tree is broken.");
+						}
+						tree.getRoot().free(freeList);
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null,e);
+				}finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		Assert.assertTrue(done.await(60,TimeUnit.SECONDS));
+		Assert.assertNull(error.get());
+		Assert.assertTrue(freeList.getReused()>freeList.getCreated());
+		System.out.println("created:"+freeList.getCreated()+" reused:"+freeList.getReused());
+	}
+}
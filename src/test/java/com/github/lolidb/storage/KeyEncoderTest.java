@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.codec.KeyEncoder;
+import com.github.lolidb.storage.tree.BPlusTree;
+import com.github.lolidb.storage.tree.OrderRule;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.utils.collections.BitMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+@DisplayName("Normalized key encoding test")
+public class KeyEncoderTest {
+
+	private static int compare(NormalizedValue a,NormalizedValue b){
+		return Integer.signum(NormalizedValue.compare(a.getValue(),b.getValue()));
+	}
+
+	@DisplayName("Encoded bytes of simple values keep their order.")
+	@Test
+	public void testSimpleOrder(){
+		Random random=new Random(7);
+		KeyEncoder ints=new KeyEncoder(IntegerValue.class);
+		KeyEncoder longs=new KeyEncoder(LongValue.class);
+		KeyEncoder doubles=new KeyEncoder(DoubleValue.class);
+		KeyEncoder floats=new KeyEncoder(FloatValue.class);
+		KeyEncoder shorts=new KeyEncoder(ShortValue.class);
+		KeyEncoder bytes=new KeyEncoder(ByteValue.class);
+		for (int i = 0; i < 10000; i++) {
+			int a=random.nextInt(),b=random.nextInt(200)-100;
+			Assert.assertEquals(Integer.signum(Integer.compare(a,b)),
+				compare(ints.encode(new IntegerValue(a)),ints.encode(new IntegerValue(b))));
+
+			long c=random.nextLong(),d=random.nextInt(200)-100;
+			Assert.assertEquals(Integer.signum(Long.compare(c,d)),
+				compare(longs.encode(new LongValue(c)),longs.encode(new LongValue(d))));
+
+			double e=random.nextGaussian()*1e6,f=random.nextGaussian();
+			Assert.assertEquals(Integer.signum(Double.compare(e,f)),
+				compare(doubles.encode(new DoubleValue(e)),doubles.encode(new DoubleValue(f))));
+
+			float g=(float) random.nextGaussian(),h=(float) (random.nextGaussian()*100);
+			Assert.assertEquals(Integer.signum(Float.compare(g,h)),
+				compare(floats.encode(new FloatValue(g)),floats.encode(new FloatValue(h))));
+
+			short s=(short) random.nextInt(),t=(short) random.nextInt();
+			Assert.assertEquals(Integer.signum(Short.compare(s,t)),
+				compare(shorts.encode(new ShortValue(s)),shorts.encode(new ShortValue(t))));
+
+			byte x=(byte) random.nextInt(),y=(byte) random.nextInt();
+			Assert.assertEquals(Integer.signum(Byte.compare(x,y)),
+				compare(bytes.encode(new ByteValue(x)),bytes.encode(new ByteValue(y))));
+		}
+
+		double[] specials={Double.NEGATIVE_INFINITY,-1.5,-0.0,0.0,Double.MIN_VALUE,2.5,Double.POSITIVE_INFINITY,Double.NaN};
+		for (int i = 0; i < specials.length-1; i++) {
+			Assert.assertEquals(-1,compare(doubles.encode(new DoubleValue(specials[i])),doubles.encode(new DoubleValue(specials[i+1]))));
+		}
+	}
+
+	@DisplayName("Escaped strings keep their order, and a prefix is ordered first.")
+	@Test
+	public void testStringOrder(){
+		KeyEncoder encoder=new KeyEncoder(StringValue.class,IntegerValue.class);
+		String[] strings={"","\u0000","\u0000\u0000","\u0000a","a","a\u0000","a\u0000b","ab","abc","b","Ā","￿"};
+		for (int i = 0; i < strings.length; i++) {
+			for (int j = 0; j < strings.length; j++) {
+				// integer column behind string must not change order of strings
+				NormalizedValue a=encoder.encode(new StructValue().addField(new StringValue(strings[i])).addField(new IntegerValue(9)));
+				NormalizedValue b=encoder.encode(new StructValue().addField(new StringValue(strings[j])).addField(new IntegerValue(-9)));
+				Assert.assertEquals(strings[i]+" <> "+strings[j],i==j?1:Integer.signum(Integer.compare(i,j)),compare(a,b));
+			}
+		}
+	}
+
+	@DisplayName("Index rows by a composite key with null values.")
+	@Test
+	public void testCompositeKey() throws IOException {
+		Schema schema=new Schema()
+			.addColumn(new ColumnDescription("id","", LongValue.class))
+			.addColumn(new ColumnDescription("city","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class));
+		KeyEncoder encoder=new KeyEncoder(schema,1,2);
+		BPlusTree tree=new BPlusTree(4);
+		String[] cities={"paris","tokyo","berlin"};
+		ByteBuffer buffer=ByteBuffer.allocateDirect(8192);
+		RowView view=new RowView(schema);
+		for (int i = 0; i < 30; i++) {
+			BitMap bitMap=new BitMap(256);
+			StructValue data=new StructValue().addField(new LongValue((long) i)).addField(new StringValue(cities[i%3]));
+			if(i<3){
+				bitMap.set(2);
+				data.addField(new NullValue());
+			}else {
+				data.addField(new IntegerValue(30-i));
+			}
+			Row row=new Row(data,bitMap);
+			NormalizedValue key=encoder.encode(row);
+
+			// encoding a serialized row gives the same key
+			buffer.clear();
+			Row.writeObject(row,buffer);
+			Assert.assertEquals(key,encoder.encode(view.wrap(buffer,0)));
+			tree.replaceOrInsert(key);
+		}
+		Assert.assertEquals(30,tree.size());
+
+		// all rows of tokyo, null age first and then ascending age
+		NormalizedValue prefix=encoder.encode(new StructValue().addField(new StringValue("tokyo")));
+		List<Value> expect=new ArrayList<>();
+		expect.add(encoder.encode(new StructValue().addField(new StringValue("tokyo")).addField(new NullValue())));
+		for (int i = 28; i >= 4; i-=3) {
+			expect.add(encoder.encode(new StructValue().addField(new StringValue("tokyo")).addField(new IntegerValue(30-i))));
+		}
+		List<Value> actual=new ArrayList<>();
+		for (Iterator<Value> iterator=tree.iterator(prefix,new NullValue(),true,true,OrderRule.ASCEND);iterator.hasNext();) {
+			NormalizedValue key=(NormalizedValue) iterator.next();
+			if(!key.startsWith(prefix))
+				break;
+			actual.add(key);
+		}
+		Assert.assertEquals(expect,actual);
+	}
+}
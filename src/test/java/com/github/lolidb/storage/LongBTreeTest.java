@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.tree.LongBTree;
+import com.github.lolidb.storage.tree.OrderRule;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+@DisplayName("Long key btree test")
+public class LongBTreeTest {
+
+	@DisplayName("Random insertion and removal are same as a tree map.")
+	@Test
+	public void testRandom(){
+		LongBTree tree=new LongBTree(3);
+		TreeMap<Long,Long> expect=new TreeMap<>();
+		Random random=new Random(7);
+		for (int i = 0; i < 100000; i++) {
+			long key=random.nextInt(5000)-2500;
+			if(random.nextInt(3)==0){
+				Long removal=expect.remove(key);
+				Assert.assertEquals(removal==null?LongBTree.NOT_FOUND:removal,tree.remove(key));
+			}else {
+				long value=random.nextInt(Integer.MAX_VALUE);
+				Long old=expect.put(key,value);
+				Assert.assertEquals(old==null?LongBTree.NOT_FOUND:old,tree.replaceOrInsert(key,value));
+			}
+		}
+		Assert.assertEquals(expect.size(),tree.size());
+		Assert.assertEquals((long) expect.firstKey(),tree.min());
+		Assert.assertEquals((long) expect.lastKey(),tree.max());
+		for (long key = -2600; key < 2600; key++) {
+			Long value=expect.get(key);
+			Assert.assertEquals(value==null?LongBTree.NOT_FOUND:value,tree.get(key));
+		}
+
+		assertRange(tree,expect,-1000,1000,true,false,OrderRule.ASCEND);
+		assertRange(tree,expect,-1000,1000,false,true,OrderRule.DESCEND);
+		assertRange(tree,expect,Long.MIN_VALUE,Long.MAX_VALUE,true,true,OrderRule.ASCEND);
+		assertRange(tree,expect,Long.MIN_VALUE,Long.MAX_VALUE,true,true,OrderRule.DESCEND);
+		Assert.assertEquals(0,tree.range(3000,4000,true,true).length);
+
+		for (long key:expect.keySet()) {
+			tree.remove(key);
+		}
+		Assert.assertEquals(0,tree.size());
+		Assert.assertEquals(1,tree.height());
+		Assert.assertFalse(tree.cursor(Long.MIN_VALUE,Long.MAX_VALUE,true,true,OrderRule.ASCEND).next());
+	}
+
+	private static void assertRange(LongBTree tree,TreeMap<Long,Long> expect,long from,long to,
+									boolean hasStart,boolean hasEnd,OrderRule order){
+		NavigableMap<Long,Long> sub=expect.subMap(from,hasStart,to,hasEnd);
+		if(order==OrderRule.DESCEND){
+			sub=sub.descendingMap();
+		}
+		LongBTree.Cursor cursor=tree.cursor(from,to,hasStart,hasEnd,order);
+		for (Map.Entry<Long,Long> entry:sub.entrySet()) {
+			Assert.assertTrue(cursor.next());
+			Assert.assertEquals((long) entry.getKey(),cursor.key());
+			Assert.assertEquals((long) entry.getValue(),cursor.value());
+		}
+		Assert.assertFalse(cursor.next());
+	}
+}
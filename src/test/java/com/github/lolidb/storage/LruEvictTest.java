@@ -18,6 +18,9 @@
 package com.github.lolidb.storage;
 
 import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.cache.PageHandle;
+import com.github.lolidb.storage.cache.StorageUnit;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
 
@@ -82,4 +85,105 @@ public class LruEvictTest {
 		System.out.println(cache.get(0L));
 	}
 
+	@DisplayName("Test striped cache keeps pages within capacity.")
+	@Test
+	public void testStripedCache() throws IOException {
+		MemoryCache cache = new MemoryCache(64,4);
+		Assert.assertEquals(4,cache.concurrencyLevel());
+
+		for (int i = 0; i < 64; i++) {
+			cache.put(i*8192L,new Page(i*8192L));
+		}
+		Assert.assertEquals(64,cache.size());
+		Assert.assertEquals(64*8192L,cache.position());
+		for (int i = 0; i < 64; i++) {
+			Assert.assertNotNull(cache.get(i*8192L));
+		}
+
+		for (int i = 64; i < 96; i++) {
+			cache.put(i*8192L,new Page(i*8192L));
+		}
+		System.out.println(cache.size());
+		Assert.assertTrue(cache.position()<=cache.capacity());
+		Assert.assertNotNull(cache.get(95*8192L));
+
+		Assert.assertNotNull(cache.remove(95*8192L));
+		Assert.assertNull(cache.get(95*8192L));
+
+		// small cache is not striped
+		Assert.assertEquals(1,new MemoryCache(4).concurrencyLevel());
+	}
+
+	@DisplayName("Test cache admits and evicts pages by bytes.")
+	@Test
+	public void testByteBudget() throws IOException {
+		Assert.assertEquals(4L<<30,StorageUnit.parse("4 GB"));
+		Assert.assertEquals(512L<<20,StorageUnit.parse("512MB"));
+		Assert.assertEquals(8192,StorageUnit.parse("8192"));
+
+		MemoryCache cache = new MemoryCache("64 KB");
+		Assert.assertEquals(65536,cache.capacity());
+
+		// pages of different sizes share the budget
+		cache.put(0L,new Page(0,32768));
+		cache.put(32768L,new Page(32768,16384));
+		cache.put(49152L,new Page(49152,8192));
+		cache.put(57344L,new Page(57344,8192));
+		Assert.assertEquals(65536,cache.position());
+
+		// the eldest and biggest page is evicted to admit a new one
+		cache.put(65536L,new Page(65536,16384));
+		Assert.assertNull(cache.get(0L));
+		Assert.assertEquals(49152,cache.position());
+		Assert.assertEquals(65536,cache.peak());
+
+		cache.remove(65536L);
+		Assert.assertEquals(32768,cache.position());
+		cache.clear();
+		Assert.assertEquals(0,cache.position());
+		Assert.assertEquals(65536,cache.peak());
+	}
+
+	@DisplayName("Test pinned page is never evicted.")
+	@Test
+	public void testPinnedPage() throws IOException {
+		MemoryCache cache = new MemoryCache(2,1);
+		cache.put(0L,new Page(0));
+		cache.put(8192L,new Page(8192));
+		Assert.assertNull(cache.pin(16384L));
+
+		try (PageHandle handle = cache.pin(0L)) {
+			Assert.assertTrue(handle.getPage().isPinned());
+			// the least recently used page is pinned, so the other one is evicted
+			cache.get(8192L);
+			cache.put(16384L,new Page(16384));
+			Assert.assertNotNull(cache.get(0L));
+			Assert.assertNull(cache.get(8192L));
+
+			// all the other pages are pinned, cache is allowed to be over its capacity
+			try (PageHandle other = cache.pin(16384L)) {
+				cache.put(24576L,new Page(24576));
+				Assert.assertEquals(3,cache.size());
+			}
+		}
+		Assert.assertFalse(cache.get(0L).isPinned());
+
+		// the next admission evicts unpinned pages
+		cache.put(32768L,new Page(32768));
+		Assert.assertEquals(2,cache.size());
+	}
+
+	@DisplayName("Test page put and pinned in one go is not evicted by later puts.")
+	@Test
+	public void testPutAndPin() throws IOException {
+		MemoryCache cache = new MemoryCache(1,1);
+		try (PageHandle handle = cache.putAndPin(0L,new Page(0))) {
+			Assert.assertTrue(handle.getPage().isPinned());
+			cache.put(8192L,new Page(8192));
+			cache.put(16384L,new Page(16384));
+			Assert.assertSame(handle.getPage(),cache.get(0L));
+			Assert.assertEquals(2,cache.size());
+		}
+		Assert.assertFalse(cache.get(0L).isPinned());
+	}
 }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.File;
+import java.io.IOException;
+
+@DisplayName("Memory mapped partition test")
+public class MappedPartitionTest {
+
+	@DisplayName("Pages of mapped partition share file layout with buffered pages.")
+	@Test
+	public void testMappedPage() throws IOException {
+		Schema schema=new Schema()
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class));
+		new File("E:/data/mapped/default.llb").delete();
+
+		// 8 pages in a chunk, so page 10 is in the second chunk
+		try (MappedPartition partition=new MappedPartition("mapped","default",8192,8*8192)){
+			Page page=partition.getPage(10*8192L);
+			Assert.assertEquals(0,page.getSlotNums());
+			page.addRecord(new Row(new StructValue().addField(new StringValue("mark")).addField(new IntegerValue(18))));
+			Assert.assertTrue(page.flush());
+			Assert.assertFalse(page.isModified());
+
+			// another page object of the same address sees the data without loading
+			Page same=partition.getPage(10*8192L);
+			Assert.assertEquals(1,same.getLiveNums());
+		}
+		// file is extended to the end of page 10, not to the end of its chunk
+		Assert.assertEquals(11*8192,new File("E:/data/mapped/default.llb").length());
+
+		// read by buffered page
+		Page page=new Page(10*8192L,8192,"mapped");
+		page.spill();
+		page.load();
+		System.out.println(page.get(0,schema));
+		RowView view=page.view(0,new RowView(schema));
+		Assert.assertEquals("mark",view.getString(0));
+		Assert.assertEquals(18,view.getInt(1));
+	}
+
+	@DisplayName("Reading pages of mapped partition does not grow the file.")
+	@Test
+	public void testReadNotGrow() throws IOException {
+		File file=new File("E:/data/mapped/read.llb");
+		file.delete();
+		try (MappedPartition partition=new MappedPartition("mapped","read",8192,8*8192)){
+			Page page=partition.getPage(2*8192L);
+			page.addRecord(new Row(new StructValue().addField(new StringValue("mark")).addField(new IntegerValue(18))));
+			page.flush();
+		}
+		Assert.assertEquals(3*8192,file.length());
+
+		try (MappedPartition partition=new MappedPartition("mapped","read",8192,8*8192)){
+			Assert.assertEquals(0,partition.getPage(0L).getSlotNums());
+			Page page=partition.getPage(2*8192L);
+			Assert.assertEquals(1,page.getLiveNums());
+			Assert.assertEquals(3*8192,file.length());
+
+			// a later page of the same chunk maps the chunk again
+			partition.getPage(5*8192L);
+			Assert.assertEquals(6*8192,file.length());
+			Assert.assertEquals(1,partition.getPage(2*8192L).getLiveNums());
+			Assert.assertEquals(1,page.getLiveNums());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.cache.PageHandle;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@DisplayName("Page arena test")
+public class PageArenaTest {
+
+	@DisplayName("Released frames are reused, and arena never allocates over its capacity.")
+	@Test
+	public void testAcquireAndRelease(){
+		// 2 slabs, the second one is smaller
+		PageArena arena=new PageArena(5*8192,8192,4*8192);
+		Assert.assertEquals(0,arena.allocatedBytes());
+		int[] frames=new int[5];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i]=arena.acquire();
+			Assert.assertEquals(i,frames[i]);
+		}
+		Assert.assertEquals(5*8192,arena.allocatedBytes());
+		Assert.assertEquals(-1,arena.acquire());
+		Assert.assertEquals(1,arena.misses());
+
+		ByteBuffer buffer=arena.frame(frames[4]);
+		Assert.assertEquals(8192,buffer.capacity());
+		buffer.putInt(0,10);
+		Assert.assertEquals(0,arena.frame(frames[3]).getInt(0));
+
+		arena.release(frames[4]);
+		Assert.assertEquals(1,arena.freeFrames());
+		Assert.assertEquals(frames[4],arena.acquire());
+		Assert.assertEquals(10,arena.frame(frames[4]).getInt(0));
+		Assert.assertEquals(5*8192,arena.allocatedBytes());
+		System.out.println("acquires:"+arena.acquires()+" misses:"+arena.misses());
+	}
+
+	@DisplayName("Frame can not be released twice.")
+	@Test(expected = IllegalStateException.class)
+	public void testDoubleRelease(){
+		PageArena arena=new PageArena(2*8192,8192,8192);
+		int frame=arena.acquire();
+		arena.release(frame);
+		arena.release(frame);
+	}
+
+	@DisplayName("Spilled page gives its frame back, loading it again allocates nothing.")
+	@Test
+	public void testPageChurn() throws IOException {
+		new File("E:/data/arena/default.llb").delete();
+		PageArena arena=PageArena.getInstance();
+		Page page=new Page(0,8192,"arena");
+		page.addRecord(new Row(new StructValue().addField(new StringValue("mark")).addField(new IntegerValue(18))));
+		page.spill();
+
+		// a page never written is empty, even if its frame was used by the page above
+		Page other=new Page(8192,8192,"arena");
+		other.spill();
+		other.load();
+		Assert.assertEquals(0,other.getSlotNums());
+		other.spill();
+
+		long allocated=arena.allocatedBytes();
+		int used=arena.usedFrames();
+		for (int i = 0; i < 1000; i++) {
+			page.load();
+			Assert.assertEquals(1,page.getLiveNums());
+			page.spill();
+		}
+		Assert.assertEquals(allocated,arena.allocatedBytes());
+		Assert.assertEquals(used,arena.usedFrames());
+		System.out.println("allocated:"+allocated+" used frames:"+used);
+	}
+
+	@DisplayName("Clearing cache gives frames of its pages back.")
+	@Test
+	public void testClearCache() throws IOException {
+		PageArena arena=PageArena.getInstance();
+		int used=arena.usedFrames();
+		MemoryCache cache=new MemoryCache(64);
+		for (int i = 0; i < 32; i++) {
+			cache.put(i*8192L,new Page(i*8192L,8192,"arena_clear"));
+		}
+		Assert.assertEquals(used+32,arena.usedFrames());
+		cache.clear();
+		Assert.assertEquals(0,cache.size());
+		Assert.assertEquals(used,arena.usedFrames());
+	}
+
+	@DisplayName("Clearing cache keeps pinned dirty page until it is unpinned.")
+	@Test
+	public void testClearPinnedPage() throws IOException {
+		PageArena arena=PageArena.getInstance();
+		int used=arena.usedFrames();
+		MemoryCache cache=new MemoryCache(64);
+		Page page=new Page(0L,8192,"arena_pinned");
+		page.addRecord(new Row(new StructValue().addField(new StringValue("mark")).addField(new IntegerValue(18))));
+		cache.put(0L,page);
+		cache.put(8192L,new Page(8192L,8192,"arena_pinned"));
+		try (PageHandle handle=cache.pin(0L)){
+			cache.clear();
+			Assert.assertEquals(1,cache.size());
+			Assert.assertSame(page,cache.get(0L));
+			Assert.assertTrue(page.isModified());
+			Assert.assertEquals(used+1,arena.usedFrames());
+			Assert.assertEquals(8192,cache.position());
+		}
+		// the unpinned page is written and its frame goes back
+		cache.clear();
+		Assert.assertEquals(0,cache.size());
+		Assert.assertFalse(page.isModified());
+		Assert.assertEquals(used,arena.usedFrames());
+		Assert.assertEquals(0,cache.position());
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.cache.PageFlusher;
+import com.github.lolidb.storage.tree.value.BooleanValue;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+
+@DisplayName("Background dirty page flusher test")
+public class PageFlusherTest {
+
+	private static Page dirtyPage(long address) throws IOException {
+		Page page=new Page(address);
+		page.addRecord(new Row(new StructValue().addField(new StringValue("mark"))
+			.addField(new IntegerValue(18)).addField(new BooleanValue(true))));
+		return page;
+	}
+
+	@DisplayName("Flush dirty pages between watermarks.")
+	@Test
+	public void testWatermarks() throws IOException, InterruptedException {
+		MemoryCache cache=new MemoryCache(10,1);
+		try (PageFlusher flusher=new PageFlusher(cache,2,0.5,0.2,1000)){
+			for (int i = 0; i < 5; i++) {
+				cache.put(i*8192L,dirtyPage(i*8192L));
+			}
+			// not over high watermark
+			Assert.assertEquals(0,flusher.flush());
+
+			for (int i = 5; i < 10; i++) {
+				cache.put(i*8192L,dirtyPage(i*8192L));
+			}
+			Assert.assertEquals(8,flusher.flush());
+			Assert.assertEquals(2,cache.dirtyPages().size());
+			Assert.assertEquals(8,flusher.flushedPages());
+		}
+	}
+
+	@DisplayName("Eviction drops clean pages before dirty ones.")
+	@Test
+	public void testEvictCleanPage() throws IOException, InterruptedException {
+		MemoryCache cache=new MemoryCache(4,1);
+		Page[] pages=new Page[4];
+		try (PageFlusher flusher=new PageFlusher(cache,1,0.5,0.0,10).start()){
+			for (int i = 0; i < 4; i++) {
+				pages[i]=dirtyPage(i*8192L);
+				cache.put(i*8192L,pages[i]);
+			}
+			// wait for background flushing
+			for (int i = 0; i < 100 && !cache.dirtyPages().isEmpty(); i++) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue(cache.dirtyPages().isEmpty());
+		}
+
+		// the only dirty page is the eldest, but a clean page is evicted
+		pages[0].changeState();
+		cache.put(4*8192L,dirtyPage(4*8192L));
+		Assert.assertNotNull(cache.get(0L));
+		Assert.assertNull(cache.get(8192L));
+		Assert.assertEquals(0,cache.syncFlushes());
+	}
+
+	@DisplayName("Eviction scans a bounded number of pages for a clean one.")
+	@Test
+	public void testEvictScanLimit() throws IOException {
+		MemoryCache cache=new MemoryCache(40,1);
+		for (int i = 0; i < 20; i++) {
+			cache.put(i*8192L,dirtyPage(i*8192L));
+		}
+		for (int i = 20; i < 40; i++) {
+			cache.put(i*8192L,new Page(i*8192L));
+		}
+		// clean pages are behind 16 dirty ones, the next dirty page is written instead
+		cache.put(40*8192L,new Page(40*8192L));
+		Assert.assertNull(cache.get(16*8192L));
+		Assert.assertNotNull(cache.get(20*8192L));
+		Assert.assertEquals(1,cache.syncFlushes());
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import com.github.lolidb.storage.tree.value.StructValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@DisplayName("Page free list test")
+public class PageFreeListTest {
+
+	@DisplayName("Recycled page is reused as an empty page.")
+	@Test
+	public void testReuse() throws InterruptedException, IOException {
+		PageFreeList freeList=new PageFreeList(2,2,0);
+		Page page=freeList.get(3*8192L);
+		Assert.assertEquals(3,page.getPageId());
+		page.addRecord(new Row(new StructValue().addField(new StringValue("mark")).addField(new IntegerValue(18))));
+		Assert.assertTrue(page.isModified());
+		freeList.recycle(page);
+
+		Page reused=freeList.get();
+		Assert.assertSame(page,reused);
+		Assert.assertEquals(0,reused.getSlotNums());
+		Assert.assertFalse(reused.isModified());
+		Assert.assertEquals(2,freeList.size());
+	}
+
+	@DisplayName("Free list grows to its max size, then waits for recycled pages.")
+	@Test
+	public void testGrowAndWait() throws InterruptedException {
+		PageFreeList freeList=new PageFreeList(1,3,4);
+		List<Page> pages=new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			pages.add(freeList.get());
+		}
+		Assert.assertEquals(3,freeList.size());
+		Assert.assertNull(freeList.get(10,TimeUnit.MILLISECONDS));
+
+		AtomicReference<Page> got=new AtomicReference<>();
+		CountDownLatch done=new CountDownLatch(1);
+		Thread waiter=new Thread(() -> {
+			try {
+				got.set(freeList.get());
+				done.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		waiter.start();
+		while (freeList.getWaits()<2){
+			Thread.sleep(1);
+		}
+		// page goes to shared pool since someone is waiting, though local cache is not full
+		freeList.recycle(pages.get(0));
+		Assert.assertTrue(done.await(5,TimeUnit.SECONDS));
+		Assert.assertSame(pages.get(0),got.get());
+		Assert.assertEquals(3,freeList.size());
+	}
+
+	@DisplayName("Threads get and recycle pages concurrently.")
+	@Test
+	public void testConcurrentAllocation() throws InterruptedException {
+		PageFreeList freeList=new PageFreeList(4,16,2);
+		int threads=8;
+		int rounds=20000;
+		CountDownLatch done=new CountDownLatch(threads);
+		AtomicReference<Throwable> error=new AtomicReference<>();
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				try {
+					for (int i = 0; i < rounds; i++) {
+						Page page=freeList.get();
+						if(page.getSlotNums()!=0){
+							throw new IllegalStateException("Page is not empty.");
+						}
+						page.changeState();
+						freeList.recycle(page);
+					}
+					freeList.drain();
+				} catch (Throwable e) {
+					error.compareAndSet(null,e);
+				}finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		Assert.assertTrue(done.await(60,TimeUnit.SECONDS));
+		Assert.assertNull(error.get());
+		Assert.assertTrue(freeList.size()<=16);
+		Assert.assertEquals(freeList.size(),freeList.available());
+		Assert.assertEquals((long) threads*rounds,freeList.getAllocations());
+		Assert.assertEquals((long) threads*rounds,freeList.getRecycles());
+		System.out.println("pages:"+freeList.size()+" local hits:"+freeList.getLocalHits()
+			+" waits:"+freeList.getWaits()+" allocation rate:"+(long) freeList.allocationRate()+"/s");
+	}
+
+	@DisplayName("Pages cached by an idle thread are reclaimed by a waiting thread.")
+	@Test
+	public void testReclaimIdleCache() throws InterruptedException {
+		PageFreeList freeList=new PageFreeList(0,2,2);
+		AtomicReference<Throwable> error=new AtomicReference<>();
+		Thread idle=new Thread(() -> {
+			try {
+				Page first=freeList.get();
+				Page second=freeList.get();
+				freeList.recycle(first);
+				freeList.recycle(second);
+			} catch (Throwable e) {
+				error.set(e);
+			}
+		});
+		idle.start();
+		idle.join();
+		Assert.assertNull(error.get());
+		Assert.assertEquals(2,freeList.size());
+		Assert.assertEquals(0,freeList.available());
+
+		Page page=freeList.get(1,TimeUnit.SECONDS);
+		Assert.assertNotNull(page);
+		Assert.assertNotNull(freeList.get(1,TimeUnit.SECONDS));
+		Assert.assertNull(freeList.get(10,TimeUnit.MILLISECONDS));
+		freeList.recycle(page);
+		Assert.assertNotNull(freeList.get());
+		System.out.println("waits:"+freeList.getWaits()+" local hits:"+freeList.getLocalHits());
+	}
+}
@@ -25,6 +25,7 @@ import com.github.lolidb.storage.tree.value.IntegerValue;
 import com.github.lolidb.storage.tree.value.StringValue;
 import com.github.lolidb.storage.tree.value.StructValue;
 import com.github.lolidb.utils.collections.Tuple3;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
 
@@ -57,12 +58,8 @@ public class PageTest {
 			page.addRecord(row);
 		}
 		System.out.println(page.usedMemory);
-		int pos=0,cnt=0;
-		while (pos<page.realUsedMemory){
-			Row row1 = Row.readObject(page.buffer, pos, schema);
-			System.out.println(cnt+" -> "+row1);
-			cnt++;
-			pos+=row1.getRealSize();
+		for (int slot = 0; slot < page.getSlotNums(); slot++) {
+			System.out.println(slot+" -> "+page.get(slot,schema));
 		}
 		page.removeRecord(row,schema);
 		System.out.println(page.usedMemory);
@@ -95,15 +92,44 @@ public class PageTest {
 		page.load(page.fileOffset,page.pageSize,8192);
 		System.out.println(page.buffer);
 
-		int pos=0,cnt=0;
-		while (pos<page.realUsedMemory){
-			Row row1 = Row.readObject(page.buffer, pos, schema);
-			System.out.println(cnt+" -> "+row1);
-			cnt++;
-			pos+=row1.getRealSize();
+		for (int slot = 0; slot < page.getSlotNums(); slot++) {
+			System.out.println(slot+" -> "+page.get(slot,schema));
 		}
 	}
 
+	@DisplayName("Test page is written back to its fixed place.")
+	@Test
+	public void testWriteInPlace() throws IOException {
+		Schema schema=new Schema()
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("sex","",BooleanValue.class));
+		File file=new File("E:/data/positional/default.llb");
+		file.delete();
+
+		Page first=new Page(0,8192,"positional");
+		Page second=new Page(8192,8192,"positional");
+		Assert.assertEquals(1,second.getPageId());
+		Assert.assertEquals(8192,second.getFileOffset());
+
+		for (int i = 0; i < 10; i++) {
+			Row row = new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("mark"),new IntegerValue(i),new BooleanValue(true))));
+			second.addRecord(row);
+			second.flush();
+		}
+		first.addRecord(new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("lolita"),new IntegerValue(24),new BooleanValue(false)))));
+		first.spill();
+		second.spill();
+		// rewriting a page does not grow the file
+		Assert.assertEquals(2*8192,file.length());
+
+		second.load();
+		Assert.assertEquals(10,second.getLiveNums());
+		Assert.assertEquals(9,second.view(9,new RowView(schema)).getInt(1));
+		first.load();
+		Assert.assertEquals("lolita",first.view(0,new RowView(schema)).getString(0));
+	}
+
 	@DisplayName("Test search a row in one page.")
 	@Test
 	public void testSearchFunction() throws IOException {
@@ -123,4 +149,70 @@ public class PageTest {
 		System.out.println(page.get(row1,schema).size());
 		System.out.println(page.get(row,schema).size());
 	}
+
+	@DisplayName("Test remove and update a row by slot.")
+	@Test
+	public void testSlotFunction() throws IOException {
+		Page page=new Page(0);
+		Schema schema=new Schema()
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("sex","",BooleanValue.class));
+		Row row = new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("mark"),new IntegerValue(18),new BooleanValue(true))));
+		Row row1 = new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("lolita"),new IntegerValue(24),new BooleanValue(false))));
+
+		int slot=0;
+		while (slot!=-1){
+			slot=page.insert(row,schema);
+		}
+		int slots=page.getSlotNums();
+
+		// removed slot can not be searched, and its space can be reused after compact
+		Assert.assertTrue(page.removeRecord(0,schema));
+		Assert.assertTrue(page.removeRecord(1,schema));
+		Assert.assertNull(page.get(0,schema));
+		Assert.assertEquals(slots-2,page.getLiveNums());
+
+		// longer record is moved and keep its slot
+		Assert.assertTrue(page.updateRecord(2,row1,schema));
+		Assert.assertTrue(page.get(2,schema).sameAs(row1));
+		Assert.assertEquals(1,page.get(row1,schema).size());
+		Assert.assertEquals(slots-3,page.get(row,schema).size());
+
+		page.compact();
+		Assert.assertTrue(page.get(2,schema).sameAs(row1));
+		Assert.assertTrue(page.get(slots-1,schema).sameAs(row));
+	}
+
+	@DisplayName("Test removed slots are reused under delete and insert churn.")
+	@Test
+	public void testReuseSlot() throws IOException {
+		Page page=new Page(0);
+		Schema schema=new Schema()
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("sex","",BooleanValue.class));
+		for (int i = 0; i < 50; i++) {
+			page.insert(new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("mark"),new IntegerValue(i),new BooleanValue(true)))),schema);
+		}
+		int slots=page.getSlotNums();
+
+		// page would be full of dead slots if they were not reused
+		for (int i = 0; i < 10000; i++) {
+			int removed=(i*7)%slots;
+			Assert.assertTrue(page.removeRecord(removed,schema));
+			Row row=new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("lolita"),new IntegerValue(i),new BooleanValue(false))));
+			Assert.assertEquals(removed,page.insert(row,schema));
+		}
+		Assert.assertEquals(slots,page.getSlotNums());
+		Assert.assertEquals(slots,page.getLiveNums());
+		Assert.assertEquals(9999,page.view((9999*7)%slots,new RowView(schema)).getInt(1));
+
+		// the lowest removed slot is taken first
+		page.removeRecord(30,schema);
+		page.removeRecord(10,schema);
+		Assert.assertEquals(10,page.insert(new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("a"),new IntegerValue(1),new BooleanValue(true)))),schema));
+		Assert.assertEquals(30,page.insert(new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("b"),new IntegerValue(2),new BooleanValue(true)))),schema));
+		Assert.assertEquals(slots,page.insert(new Row(StructValue.parse(schema,new Tuple3<>(new StringValue("c"),new IntegerValue(3),new BooleanValue(true)))),schema));
+	}
 }
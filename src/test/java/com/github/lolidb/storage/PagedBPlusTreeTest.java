@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.storage.cache.MemoryCache;
+import com.github.lolidb.storage.tree.OrderRule;
+import com.github.lolidb.storage.tree.PagedBPlusTree;
+import com.github.lolidb.storage.tree.Value;
+import com.github.lolidb.storage.tree.value.IntegerValue;
+import com.github.lolidb.storage.tree.value.NullValue;
+import com.github.lolidb.storage.tree.value.StringValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@DisplayName("Paged b+ tree test")
+public class PagedBPlusTreeTest {
+
+	private static final long BASE=1L<<40;
+
+	@DisplayName("Insert, search and remove keys of paged b+ tree.")
+	@Test
+	public void testInsert() throws IOException {
+		File file=new File("E:/data/index/int.idx");
+		file.delete();
+		List<Integer> keys=new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			keys.add(i);
+		}
+		Collections.shuffle(keys,new Random(7));
+
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,IntegerValue.class,new MemoryCache(1024),BASE)){
+			for (int key:keys) {
+				Assert.assertEquals(PagedBPlusTree.NOT_FOUND,tree.replaceOrInsert(new IntegerValue(key),key*10L));
+			}
+			Assert.assertEquals(50000,tree.size());
+			Assert.assertTrue(tree.height()>=2);
+			Assert.assertEquals(70L,tree.replaceOrInsert(new IntegerValue(7),7L));
+			Assert.assertEquals(7L,tree.get(new IntegerValue(7)));
+			for (int i = 0; i < 50000; i+=97) {
+				Assert.assertTrue(tree.contain(new IntegerValue(i)));
+			}
+			Assert.assertEquals(PagedBPlusTree.NOT_FOUND,tree.get(new IntegerValue(50000)));
+
+			List<Map.Entry<Value,Long>> range=tree.range(new IntegerValue(100),new IntegerValue(200),true,false);
+			Assert.assertEquals(100,range.size());
+			Assert.assertEquals(new IntegerValue(100),range.get(0).getKey());
+			Assert.assertEquals(1990L,(long) range.get(99).getValue());
+
+			Iterator<Map.Entry<Value,Long>> iterator=tree.iterator(new NullValue(),new IntegerValue(49990),true,false,OrderRule.DESCEND);
+			for (int i = 49989; i >= 0; i--) {
+				Assert.assertEquals(new IntegerValue(i),iterator.next().getKey());
+			}
+			Assert.assertFalse(iterator.hasNext());
+
+			for (int i = 0; i < 50000; i+=2) {
+				Assert.assertEquals(i==6?60L:(i*10L),tree.remove(new IntegerValue(i)));
+			}
+			Assert.assertEquals(PagedBPlusTree.NOT_FOUND,tree.remove(new IntegerValue(0)));
+			Assert.assertEquals(25000,tree.size());
+			int expect=1;
+			for (Iterator<Map.Entry<Value,Long>> it=tree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.ASCEND);it.hasNext();) {
+				Assert.assertEquals(new IntegerValue(expect),it.next().getKey());
+				expect+=2;
+			}
+			Assert.assertEquals(50001,expect);
+		}
+	}
+
+	@DisplayName("Reopen paged b+ tree from index file with a small cache.")
+	@Test
+	public void testReopen() throws IOException {
+		File file=new File("E:/data/index/string.idx");
+		file.delete();
+		Random random=new Random(11);
+		List<String> keys=new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			keys.add("user-"+random.nextInt(1000000)+"-"+i);
+		}
+
+		// 16 pages in cache, so most of index pages are spilled while building
+		MemoryCache cache=new MemoryCache(16,1);
+		long pages;
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,StringValue.class,cache,BASE)){
+			for (int i = 0; i < keys.size(); i++) {
+				tree.replaceOrInsert(new StringValue(keys.get(i)),i);
+			}
+			pages=tree.pages();
+			System.out.println("Index pages:"+pages+", height:"+tree.height());
+			Assert.assertTrue(pages>16);
+		}
+		Assert.assertEquals(0,cache.size());
+		Assert.assertEquals(pages*8192,file.length());
+
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,StringValue.class,new MemoryCache(16,1),BASE)){
+			Assert.assertEquals(keys.size(),tree.size());
+			Assert.assertEquals(pages,tree.pages());
+			for (int i = 0; i < keys.size(); i++) {
+				Assert.assertEquals(i,tree.get(new StringValue(keys.get(i))));
+			}
+			Collections.sort(keys);
+			int index=0;
+			for (Iterator<Map.Entry<Value,Long>> it=tree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.ASCEND);it.hasNext();) {
+				Assert.assertEquals(new StringValue(keys.get(index++)),it.next().getKey());
+			}
+			Assert.assertEquals(keys.size(),index);
+		}
+	}
+
+	@DisplayName("Create index again at the path of a deleted index file.")
+	@Test
+	public void testRecreate() throws IOException {
+		File file=new File("E:/data/index/recreate.idx");
+		file.delete();
+		for (int round = 0; round < 2; round++) {
+			try (PagedBPlusTree tree=new PagedBPlusTree(file,IntegerValue.class,new MemoryCache(64),BASE)){
+				Assert.assertEquals(0,tree.size());
+				// meta page and root leaf
+				Assert.assertEquals(2,tree.pages());
+				tree.replaceOrInsert(new IntegerValue(round),round);
+			}
+			// type of the first page on disk is meta
+			try (RandomAccessFile raf=new RandomAccessFile(file,"r")){
+				Assert.assertEquals(3,raf.readInt());
+			}
+			try (PagedBPlusTree tree=new PagedBPlusTree(file,IntegerValue.class,new MemoryCache(64),BASE)){
+				Assert.assertEquals(1,tree.size());
+				Assert.assertEquals(round,tree.get(new IntegerValue(round)));
+			}
+			Assert.assertTrue(file.delete());
+		}
+	}
+
+	@DisplayName("Compress keys sharing long prefixes by prefix of node and truncated separators.")
+	@Test
+	public void testCompress() throws IOException {
+		Random random=new Random(13);
+		List<String> keys=new ArrayList<>();
+		for (int i = 0; i < 30000; i++) {
+			keys.add("https://www.example.com/catalog/items/"+random.nextInt(100)+"/"+random.nextInt(1000000)+"?ref="+i);
+		}
+
+		long[] pages=new long[2];
+		for (int c = 0; c < 2; c++) {
+			boolean compress=c==0;
+			File file=new File("E:/data/index/url-"+compress+".idx");
+			file.delete();
+			try (PagedBPlusTree tree=new PagedBPlusTree(file,StringValue.class,new MemoryCache(64,1),BASE,8192,compress)){
+				for (int i = 0; i < keys.size(); i++) {
+					tree.replaceOrInsert(new StringValue(keys.get(i)),i);
+				}
+				pages[c]=tree.pages();
+				System.out.println("Compress:"+compress+", pages:"+pages[c]+", height:"+tree.height()
+					+", bytes per key:"+pages[c]*8192/keys.size());
+			}
+			// flag is kept in index file
+			try (PagedBPlusTree tree=new PagedBPlusTree(file,StringValue.class,new MemoryCache(64,1),BASE,8192,!compress)){
+				for (int i = 0; i < keys.size(); i+=7) {
+					Assert.assertEquals(i,tree.get(new StringValue(keys.get(i))));
+				}
+				Assert.assertEquals(PagedBPlusTree.NOT_FOUND,tree.get(new StringValue("https://www.example.com/")));
+				Assert.assertEquals(PagedBPlusTree.NOT_FOUND,tree.get(new StringValue("")));
+
+				for (int i = 0; i < keys.size(); i+=3) {
+					Assert.assertEquals(i,tree.remove(new StringValue(keys.get(i))));
+				}
+				List<String> sorted=new ArrayList<>();
+				for (int i = 0; i < keys.size(); i++) {
+					if(i%3!=0)
+						sorted.add(keys.get(i));
+				}
+				Collections.sort(sorted,Collections.reverseOrder());
+				int index=0;
+				for (Iterator<Map.Entry<Value,Long>> it=tree.iterator(new NullValue(),new NullValue(),true,true,OrderRule.DESCEND);it.hasNext();) {
+					Assert.assertEquals(new StringValue(sorted.get(index++)),it.next().getKey());
+				}
+				Assert.assertEquals(sorted.size(),index);
+			}
+		}
+		Assert.assertTrue(pages[0]<pages[1]);
+	}
+
+	@DisplayName("Keep row ids of duplicate keys in posting pages.")
+	@Test
+	public void testDuplicateKeys() throws IOException {
+		File file=new File("E:/data/index/duplicate.idx");
+		file.delete();
+		int rows=40000;
+		long pages;
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,IntegerValue.class,new MemoryCache(64,1),BASE,8192,false,false)){
+			// key 0 is hot, key 1..100 hold a few rows, and key 1000 holds a single row
+			List<Integer> ids=new ArrayList<>();
+			for (int i = 0; i < rows; i++) {
+				ids.add(i);
+			}
+			Collections.shuffle(ids,new Random(17));
+			for (int id:ids) {
+				Assert.assertTrue(tree.insert(new IntegerValue(id%4==0?id%400/4+1:0),id));
+			}
+			Assert.assertTrue(tree.insert(new IntegerValue(1000),7));
+			Assert.assertFalse(tree.insert(new IntegerValue(0),5));
+			Assert.assertFalse(tree.insert(new IntegerValue(1000),7));
+			Assert.assertEquals(rows+1,tree.size());
+			pages=tree.pages();
+			System.out.println("Index pages:"+pages+", height:"+tree.height());
+			// key 0 and keys with a few rows do not add entries into tree
+			Assert.assertTrue(tree.height()<=2);
+
+			long[] hot=tree.getAll(new IntegerValue(0));
+			Assert.assertEquals(rows/4*3,hot.length);
+			for (int i = 1; i < hot.length; i++) {
+				Assert.assertTrue(hot[i-1]<hot[i]);
+			}
+			Assert.assertEquals(1L,tree.get(new IntegerValue(0)));
+			Assert.assertEquals(100,tree.getAll(new IntegerValue(1)).length);
+			Assert.assertArrayEquals(new long[]{7},tree.getAll(new IntegerValue(1000)));
+
+			List<Map.Entry<Value,Long>> range=tree.range(new IntegerValue(0),new IntegerValue(1),true,true);
+			Assert.assertEquals(rows/4*3+100,range.size());
+			Assert.assertEquals(new IntegerValue(1),range.get(range.size()-1).getKey());
+			Assert.assertEquals(39600L,(long) range.get(range.size()-1).getValue());
+
+			// remove row ids until a single one is left in leaf
+			for (long id:tree.getAll(new IntegerValue(2))) {
+				if(id!=4)
+					Assert.assertTrue(tree.remove(new IntegerValue(2),id));
+			}
+			Assert.assertFalse(tree.remove(new IntegerValue(2),8));
+			Assert.assertArrayEquals(new long[]{4},tree.getAll(new IntegerValue(2)));
+
+			// pages of removed posting lists are reused
+			Assert.assertEquals(1L,tree.remove(new IntegerValue(0)));
+			Assert.assertEquals(0,tree.getAll(new IntegerValue(0)).length);
+			for (int i = 0; i < rows/2; i++) {
+				tree.insert(new IntegerValue(2000),i);
+			}
+			Assert.assertEquals(pages,tree.pages());
+		}
+
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,IntegerValue.class,new MemoryCache(64,1),BASE)){
+			Assert.assertFalse(tree.isUnique());
+			Assert.assertEquals(rows/2,tree.getAll(new IntegerValue(2000)).length);
+			Assert.assertArrayEquals(new long[]{4},tree.getAll(new IntegerValue(2)));
+		}
+	}
+
+	@DisplayName("Keep short posting lists of keys with a few duplicates inline in leaves.")
+	@Test
+	public void testInlinePosting() throws IOException {
+		int keys=15000;
+		List<Integer> rows=new ArrayList<>();
+		for (int i = 0; i < keys*2; i++) {
+			rows.add(i);
+		}
+		Collections.shuffle(rows,new Random(23));
+
+		File uniqueFile=new File("E:/data/index/unique-name.idx");
+		uniqueFile.delete();
+		long uniquePages;
+		try (PagedBPlusTree tree=new PagedBPlusTree(uniqueFile,StringValue.class,new MemoryCache(64,1),BASE)){
+			for (int i = 0; i < keys; i++) {
+				tree.insert(new StringValue("customer-"+i),i);
+			}
+			uniquePages=tree.pages();
+		}
+
+		File file=new File("E:/data/index/name.idx");
+		file.delete();
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,StringValue.class,new MemoryCache(64,1),BASE,8192,true,false)){
+			// each key holds 2 row ids, and key "hot" outgrows its inline list
+			for (int row:rows) {
+				Assert.assertTrue(tree.insert(new StringValue("customer-"+row%keys),row));
+			}
+			for (int i = 0; i < 2000; i++) {
+				tree.insert(new StringValue("hot"),i*3L);
+			}
+			System.out.println("Unique pages:"+uniquePages+", duplicate pages:"+tree.pages()+", height:"+tree.height());
+			Assert.assertTrue(tree.pages()<uniquePages*2);
+			Assert.assertEquals(keys*2+2000,tree.size());
+
+			Assert.assertArrayEquals(new long[]{7,7+keys},tree.getAll(new StringValue("customer-7")));
+			Assert.assertEquals(7L,tree.get(new StringValue("customer-7")));
+			Assert.assertFalse(tree.insert(new StringValue("customer-7"),7+keys));
+			Assert.assertEquals(2000,tree.getAll(new StringValue("hot")).length);
+
+			Assert.assertTrue(tree.remove(new StringValue("customer-7"),7));
+			Assert.assertFalse(tree.remove(new StringValue("customer-7"),7));
+			Assert.assertArrayEquals(new long[]{7+keys},tree.getAll(new StringValue("customer-7")));
+			Assert.assertEquals(8L,tree.remove(new StringValue("customer-8")));
+			Assert.assertEquals(keys*2+2000-3,tree.size());
+
+			List<Map.Entry<Value,Long>> range=tree.range(new StringValue("customer-10"),new StringValue("customer-10"),true,true);
+			Assert.assertEquals(2,range.size());
+			Assert.assertEquals(10L+keys,(long) range.get(1).getValue());
+		}
+
+		try (PagedBPlusTree tree=new PagedBPlusTree(file,StringValue.class,new MemoryCache(64,1),BASE)){
+			Assert.assertArrayEquals(new long[]{9,9+keys},tree.getAll(new StringValue("customer-9")));
+			Assert.assertEquals(0,tree.getAll(new StringValue("customer-8")).length);
+			Assert.assertEquals(2000,tree.getAll(new StringValue("hot")).length);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.codec.RowCodec;
+import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.utils.collections.BitMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@DisplayName("Row codec test")
+public class RowCodecTest {
+
+	@DisplayName("Write and read row by codec compiled from schema.")
+	@Test
+	public void testRoundTrip() throws IOException {
+		Schema schema=new Schema()
+			.addColumn(new ColumnDescription("id","", LongValue.class))
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class))
+			.addColumn(new ColumnDescription("score","", DoubleValue.class))
+			.addColumn(new ColumnDescription("sex","", BooleanValue.class));
+		RowCodec codec=schema.getCodec();
+		Assert.assertSame(codec,schema.getCodec());
+
+		BitMap bitMap=new BitMap(256);
+		bitMap.set(2);
+		Row row=new Row(new StructValue().addField(new LongValue(7L)).addField(new StringValue("lolita"))
+			.addField(new NullValue()).addField(new DoubleValue(99.5)).addField(new BooleanValue(true)),bitMap);
+		row.setLastUpdateTimeStamp(row.getCreatedTimeStamp()+1);
+
+		ByteBuffer buffer=ByteBuffer.allocateDirect(8192);
+		Assert.assertEquals(0,codec.write(row,buffer));
+		Assert.assertEquals(row.getRealSize(),buffer.position());
+
+		Row read=Row.readObject(buffer,0,schema);
+		System.out.println(read);
+		Assert.assertTrue(read.sameAs(row));
+		Assert.assertEquals(row.getCreatedTimeStamp(),read.getCreatedTimeStamp());
+		Assert.assertEquals(row.getLastUpdateTimeStamp(),read.getLastUpdateTimeStamp());
+		Assert.assertEquals(row.getRealSize(),read.getRealSize());
+	}
+}
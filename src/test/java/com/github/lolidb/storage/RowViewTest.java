@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.lolidb.storage;
+
+import com.github.lolidb.catalyst.catalog.ColumnDescription;
+import com.github.lolidb.catalyst.catalog.Schema;
+import com.github.lolidb.storage.tree.value.*;
+import com.github.lolidb.utils.collections.BitMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@DisplayName("Row view test")
+public class RowViewTest {
+
+	private static Schema schema;
+
+	static {
+		try {
+			schema=new Schema()
+				.addColumn(new ColumnDescription("id","", LongValue.class))
+				.addColumn(new ColumnDescription("name","", StringValue.class))
+				.addColumn(new ColumnDescription("age","", IntegerValue.class))
+				.addColumn(new ColumnDescription("sex","", BooleanValue.class));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@DisplayName("Read fields from buffer without deserializing row.")
+	@Test
+	public void testReadFields() throws IOException {
+		ByteBuffer buffer=ByteBuffer.allocateDirect(8192);
+		Row row = new Row(new StructValue().addField(new LongValue(7L)).addField(new StringValue("mark"))
+			.addField(new IntegerValue(18)).addField(new BooleanValue(true)));
+		Row.writeObject(row,buffer);
+
+		RowView view=new RowView(schema).wrap(buffer,0);
+		Assert.assertFalse(view.isDeleted());
+		Assert.assertEquals(7L,view.getLong(0));
+		Assert.assertEquals("mark",view.getString(1));
+		Assert.assertEquals(18,view.getInt(2));
+		Assert.assertTrue(view.getBoolean(3));
+		Assert.assertEquals(row.getRealSize(),view.getRealSize());
+		Assert.assertEquals(row.getSize(),view.getSize());
+		Assert.assertEquals(row.getCreatedTimeStamp(),view.getCreatedTimeStamp());
+		Assert.assertTrue(view.sameAs(row));
+	}
+
+	@DisplayName("Read fields behind null value.")
+	@Test
+	public void testNullField() throws IOException {
+		ByteBuffer buffer=ByteBuffer.allocateDirect(8192);
+		BitMap bitMap=new BitMap(256);
+		bitMap.set(1);
+		Row row = new Row(new StructValue().addField(new LongValue(7L)).addField(new NullValue())
+			.addField(new IntegerValue(18)).addField(new BooleanValue(false)),bitMap);
+		Row other = new Row(new StructValue().addField(new LongValue(8L)).addField(new StringValue("lolita"))
+			.addField(new IntegerValue(24)).addField(new BooleanValue(true)));
+		Row.writeObject(other,buffer);
+		Row.writeObject(row,buffer);
+
+		RowView view=new RowView(schema).wrap(buffer,other.getRealSize());
+		Assert.assertTrue(view.isNull(1));
+		Assert.assertFalse(view.isNull(2));
+		Assert.assertEquals(18,view.getInt(2));
+		Assert.assertFalse(view.getBoolean(3));
+		Assert.assertEquals(row.getRealSize(),view.getRealSize());
+		Assert.assertTrue(view.sameAs(row));
+		Assert.assertFalse(view.sameAs(other));
+
+		// reposition to the first row
+		view.wrap(buffer,0);
+		Assert.assertEquals("lolita",view.getString(1));
+		Assert.assertEquals(24,view.getInt(2));
+		Assert.assertTrue(view.sameAs(other));
+	}
+
+	@DisplayName("Read fields behind a variable-length column which is not string.")
+	@Test
+	public void testNormalizedField() throws IOException {
+		Schema normalized=new Schema()
+			.addColumn(new ColumnDescription("key","", NormalizedValue.class))
+			.addColumn(new ColumnDescription("name","", StringValue.class))
+			.addColumn(new ColumnDescription("age","", IntegerValue.class));
+		ByteBuffer buffer=ByteBuffer.allocateDirect(8192);
+		Row row = new Row(new StructValue().addField(new NormalizedValue(new byte[]{1,2,3,4,5,6,7}))
+			.addField(new StringValue("mark")).addField(new IntegerValue(18)));
+		normalized.getCodec().write(row,buffer);
+
+		RowView view=new RowView(normalized).wrap(buffer,0);
+		Assert.assertEquals("mark",view.getString(1));
+		Assert.assertEquals(18,view.getInt(2));
+		Assert.assertEquals(row.getRealSize(),view.getRealSize());
+		Assert.assertEquals(row.getSize(),view.getSize());
+		Assert.assertTrue(view.equals(0,new NormalizedValue(new byte[]{1,2,3,4,5,6,7})));
+		Assert.assertTrue(view.sameAs(row));
+	}
+}